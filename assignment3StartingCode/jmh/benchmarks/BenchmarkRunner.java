@@ -0,0 +1,173 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Class Description: Runs the benchmarks and keeps the results in a form that
+ * can be compared between versions.
+ *
+ * <pre>
+ * BenchmarkRunner results [JMH options]
+ *     runs the benchmarks, or those picked by the JMH options (e.g.
+ *     "TreeBenchmark.search -p size=1000,100000"), and writes
+ *     results.json, JMH's own results, and
+ *     results.txt, one line per benchmark and inputs, sorted, e.g.
+ *     "TreeBenchmark.search order=random size=1000 tree=avl	21.512	0.310	ns/op"
+ * BenchmarkRunner compare old.txt new.txt [percent]
+ *     lists what got slower by more than percent (default 10) and exits
+ *     with 1 if anything did
+ * </pre>
+ *
+ * The .txt files are plain text in a fixed order, so two runs can also be
+ * compared with diff.
+ */
+
+public class BenchmarkRunner
+{
+	// Attributes
+	private static final double DEFAULT_PERCENT = 10;
+
+	public static void main( String[] args ) throws IOException, RunnerException, CommandLineOptionException
+	{
+		if( args.length == 0 )
+		{
+			System.out.println( "Usage: BenchmarkRunner <results> [JMH options]" );
+			System.out.println( "       BenchmarkRunner compare <old.txt> <new.txt> [percent]" );
+			return;
+		}
+		if( args[0].equals( "compare" ) && args.length >= 3 )
+		{
+			double percent = args.length > 3 ? Double.parseDouble( args[3] ) : DEFAULT_PERCENT;
+			System.exit( compare( args[1], args[2], percent ) ? 1 : 0 );
+		}
+
+		String results = args[0];
+		Options options = new OptionsBuilder()
+				.parent( new CommandLineOptions( Arrays.copyOfRange( args, 1, args.length ) ) )
+				.resultFormat( ResultFormatType.JSON )
+				.result( results + ".json" )
+				.build();
+		Collection<RunResult> runs = new Runner( options ).run();
+		writeSummary( runs, results + ".txt" );
+	}
+
+	/**
+	 * One line per run: name and inputs, then score, error and unit, tab
+	 * separated, sorted by name and inputs.
+	 */
+	private static void writeSummary( Collection<RunResult> runs, String file ) throws IOException
+	{
+		TreeMap<String, String> lines = new TreeMap<String, String>();
+		for( RunResult run : runs )
+		{
+			BenchmarkParams params = run.getParams();
+			String name = params.getBenchmark();
+			StringBuilder key = new StringBuilder( name.substring( name.lastIndexOf( '.', name.lastIndexOf( '.' ) - 1 ) + 1 ) );
+			List<String> keys = new ArrayList<String>( params.getParamsKeys() );
+			keys.sort( null );
+			for( String param : keys )
+			{
+				key.append( ' ' ).append( param ).append( '=' ).append( params.getParam( param ) );
+			}
+			Result<?> result = run.getPrimaryResult();
+			lines.put( key.toString(), String.format( Locale.ROOT, "%.3f\t%.3f\t%s", result.getScore(),
+					result.getScoreError(), result.getScoreUnit() ) );
+		}
+
+		try( PrintWriter out = new PrintWriter( Files.newBufferedWriter( Paths.get( file ), StandardCharsets.UTF_8 ) ) )
+		{
+			for( Map.Entry<String, String> line : lines.entrySet() )
+			{
+				out.print( line.getKey() + "\t" + line.getValue() + "\n" );
+			}
+		}
+	}
+
+	/**
+	 * Every score here is a time per call, so higher is slower.
+	 *
+	 * @return whether anything got slower by more than percent
+	 */
+	private static boolean compare( String oldFile, String newFile, double percent ) throws IOException
+	{
+		Map<String, String[]> before = readSummary( oldFile );
+		Map<String, String[]> after = readSummary( newFile );
+		boolean slower = false;
+
+		for( Map.Entry<String, String[]> entry : after.entrySet() )
+		{
+			String[] old = before.get( entry.getKey() );
+			if( old == null )
+			{
+				System.out.println( "new      " + entry.getKey() );
+				continue;
+			}
+			if( !old[2].equals( entry.getValue()[2] ) )
+			{
+				System.out.println( "units    " + entry.getKey() + ": " + old[2] + " then " + entry.getValue()[2] );
+				continue;
+			}
+			double was = Double.parseDouble( old[0] );
+			double is = Double.parseDouble( entry.getValue()[0] );
+			double change = ( is - was ) / was * 100;
+			if( change > percent )
+			{
+				slower = true;
+				System.out.println( String.format( Locale.ROOT, "SLOWER   %s: %.3f -> %.3f %s (%+.1f%%)",
+						entry.getKey(), was, is, entry.getValue()[2], change ) );
+			}
+			else if( change < -percent )
+			{
+				System.out.println( String.format( Locale.ROOT, "faster   %s: %.3f -> %.3f %s (%+.1f%%)",
+						entry.getKey(), was, is, entry.getValue()[2], change ) );
+			}
+		}
+		for( String key : before.keySet() )
+		{
+			if( !after.containsKey( key ) )
+			{
+				System.out.println( "missing  " + key );
+			}
+		}
+		return slower;
+	}
+
+	/**
+	 * @return score, error and unit by name and inputs
+	 */
+	private static Map<String, String[]> readSummary( String file ) throws IOException
+	{
+		Map<String, String[]> results = new TreeMap<String, String[]>();
+		for( String line : Files.readAllLines( Paths.get( file ), StandardCharsets.UTF_8 ) )
+		{
+			String[] fields = line.split( "\t" );
+			if( fields.length == 4 )
+			{
+				results.put( fields[0], Arrays.copyOfRange( fields, 1, 4 ) );
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,188 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import appDomain.WordTokenizer;
+import implementations.AVLTree;
+import implementations.ArrayBSTree;
+import implementations.BSTree;
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: The inputs every benchmark runs on, the same on every run
+ * so results can be compared between versions.
+ *
+ * <pre>
+ * random: distinct random words of 3 to 10 letters, in random order
+ * sorted: the same kind of words in alphabetical order, the worst case for a
+ *         plain BST
+ * text:   the words of the text files in res/ (or the directory named by the
+ *         benchmark.text property), over and over, so most are repeats as in
+ *         real text
+ * </pre>
+ */
+
+public final class Inputs
+{
+	// Attributes
+	public static final String RANDOM = "random";
+	public static final String SORTED = "sorted";
+	public static final String TEXT = "text";
+
+	public static final String BST = "bst";
+	public static final String AVL = "avl";
+	public static final String ARRAY = "array";
+
+	// a plain BST fed sorted words is a list, so building it is O(n^2)
+	private static final int MAX_SORTED_BST = 100000;
+
+	private static final long SEED = 304;
+
+	private Inputs()
+	{
+	}
+
+	/**
+	 * @param order random, sorted or text
+	 * @param size how many words
+	 * @return the words in the order they are added
+	 * @throws IOException if the text cannot be read
+	 */
+	public static String[] words( String order, int size ) throws IOException
+	{
+		switch( order )
+		{
+			case RANDOM:
+				return distinctWords( size );
+			case SORTED:
+				String[] words = distinctWords( size );
+				Arrays.sort( words );
+				return words;
+			case TEXT:
+				String[] text = textWords();
+				String[] repeated = new String[size];
+				for( int i = 0; i < size; i++ )
+				{
+					repeated[i] = text[i % text.length];
+				}
+				return repeated;
+			default:
+				throw new IllegalArgumentException( "Unknown order: " + order );
+		}
+	}
+
+	/**
+	 * Words put into lines of ten, as a text file would have them.
+	 *
+	 * @param words the words
+	 * @return the lines
+	 */
+	public static String[] lines( String[] words )
+	{
+		String[] lines = new String[( words.length + 9 ) / 10];
+		StringBuilder line = new StringBuilder();
+		for( int i = 0; i < lines.length; i++ )
+		{
+			line.setLength( 0 );
+			for( int w = i * 10; w < Math.min( words.length, i * 10 + 10 ); w++ )
+			{
+				line.append( words[w] ).append( w % 7 == 0 ? ", " : " " );
+			}
+			lines[i] = line.toString();
+		}
+		return lines;
+	}
+
+	/**
+	 * @param kind bst, avl or array
+	 * @return an empty tree of that kind
+	 */
+	public static <E extends Comparable<? super E>> BSTreeADT<E> newTree( String kind )
+	{
+		switch( kind )
+		{
+			case BST:
+				return new BSTree<E>();
+			case AVL:
+				return new AVLTree<E>();
+			case ARRAY:
+				return new ArrayBSTree<E>();
+			default:
+				throw new IllegalArgumentException( "Unknown tree: " + kind );
+		}
+	}
+
+	/**
+	 * Fails the benchmark, which JMH reports and then goes on with the next
+	 * one, for inputs that cannot finish: a plain BST of more than 100k
+	 * sorted words.
+	 *
+	 * @param kind bst, avl or array
+	 * @param order random, sorted or text
+	 * @param size how many words
+	 */
+	public static void checkFeasible( String kind, String order, int size )
+	{
+		if( kind.equals( BST ) && order.equals( SORTED ) && size > MAX_SORTED_BST )
+		{
+			throw new IllegalStateException( "Skipped: a plain BST of " + size
+					+ " sorted words is a list and takes O(n^2) to build" );
+		}
+	}
+
+	private static String[] distinctWords( int size )
+	{
+		Random random = new Random( SEED );
+		HashSet<String> seen = new HashSet<String>( size * 2 );
+		String[] words = new String[size];
+		char[] letters = new char[10];
+		int count = 0;
+		while( count < size )
+		{
+			int length = 3 + random.nextInt( 8 );
+			for( int c = 0; c < length; c++ )
+			{
+				letters[c] = (char) ( 'a' + random.nextInt( 26 ) );
+			}
+			String word = new String( letters, 0, length );
+			if( seen.add( word ) )
+			{
+				words[count++] = word;
+			}
+		}
+		return words;
+	}
+
+	private static String[] textWords() throws IOException
+	{
+		File directory = new File( System.getProperty( "benchmark.text", "res" ) );
+		File[] files = directory.listFiles( ( dir, name ) -> name.endsWith( ".txt" ) );
+		if( files == null || files.length == 0 )
+		{
+			throw new IOException( "No .txt files in " + directory.getAbsolutePath()
+					+ "; set -Dbenchmark.text to a directory of text files" );
+		}
+		Arrays.sort( files );
+
+		final List<String> words = new ArrayList<String>();
+		WordTokenizer tokenizer = new WordTokenizer( ( token, lineNumber ) -> words.add( token.toString() ) );
+		for( File file : files )
+		{
+			// only ASCII letters make words, so any ASCII-based encoding reads
+			// the same words, and ISO-8859-1 never fails to decode
+			for( String line : Files.readAllLines( file.toPath(), StandardCharsets.ISO_8859_1 ) )
+			{
+				tokenizer.feedLine( line );
+			}
+		}
+		return words.toArray( new String[0] );
+	}
+}
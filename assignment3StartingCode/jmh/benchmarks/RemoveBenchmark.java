@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: Emptying a tree with removeMin or removeMax, or with
+ * one drain.
+ *
+ * Each call removes every word from a tree built just before it, outside
+ * the timing, in the same order as TreeBenchmark builds it, so the tree has
+ * the same shape.
+ */
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx4g" )
+public class RemoveBenchmark
+{
+	// Attributes
+	@Param( { "bst", "avl", "array" } )
+	public String tree;
+
+	@Param( { "random", "sorted", "text" } )
+	public String order;
+
+	@Param( { "1000", "100000", "10000000" } )
+	public int size;
+
+	private String[] words;
+	private BSTreeADT<String> full;
+
+	/**
+	 * Makes the words once.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		Inputs.checkFeasible( tree, order, size );
+		words = Inputs.words( order, size );
+	}
+
+	/**
+	 * Builds a full tree before every call.
+	 */
+	@Setup( Level.Invocation )
+	public void fill()
+	{
+		full = Inputs.newTree( tree );
+		for( String word : words )
+		{
+			full.add( word );
+		}
+	}
+
+	@Benchmark
+	public void removeMin( Blackhole blackhole )
+	{
+		while( !full.isEmpty() )
+		{
+			blackhole.consume( full.removeMin() );
+		}
+	}
+
+	@Benchmark
+	public void removeMax( Blackhole blackhole )
+	{
+		while( !full.isEmpty() )
+		{
+			blackhole.consume( full.removeMax() );
+		}
+	}
+
+	@Benchmark
+	public int drainAscending( Blackhole blackhole )
+	{
+		return full.drainAscending( blackhole::consume );
+	}
+
+	@Benchmark
+	public int drainDescending( Blackhole blackhole )
+	{
+		return full.drainDescending( blackhole::consume );
+	}
+}
@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import appDomain.WordIndexer;
+import appDomain.WordRepository;
+import implementations.AVLTree;
+import implementations.Word;
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: Saving and loading the word repository, for a tree
+ * made by reading the words as lines of ten from one file.
+ */
+
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx4g" )
+public class RepositoryBenchmark
+{
+	/**
+	 * The inputs, and a temporary repository file.
+	 */
+	@State( Scope.Benchmark )
+	public static class Input
+	{
+		@Param( { "random", "sorted", "text" } )
+		public String order;
+
+		@Param( { "1000", "100000", "10000000" } )
+		public int size;
+
+		File file;
+
+		BSTreeADT<Word> build() throws IOException
+		{
+			String[] lines = Inputs.lines( Inputs.words( order, size ) );
+			BSTreeADT<Word> tree = new AVLTree<Word>();
+			for( int i = 0; i < lines.length; i++ )
+			{
+				WordIndexer.processLine( lines[i], "benchmark.txt", i + 1, tree );
+			}
+			return tree;
+		}
+
+		@Setup
+		public void createFile() throws IOException
+		{
+			file = File.createTempFile( "repository", ".dat" );
+		}
+
+		@TearDown
+		public void deleteFile()
+		{
+			file.delete();
+			new File( file.getPath() + ".log" ).delete();
+		}
+	}
+
+	/**
+	 * A tree to save.
+	 */
+	@State( Scope.Benchmark )
+	public static class Built
+	{
+		BSTreeADT<Word> tree;
+
+		@Setup
+		public void setUp( Input input ) throws IOException
+		{
+			tree = input.build();
+		}
+	}
+
+	/**
+	 * A saved repository to load; the tree it was saved from is not kept.
+	 */
+	@State( Scope.Benchmark )
+	public static class Saved
+	{
+		@Setup
+		public void setUp( Input input ) throws IOException
+		{
+			WordRepository.save( input.build(), input.file );
+		}
+	}
+
+	@Benchmark
+	public File save( Input input, Built built ) throws IOException
+	{
+		WordRepository.save( built.tree, input.file );
+		return input.file;
+	}
+
+	@Benchmark
+	public BSTreeADT<Word> load( Input input, Saved saved ) throws IOException
+	{
+		return WordRepository.load( input.file );
+	}
+}
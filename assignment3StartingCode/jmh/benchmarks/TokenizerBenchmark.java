@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import appDomain.WordIndexer;
+import implementations.Word;
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: Reading lines of text into a word tree with
+ * WordIndexer.processLine, ten words to a line. Each call reads every line
+ * into a new tree.
+ */
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx4g" )
+public class TokenizerBenchmark
+{
+	// Attributes
+	private static final String FILENAME = "benchmark.txt";
+
+	@Param( { "bst", "avl", "array" } )
+	public String tree;
+
+	@Param( { "random", "sorted", "text" } )
+	public String order;
+
+	@Param( { "1000", "100000", "10000000" } )
+	public int size;
+
+	private String[] lines;
+
+	/**
+	 * Makes the lines once.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		Inputs.checkFeasible( tree, order, size );
+		lines = Inputs.lines( Inputs.words( order, size ) );
+	}
+
+	@Benchmark
+	public BSTreeADT<Word> processLine()
+	{
+		BSTreeADT<Word> words = Inputs.newTree( tree );
+		for( int i = 0; i < lines.length; i++ )
+		{
+			WordIndexer.processLine( lines[i], FILENAME, i + 1, words );
+		}
+		return words;
+	}
+}
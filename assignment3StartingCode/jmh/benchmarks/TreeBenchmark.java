@@ -0,0 +1,184 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import implementations.BSTreeNode;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * Class Description: Building, searching and walking a tree of words.
+ *
+ * add times building the whole tree; search and contains time one lookup
+ * of a word that is in the tree; the iterators time one full walk. The pop
+ * benchmarks take the 100 smallest words out, one removeMin at a time or
+ * with one bounded drain, and add them back, so the tree stays the same.
+ */
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx4g" )
+public class TreeBenchmark
+{
+	// Attributes
+	// lookups cycle through this many words picked at random from the tree
+	private static final int PROBES = 1 << 12;
+	// how many of the smallest words the pop benchmarks take out
+	private static final int POP = 100;
+
+	@Param( { "bst", "avl", "array" } )
+	public String tree;
+
+	@Param( { "random", "sorted", "text" } )
+	public String order;
+
+	@Param( { "1000", "100000", "10000000" } )
+	public int size;
+
+	private String[] words;
+	private BSTreeADT<String> built;
+	private String[] probes;
+	private int next;
+	private final String[] popped = new String[POP];
+	private int poppedCount;
+
+	/**
+	 * Makes the words and the tree every benchmark but add reads.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Setup
+	public void setUp() throws IOException
+	{
+		Inputs.checkFeasible( tree, order, size );
+		words = Inputs.words( order, size );
+		built = build();
+
+		Random random = new Random( 1 );
+		probes = new String[PROBES];
+		for( int i = 0; i < PROBES; i++ )
+		{
+			probes[i] = words[random.nextInt( words.length )];
+		}
+	}
+
+	private BSTreeADT<String> build()
+	{
+		BSTreeADT<String> result = Inputs.newTree( tree );
+		for( String word : words )
+		{
+			result.add( word );
+		}
+		return result;
+	}
+
+	private String probe()
+	{
+		return probes[next++ & ( PROBES - 1 )];
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MILLISECONDS )
+	public BSTreeADT<String> add()
+	{
+		return build();
+	}
+
+	@Benchmark
+	public BSTreeNode<String> search()
+	{
+		return built.search( probe() );
+	}
+
+	@Benchmark
+	public boolean contains()
+	{
+		return built.contains( probe() );
+	}
+
+	@Benchmark
+	public int getHeight()
+	{
+		return built.getHeight();
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public void inorderIterator( Blackhole blackhole )
+	{
+		walk( built.inorderIterator(), blackhole );
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public void preorderIterator( Blackhole blackhole )
+	{
+		walk( built.preorderIterator(), blackhole );
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public void postorderIterator( Blackhole blackhole )
+	{
+		walk( built.postorderIterator(), blackhole );
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public int pop_removeMin()
+	{
+		for( int i = 0; i < POP; i++ )
+		{
+			popped[i] = built.removeMin().getElement();
+		}
+		return putBack( POP );
+	}
+
+	@Benchmark
+	@OutputTimeUnit( TimeUnit.MICROSECONDS )
+	public int pop_drainAscending()
+	{
+		poppedCount = 0;
+		return putBack( built.drainAscending( POP, this::keep ) );
+	}
+
+	private void keep( String word )
+	{
+		popped[poppedCount++] = word;
+	}
+
+	private int putBack( int count )
+	{
+		for( int i = 0; i < count; i++ )
+		{
+			built.add( popped[i] );
+		}
+		return count;
+	}
+
+	private static void walk( Iterator<String> it, Blackhole blackhole )
+	{
+		while( it.hasNext() )
+		{
+			blackhole.consume( it.next() );
+		}
+	}
+}
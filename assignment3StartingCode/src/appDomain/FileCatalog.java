@@ -0,0 +1,218 @@
+package appDomain;
+
+import implementations.FileRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * What the repository knows about each file it has read: its size, when it
+ * was last modified and a hash of its contents, as they were when it was read.
+ *
+ * This decides whether a file has to be read again. A file with the same size
+ * and modification time is taken to be unchanged without opening it; if only
+ * the time differs the file is hashed, so a file that was only touched or
+ * copied is still not read again. A new file, or one whose size changed, has
+ * to be read anyway, so it is not hashed until it has been.
+ *
+ * What check finds out about a file that has to be read is only kept once
+ * the file has been read, so a file that could not be read is tried again
+ * next time rather than taken for read.
+ */
+public class FileCatalog
+{
+	/**
+	 * What to do with a file.
+	 */
+	public enum Status
+	{
+		// never read before: read it
+		NEW,
+		// the same as when it was read: skip it
+		UNCHANGED,
+		// different from when it was read: drop its old lines and read it again
+		CHANGED
+	}
+
+	/**
+	 * The size, modification time and hash of a file. The hash is null for a
+	 * file that was read before hashes were kept, so it always counts as
+	 * changed.
+	 */
+	public static class FileInfo
+	{
+		final long size;
+		final long modified;
+		final byte[] hash;
+
+		FileInfo(long size, long modified, byte[] hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+		}
+	}
+
+	// by FileRegistry id
+	private final HashMap<Integer, FileInfo> files = new HashMap<>();
+	// ids whose info changed since the catalog was loaded
+	private final TreeSet<Integer> updated = new TreeSet<>();
+	// what check found about files that are still to be read
+	private final HashMap<Integer, FileInfo> checked = new HashMap<>();
+
+	/**
+	 * Decide whether a file has to be read. If only its time changed the new
+	 * one is remembered; if it has to be read its size and time are
+	 * remembered by markRead, once it has been. Only a file whose time changed
+	 * and size did not is hashed here.
+	 *
+	 * @param filename the file
+	 * @return what to do with the file
+	 * @throws IOException if the file cannot be read
+	 */
+	public Status check(String filename) throws IOException {
+		Path path = Paths.get(filename);
+		long size = Files.size(path);
+		long modified = Files.getLastModifiedTime(path).toMillis();
+
+		int id = FileRegistry.idOf(filename);
+		FileInfo known = files.get(id);
+		if (known != null && known.hash != null && known.size == size) {
+			if (known.modified == modified) {
+				return Status.UNCHANGED;
+			}
+			byte[] hash = hash(path);
+			FileInfo info = new FileInfo(size, modified, hash);
+			if (Arrays.equals(known.hash, hash)) {
+				files.put(id, info);
+				updated.add(id);
+				return Status.UNCHANGED;
+			}
+			checked.put(id, info);
+			return Status.CHANGED;
+		}
+
+		// read whatever it holds, so hashed once it has been, not twice
+		checked.put(id, new FileInfo(size, modified, null));
+		return known == null ? Status.NEW : Status.CHANGED;
+	}
+
+	/**
+	 * Remember what check found about a file now that it has been read,
+	 * hashing it if check did not; having just been read, it is usually still
+	 * in the operating system's cache. If it changed since it was checked, a
+	 * hash may not match what was read, so it is kept without one and counts
+	 * as changed next time.
+	 *
+	 * @param filename a file check said has to be read
+	 */
+	public void markRead(String filename) {
+		int id = FileRegistry.idOf(filename);
+		FileInfo info = checked.remove(id);
+		if (info == null) {
+			// never checked, so nothing is known about it
+			info = new FileInfo(-1, -1, null);
+		} else {
+			try {
+				Path path = Paths.get(filename);
+				if (Files.size(path) != info.size || Files.getLastModifiedTime(path).toMillis() != info.modified) {
+					info = new FileInfo(info.size, info.modified, null);
+				} else if (info.hash == null) {
+					info = new FileInfo(info.size, info.modified, hash(path));
+				}
+			} catch (IOException e) {
+				info = new FileInfo(info.size, info.modified, null);
+			}
+		}
+		files.put(id, info);
+		updated.add(id);
+	}
+
+	/**
+	 * Forget what check found about a file that could not be read. A file
+	 * read before has had its old lines dropped, so it now counts as changed
+	 * whatever it holds; a new one stays new.
+	 *
+	 * @param filename a file check said has to be read
+	 */
+	public void markFailed(String filename) {
+		int id = FileRegistry.idOf(filename);
+		if (checked.remove(id) != null && files.containsKey(id)) {
+			files.put(id, new FileInfo(-1, -1, null));
+			updated.add(id);
+		}
+	}
+
+	/**
+	 * @param fileId a FileRegistry id
+	 * @return what is known about the file, or null if it was never read
+	 */
+	public FileInfo get(int fileId) {
+		return files.get(fileId);
+	}
+
+	/**
+	 * Remember what is known about a file, e.g. when loading the repository.
+	 *
+	 * @param fileId a FileRegistry id
+	 * @param info size, time and hash of the file
+	 */
+	void put(int fileId, FileInfo info) {
+		files.put(fileId, info);
+	}
+
+	/**
+	 * Remember that a file was read, without knowing its size, time or hash, so
+	 * it counts as changed when it is checked, e.g. a file read by an older
+	 * version.
+	 *
+	 * @param fileId a FileRegistry id
+	 */
+	public void addUnknown(int fileId) {
+		if (!files.containsKey(fileId)) {
+			files.put(fileId, new FileInfo(-1, -1, null));
+		}
+	}
+
+	/**
+	 * @return ids of every file in the catalog
+	 */
+	public Set<Integer> fileIds() {
+		return files.keySet();
+	}
+
+	/**
+	 * @return ids of the files checked since the catalog was loaded whose size,
+	 *         time or hash changed, in id order
+	 */
+	public SortedSet<Integer> updatedFileIds() {
+		return updated;
+	}
+
+	/**
+	 * MD5 of the contents of a file. Only used to spot changes, so it does not
+	 * have to be hard to forge, only quick.
+	 */
+	private static byte[] hash(Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform has to support MD5
+			throw new IllegalStateException(e);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return digest.digest();
+	}
+}
@@ -0,0 +1,661 @@
+package appDomain;
+
+import implementations.FileRegistry;
+import implementations.LineList;
+import implementations.Word;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * The words of a repository kept in a memory-mapped file instead of on the
+ * heap. The file is the repository itself: opening it maps it and reads the
+ * file table, so it is ready straight away however many words it holds, and
+ * the words take no heap and nothing for the garbage collector to trace. A
+ * Word is only made when one is asked for, and dropped again as soon as the
+ * caller is done with it.
+ *
+ * Layout (counts and lengths are unsigned varints unless a size is given):
+ * <pre>
+ *   magic "WTIX" (4 bytes), format version (4 bytes), word count (8 bytes),
+ *   offset of the first word (8 bytes), offset of the directory (8 bytes)
+ *   file count, then per file: name as length + UTF-8 bytes, size and
+ *   modification time (8 bytes each), hash as length + bytes
+ *   each word in alphabetical order:
+ *     text as length + UTF-8 bytes
+ *     number of files, then per file:
+ *       index into the file table, line count,
+ *       line numbers as deltas from the previous line, the first from 0
+ *   padding to a multiple of 8
+ *   directory: the offset of each word (8 bytes each)
+ * </pre>
+ * The directory makes word i one lookup away, so a word is found by binary
+ * search and a prefix is counted from two searches.
+ *
+ * The file cannot be changed in place. Adding files writes a new one by
+ * walking the old words and the new ones in order side by side; the records
+ * of old words the new files don't touch are copied as they are, without
+ * being read into Words, so the heap only ever holds the words of the files
+ * being added.
+ *
+ * A mapped file cannot be replaced or deleted on Windows, and Java cannot
+ * unmap it, so the new file is not moved over the old one. It is the next
+ * generation instead: repository.idx is followed by repository.idx.1, then
+ * repository.idx.2 and so on, and the newest one is the index. Older ones
+ * are deleted once they can be.
+ *
+ * A mapping can be at most 2 GB, so the file is mapped in segments of 1 GB;
+ * a word can start in one and end in the next.
+ */
+public class MappedWordIndex implements Closeable
+{
+	private static final int MAGIC = 0x57544958; // "WTIX"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8;
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+	// empty for an index with no file
+	private MappedByteBuffer[] segments;
+	private final long wordCount;
+	private final long directory;
+	// FileRegistry id of each entry in the file table
+	private final int[] files;
+
+	private MappedWordIndex(MappedByteBuffer[] segments, long wordCount, long directory, int[] files) {
+		this.segments = segments;
+		this.wordCount = wordCount;
+		this.directory = directory;
+		this.files = files;
+	}
+
+	/**
+	 * Map an index file, or give an empty index if there is no file yet.
+	 *
+	 * @param file the index file
+	 * @param catalog gets what is known about the files that were read
+	 * @return the index
+	 * @throws IOException if the file cannot be mapped or is not an index
+	 */
+	public static MappedWordIndex open(File file, FileCatalog catalog) throws IOException {
+		long generation = newestGeneration(file);
+		if (generation < 0) {
+			return empty();
+		}
+		deleteGenerationsBefore(file, generation);
+		file = generation(file, generation);
+
+		MappedByteBuffer[] segments;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException(file + " is truncated");
+			}
+			segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, SEGMENT_MASK + 1));
+			}
+		}
+
+		ByteBuffer header = segments[0];
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a word index");
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("Unsupported word index version " + header.getInt(4));
+		}
+		long wordCount = header.getLong(8);
+		long directory = header.getLong(24);
+		if (wordCount < 0 || directory + wordCount * 8 != file.length()) {
+			throw new IOException(file + " is truncated");
+		}
+
+		Cursor in = new Cursor(segments, HEADER_SIZE);
+		int[] files = new int[in.readVarint()];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = FileRegistry.idOf(in.readString());
+			long size = in.readLong();
+			long modified = in.readLong();
+			byte[] hash = in.readBytes(in.readVarint());
+			catalog.put(files[i], new FileCatalog.FileInfo(size, modified, hash.length == 0 ? null : hash));
+		}
+		return new MappedWordIndex(segments, wordCount, directory, files);
+	}
+
+	/**
+	 * @param file the index file
+	 * @return true if there is an index, in file or a later generation of it
+	 */
+	public static boolean exists(File file) {
+		return newestGeneration(file) >= 0;
+	}
+
+	/**
+	 * @param file the index file
+	 * @return when the newest generation was written, or 0 if there is none
+	 */
+	public static long lastModified(File file) {
+		long generation = newestGeneration(file);
+		return generation < 0 ? 0 : generation(file, generation).lastModified();
+	}
+
+	/**
+	 * @return the file of a generation of the index, 0 being file itself
+	 */
+	private static File generation(File file, long generation) {
+		return generation == 0 ? file : new File(file.getPath() + "." + generation);
+	}
+
+	/**
+	 * @return the newest generation of the index there is a file for, -1 if
+	 *         there is none
+	 */
+	private static long newestGeneration(File file) {
+		long newest = file.exists() ? 0 : -1;
+		for (long generation : generations(file)) {
+			newest = Math.max(newest, generation);
+		}
+		return newest;
+	}
+
+	/**
+	 * @return the generations after 0 there are files for
+	 */
+	private static List<Long> generations(File file) {
+		List<Long> generations = new ArrayList<>();
+		File directory = file.getAbsoluteFile().getParentFile();
+		String[] names = directory == null ? null : directory.list();
+		String prefix = file.getName() + ".";
+		for (String name : names == null ? new String[0] : names) {
+			String suffix = name.substring(Math.min(prefix.length(), name.length()));
+			if (name.startsWith(prefix) && suffix.matches("[0-9]{1,18}")) {
+				generations.add(Long.parseLong(suffix));
+			}
+		}
+		return generations;
+	}
+
+	/**
+	 * Delete the generations older than the given one. One still mapped, by
+	 * this process on Windows, stays until a later run.
+	 */
+	private static void deleteGenerationsBefore(File file, long generation) {
+		if (generation > 0) {
+			file.delete();
+		}
+		for (long older : generations(file)) {
+			if (older < generation) {
+				generation(file, older).delete();
+			}
+		}
+	}
+
+	private static MappedWordIndex empty() {
+		return new MappedWordIndex(new MappedByteBuffer[0], 0, 0, new int[0]);
+	}
+
+	/**
+	 * @return how many words the index holds
+	 */
+	public long size() {
+		return wordCount;
+	}
+
+	/**
+	 * @param i position of the word in alphabetical order
+	 * @return the word, with all its files and lines
+	 */
+	public Word get(long i) {
+		if (i < 0 || i >= wordCount) {
+			throw new IndexOutOfBoundsException("index " + i + ", size " + wordCount);
+		}
+		return readWord(new Cursor(segments, offsetOf(i)));
+	}
+
+	/**
+	 * @param text the word to look up
+	 * @return the word, or null if it is not in the index
+	 */
+	public Word find(String text) {
+		long i = firstNotBelow(text, false);
+		if (i == wordCount) {
+			return null;
+		}
+		Cursor in = new Cursor(segments, offsetOf(i));
+		if (!in.readString().equals(text)) {
+			return null;
+		}
+		return get(i);
+	}
+
+	/**
+	 * The words in alphabetical order, or only those starting with prefix. As
+	 * for the word tree, those are the words between the prefix and the prefix
+	 * followed by the highest char.
+	 *
+	 * @param prefix the prefix to match, or null for every word
+	 * @return the words, each made as it is reached
+	 */
+	public Iterator<Word> words(String prefix) {
+		long from = prefix == null ? 0 : firstNotBelow(prefix, false);
+		long to = prefix == null ? wordCount : firstNotBelow(prefix + Character.MAX_VALUE, true);
+		return new Iterator<Word>() {
+			private final Cursor in = new Cursor(segments, from < to ? offsetOf(from) : 0);
+			private long next = from;
+
+			@Override
+			public boolean hasNext() {
+				return next < to;
+			}
+
+			@Override
+			public Word next() throws NoSuchElementException {
+				if (next >= to) {
+					throw new NoSuchElementException();
+				}
+				next++;
+				// the words follow each other, so no need for the directory
+				return readWord(in);
+			}
+		};
+	}
+
+	/**
+	 * @param prefix the prefix to match
+	 * @return how many words start with prefix, from two binary searches
+	 */
+	public long count(String prefix) {
+		return firstNotBelow(prefix + Character.MAX_VALUE, true) - firstNotBelow(prefix, false);
+	}
+
+	/**
+	 * Binary search on the directory.
+	 *
+	 * @param text what to compare with
+	 * @param above true for the first word greater than text, false for the
+	 *        first word greater than or equal to it
+	 * @return its position, wordCount if there is none
+	 */
+	private long firstNotBelow(String text, boolean above) {
+		long lo = 0;
+		long hi = wordCount;
+		while (lo < hi) {
+			long mid = (lo + hi) >>> 1;
+			int comparison = new Cursor(segments, offsetOf(mid)).readString().compareTo(text);
+			if (comparison < 0 || (above && comparison == 0)) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private long offsetOf(long i) {
+		long position = directory + i * 8;
+		// the directory is aligned, so an offset never spans two segments
+		return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+	}
+
+	private Word readWord(Cursor in) {
+		Word word = new Word(in.readString());
+		int fileCount = in.readVarint();
+		for (int f = 0; f < fileCount; f++) {
+			int fileId = files[in.readVarint()];
+			int lineCount = in.readVarint();
+			LineList lines = new LineList(lineCount);
+			int line = 0;
+			for (int i = 0; i < lineCount; i++) {
+				line += in.readVarint();
+				lines.add(line);
+			}
+			word.setLines(fileId, lines);
+		}
+		return word;
+	}
+
+	/**
+	 * Move past one word without making it.
+	 *
+	 * @param in at the start of the word
+	 * @param dropped FileRegistry ids to look for, or null
+	 * @return true if the word has lines in one of the dropped files
+	 */
+	private boolean skipWord(Cursor in, Set<Integer> dropped) {
+		int textLength = in.readVarint();
+		in.position += textLength;
+		boolean found = false;
+		int fileCount = in.readVarint();
+		for (int f = 0; f < fileCount; f++) {
+			int fileId = files[in.readVarint()];
+			found |= dropped != null && dropped.contains(fileId);
+			int lineCount = in.readVarint();
+			for (int i = 0; i < lineCount; i++) {
+				in.readVarint();
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Let go of the mapping. The memory is given back once the garbage
+	 * collector finds the mapping unused; Java has no way to unmap it sooner.
+	 */
+	@Override
+	public void close() {
+		segments = new MappedByteBuffer[0];
+	}
+
+	/**
+	 * Write a tree as a new index file, e.g. to convert a repository.
+	 *
+	 * @param tree the words to save
+	 * @param catalog what is known about the files that were read
+	 * @param file where to save them
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(BSTreeADT<Word> tree, FileCatalog catalog, File file) throws IOException {
+		empty().update(file, tree, Collections.<Integer>emptySet(), catalog).close();
+	}
+
+	/**
+	 * Write a new index file with the words of this one and the added ones,
+	 * and open it. Dropped files lose their lines first, and words left with
+	 * none are left out. The new file is the next generation of file, and
+	 * only gets its name once it is complete, so a failed update leaves the
+	 * old index as it was. This index is closed.
+	 *
+	 * @param file the index file; may be the file of this one
+	 * @param added the new words, with their lines; they may be changed
+	 * @param dropped FileRegistry ids of files whose old lines are dropped
+	 * @param catalog what is known about the files that were read
+	 * @return the new index
+	 * @throws IOException if the file cannot be written
+	 */
+	public MappedWordIndex update(File file, BSTreeADT<Word> added, Set<Integer> dropped, FileCatalog catalog)
+			throws IOException {
+		// the old files keep their places, so unchanged words can be copied
+		// as they are; new ones go after them, in id order
+		Map<Integer, Integer> fileIndex = new LinkedHashMap<>();
+		for (int id : files) {
+			fileIndex.put(id, fileIndex.size());
+		}
+		TreeSet<Integer> newFiles = new TreeSet<>(catalog.fileIds());
+		Iterator<Word> words = added.inorderIterator();
+		while (words.hasNext()) {
+			Word word = words.next();
+			for (int f = 0; f < word.getFileCount(); f++) {
+				newFiles.add(word.getFileId(f));
+			}
+		}
+		for (int id : newFiles) {
+			if (!fileIndex.containsKey(id)) {
+				fileIndex.put(id, fileIndex.size());
+			}
+		}
+
+		long generation = newestGeneration(file) + 1;
+		File target = generation(file, generation);
+		File temp = new File(target.getPath() + ".tmp");
+		File offsets = new File(target.getPath() + ".dir.tmp");
+		long count = 0;
+		long directoryStart;
+		long wordsStart;
+		try {
+			try (Output out = new Output(new FileOutputStream(temp));
+					DataOutputStream directoryOut = new DataOutputStream(
+							new BufferedOutputStream(new FileOutputStream(offsets), 1 << 16))) {
+				out.write(new byte[HEADER_SIZE]);
+				out.writeVarint(fileIndex.size());
+				for (int id : fileIndex.keySet()) {
+					FileCatalog.FileInfo info = catalog.get(id);
+					out.writeString(FileRegistry.nameOf(id));
+					out.writeLong(info == null ? -1 : info.size);
+					out.writeLong(info == null ? -1 : info.modified);
+					byte[] hash = info == null || info.hash == null ? new byte[0] : info.hash;
+					out.writeVarint(hash.length);
+					out.write(hash);
+				}
+				wordsStart = out.position();
+
+				Cursor old = new Cursor(segments, wordCount == 0 ? 0 : offsetOf(0));
+				long i = 0;
+				String oldText = i < wordCount ? peekText(old) : null;
+				words = added.inorderIterator();
+				Word next = words.hasNext() ? words.next() : null;
+				Set<Integer> lookFor = dropped.isEmpty() ? null : dropped;
+				// old words copied as they are, not written yet
+				long runStart = 0;
+				long runEnd = 0;
+
+				while (oldText != null || next != null) {
+					int comparison = oldText == null ? 1 : next == null ? -1 : oldText.compareTo(next.getText());
+					Word word;
+					if (comparison < 0) {
+						long start = old.position;
+						if (!skipWord(old, lookFor)) {
+							if (runStart == runEnd) {
+								runStart = start;
+							}
+							directoryOut.writeLong(out.position() + start - runStart);
+							runEnd = old.position;
+							count++;
+							word = null;
+						} else {
+							// the run ends before this word, even if it has no
+							// lines left and is not written
+							out.copy(segments, runStart, runEnd);
+							runStart = runEnd;
+							word = dropFiles(readWord(new Cursor(segments, start)), dropped);
+						}
+					} else if (comparison > 0) {
+						word = next;
+						next = words.hasNext() ? words.next() : null;
+					} else {
+						word = dropFiles(readWord(old), dropped);
+						word.addOccurrences(next);
+						next = words.hasNext() ? words.next() : null;
+					}
+					if (comparison <= 0) {
+						i++;
+						oldText = i < wordCount ? peekText(old) : null;
+					}
+
+					if (word != null && word.getFileCount() > 0) {
+						out.copy(segments, runStart, runEnd);
+						runStart = runEnd;
+						directoryOut.writeLong(out.position());
+						out.writeWord(word, fileIndex);
+						count++;
+					}
+				}
+
+				out.copy(segments, runStart, runEnd);
+				while (out.position() % 8 != 0) {
+					out.write(0);
+				}
+				directoryStart = out.position();
+				directoryOut.flush();
+				Files.copy(offsets.toPath(), out);
+			}
+
+			try (RandomAccessFile header = new RandomAccessFile(temp, "rw")) {
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+				header.writeLong(count);
+				header.writeLong(wordsStart);
+				header.writeLong(directoryStart);
+			}
+		} finally {
+			offsets.delete();
+		}
+
+		// nothing has that name yet, so nothing mapped is replaced
+		Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		close();
+		deleteGenerationsBefore(file, generation);
+		return open(file, new FileCatalog());
+	}
+
+	/**
+	 * The text of the word at in, leaving in where it was.
+	 */
+	private static String peekText(Cursor in) {
+		long start = in.position;
+		String text = in.readString();
+		in.position = start;
+		return text;
+	}
+
+	private static Word dropFiles(Word word, Set<Integer> dropped) {
+		for (int id : dropped) {
+			word.removeFile(id);
+		}
+		return word;
+	}
+
+	/**
+	 * Reads the mapped segments from a position that moves on as it reads.
+	 */
+	private static class Cursor
+	{
+		private final MappedByteBuffer[] segments;
+		long position;
+
+		Cursor(MappedByteBuffer[] segments, long position) {
+			this.segments = segments;
+			this.position = position;
+		}
+
+		byte readByte() {
+			byte b = segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+			position++;
+			return b;
+		}
+
+		byte[] readBytes(int length) {
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; i++) {
+				bytes[i] = readByte();
+			}
+			return bytes;
+		}
+
+		long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (readByte() & 0xFF);
+			}
+			return value;
+		}
+
+		String readString() {
+			return new String(readBytes(readVarint()), StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Unsigned LEB128, as in the repository.
+		 */
+		int readVarint() {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IllegalStateException("Malformed varint in word index");
+		}
+	}
+
+	/**
+	 * Writes a new index file, keeping count of its size past 2 GB.
+	 */
+	private static class Output extends FilterOutputStream
+	{
+		private long position;
+
+		Output(OutputStream out) {
+			super(new BufferedOutputStream(out, 1 << 16));
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			position++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			position += len;
+		}
+
+		long position() {
+			return position;
+		}
+
+		void writeLong(long value) throws IOException {
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				write((int) (value >>> shift));
+			}
+		}
+
+		void writeVarint(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		void writeString(String s) throws IOException {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			write(bytes);
+		}
+
+		void writeWord(Word word, Map<Integer, Integer> fileIndex) throws IOException {
+			writeString(word.getText());
+			writeVarint(word.getFileCount());
+			for (int f = 0; f < word.getFileCount(); f++) {
+				LineList lines = word.getLines(f);
+				writeVarint(fileIndex.get(word.getFileId(f)));
+				writeVarint(lines.size());
+				int previous = 0;
+				for (int i = 0; i < lines.size(); i++) {
+					writeVarint(lines.get(i) - previous);
+					previous = lines.get(i);
+				}
+			}
+		}
+
+		/**
+		 * Copy bytes of the mapped segments as they are.
+		 */
+		void copy(MappedByteBuffer[] segments, long from, long to) throws IOException {
+			if (from == to) {
+				return;
+			}
+			byte[] buffer = new byte[(int) Math.min(to - from, 1 << 16)];
+			while (from < to) {
+				ByteBuffer segment = segments[(int) (from >>> SEGMENT_BITS)].duplicate();
+				segment.position((int) (from & SEGMENT_MASK));
+				int length = (int) Math.min(Math.min(to - from, buffer.length), segment.remaining());
+				segment.get(buffer, 0, length);
+				write(buffer, 0, length);
+				from += length;
+			}
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package appDomain;
+
+import implementations.FileRegistry;
+import implementations.LineList;
+import implementations.Word;
+import utilities.Iterator;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The -pf, -pl and -po reports in forms other programs can read without
+ * parsing the text report: JSON Lines, CSV or a compact binary format. Each
+ * is written in one pass over the words, straight into a ReportWriter.
+ *
+ * What each report holds is the same in every format: -pf the files of each
+ * word, -pl also the lines in each file, -po also how often the word occurs
+ * in total and in each file. Text in these formats is always UTF-8.
+ *
+ * <pre>
+ * jsonl: one object per word and line, e.g. for -po
+ *   {"word":"fox","occurrences":3,"files":[{"file":"a.txt","occurrences":2,"lines":[1,4]},...]}
+ *   and for -pf {"word":"fox","files":["a.txt",...]}
+ * csv:   a header, then one row per word and file, lines separated by spaces:
+ *   word,file            (-pf)
+ *   word,file,lines      (-pl)
+ *   word,file,occurrences,lines (-po)
+ * bin:   (all counts and lengths are unsigned varints)
+ *   magic "WTRP" (4 bytes), format version, report (0 -pf, 1 -pl, 2 -po)
+ *   each word in alphabetical order:
+ *     text as length + UTF-8 bytes
+ *     number of files, then per file:
+ *       file number, counting files in the order they first appear; a
+ *       number not seen before is followed by the name as length + UTF-8
+ *       bytes
+ *       for -pl and -po: line count, then lines as deltas from the previous
+ *       line, the first from 0
+ *   a length of 0 after the last word
+ * </pre>
+ */
+public abstract class ReportFormat
+{
+	/**
+	 * The text report, written by WordTracker itself.
+	 */
+	public static final String TEXT = "text";
+	public static final String JSON_LINES = "jsonl";
+	public static final String CSV = "csv";
+	public static final String BINARY = "bin";
+
+	/**
+	 * How text is encoded in every format but the text report.
+	 */
+	public static final Charset CHARSET = StandardCharsets.UTF_8;
+
+	private static final int BINARY_MAGIC = 0x57545250; // "WTRP"
+	private static final int BINARY_VERSION = 1;
+
+	// what a report holds, from -pf, -pl or -po
+	static final int FILES = 0;
+	static final int LINES = 1;
+	static final int OCCURRENCES = 2;
+
+	protected final ReportWriter out;
+	protected final int report;
+	// each file name as the format writes it, by FileRegistry id, made once
+	private String[] names = new String[16];
+
+	ReportFormat(ReportWriter out, String reportType) {
+		this.out = out;
+		switch (reportType) {
+			case "-pf":
+				report = FILES;
+				break;
+			case "-pl":
+				report = LINES;
+				break;
+			case "-po":
+				report = OCCURRENCES;
+				break;
+			default:
+				throw new IllegalArgumentException("Invalid report type: " + reportType);
+		}
+	}
+
+	/**
+	 * @param format a format name
+	 * @return whether format is one of text, jsonl, csv or bin
+	 */
+	public static boolean isFormat(String format) {
+		return format.equals(TEXT) || format.equals(JSON_LINES) || format.equals(CSV) || format.equals(BINARY);
+	}
+
+	/**
+	 * @param format jsonl, csv or bin
+	 * @param reportType -pf, -pl or -po
+	 * @param out where the report goes, writing UTF-8
+	 * @return the report in that format
+	 * @throws IllegalArgumentException if format or reportType is unknown
+	 */
+	public static ReportFormat forName(String format, String reportType, ReportWriter out) {
+		switch (format) {
+			case JSON_LINES:
+				return new JsonLines(out, reportType);
+			case CSV:
+				return new Csv(out, reportType);
+			case BINARY:
+				return new Binary(out, reportType);
+			default:
+				throw new IllegalArgumentException("Invalid report format: " + format);
+		}
+	}
+
+	/**
+	 * Write the report on the given words.
+	 * @param words the words in alphabetical order
+	 * @throws IOException if the report cannot be written
+	 */
+	public void write(Iterator<Word> words) throws IOException {
+		begin();
+		while (words.hasNext()) {
+			word(words.next());
+		}
+		end();
+	}
+
+	abstract void begin() throws IOException;
+
+	abstract void word(Word word) throws IOException;
+
+	abstract void end() throws IOException;
+
+	/**
+	 * A file name as this format writes it.
+	 */
+	abstract String formatName(String filename);
+
+	/**
+	 * The name of a file as this format writes it, made the first time the
+	 * file comes up and reused for every other word in it.
+	 */
+	String name(int fileId) {
+		if (fileId >= names.length) {
+			names = Arrays.copyOf(names, Math.max(fileId + 1, names.length * 2));
+		}
+		String name = names[fileId];
+		if (name == null) {
+			name = formatName(FileRegistry.nameOf(fileId));
+			names[fileId] = name;
+		}
+		return name;
+	}
+
+	/**
+	 * Line numbers with separator between them.
+	 */
+	void printLines(LineList lines, String separator) throws IOException {
+		for (int i = 0; i < lines.size(); i++) {
+			if (i > 0) {
+				out.print(separator);
+			}
+			out.print(lines.get(i));
+		}
+	}
+
+	/**
+	 * One JSON object per word and line.
+	 */
+	static class JsonLines extends ReportFormat
+	{
+		JsonLines(ReportWriter out, String reportType) {
+			super(out, reportType);
+		}
+
+		@Override
+		void begin() {
+		}
+
+		@Override
+		void word(Word word) throws IOException {
+			out.print("{\"word\":");
+			printString(word.getText());
+			if (report == OCCURRENCES) {
+				out.print(",\"occurrences\":").print(word.getTotalFrequency());
+			}
+			out.print(",\"files\":[");
+			for (int f = 0; f < word.getFileCount(); f++) {
+				if (f > 0) {
+					out.print(",");
+				}
+				if (report == FILES) {
+					out.print(name(word.getFileId(f)));
+					continue;
+				}
+				LineList lines = word.getLines(f);
+				out.print("{\"file\":").print(name(word.getFileId(f)));
+				if (report == OCCURRENCES) {
+					out.print(",\"occurrences\":").print(lines.size());
+				}
+				out.print(",\"lines\":[");
+				printLines(lines, ",");
+				out.print("]}");
+			}
+			out.print("]}\n");
+		}
+
+		@Override
+		void end() {
+		}
+
+		@Override
+		String formatName(String filename) {
+			return quote(filename);
+		}
+
+		/**
+		 * Write a JSON string. Words are letters only, so they are written as
+		 * they are, between quotes, after one look over their chars.
+		 */
+		private void printString(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c < 0x20 || c == '"' || c == '\\') {
+					out.print(quote(s));
+					return;
+				}
+			}
+			out.print("\"").print(s).print("\"");
+		}
+
+		/**
+		 * A JSON string, in quotes, with quotes, backslashes and control chars
+		 * escaped.
+		 */
+		static String quote(String s) {
+			StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				switch (c) {
+					case '"':
+						quoted.append("\\\"");
+						break;
+					case '\\':
+						quoted.append("\\\\");
+						break;
+					case '\n':
+						quoted.append("\\n");
+						break;
+					case '\r':
+						quoted.append("\\r");
+						break;
+					case '\t':
+						quoted.append("\\t");
+						break;
+					default:
+						if (c < 0x20) {
+							quoted.append(String.format("\\u%04x", (int) c));
+						} else {
+							quoted.append(c);
+						}
+				}
+			}
+			return quoted.append('"').toString();
+		}
+	}
+
+	/**
+	 * A header, then one row per word and file, with CRLF line ends as in
+	 * RFC 4180.
+	 */
+	static class Csv extends ReportFormat
+	{
+		Csv(ReportWriter out, String reportType) {
+			super(out, reportType);
+		}
+
+		@Override
+		void begin() throws IOException {
+			switch (report) {
+				case FILES:
+					out.print("word,file\r\n");
+					break;
+				case LINES:
+					out.print("word,file,lines\r\n");
+					break;
+				default:
+					out.print("word,file,occurrences,lines\r\n");
+			}
+		}
+
+		@Override
+		void word(Word word) throws IOException {
+			String text = field(word.getText());
+			for (int f = 0; f < word.getFileCount(); f++) {
+				out.print(text).print(",").print(name(word.getFileId(f)));
+				if (report != FILES) {
+					LineList lines = word.getLines(f);
+					out.print(",");
+					if (report == OCCURRENCES) {
+						out.print(lines.size()).print(",");
+					}
+					printLines(lines, " ");
+				}
+				out.print("\r\n");
+			}
+		}
+
+		@Override
+		void end() {
+		}
+
+		@Override
+		String formatName(String filename) {
+			return field(filename);
+		}
+
+		/**
+		 * A CSV field, in quotes only if it holds a comma, quote or line end.
+		 */
+		static String field(String s) {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c == ',' || c == '"' || c == '\r' || c == '\n') {
+					return "\"" + s.replace("\"", "\"\"") + "\"";
+				}
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * Varints, with each file name written only where it first comes up.
+	 */
+	static class Binary extends ReportFormat
+	{
+		// file number of each FileRegistry id plus one, 0 if not written yet
+		private int[] numbers = new int[16];
+		private int fileCount;
+
+		Binary(ReportWriter out, String reportType) {
+			super(out, reportType);
+		}
+
+		@Override
+		void begin() throws IOException {
+			out.writeByte(BINARY_MAGIC >>> 24).writeByte(BINARY_MAGIC >>> 16)
+					.writeByte(BINARY_MAGIC >>> 8).writeByte(BINARY_MAGIC);
+			out.writeVarint(BINARY_VERSION).writeVarint(report);
+		}
+
+		@Override
+		void word(Word word) throws IOException {
+			writeString(word.getText());
+			out.writeVarint(word.getFileCount());
+			for (int f = 0; f < word.getFileCount(); f++) {
+				writeFile(word.getFileId(f));
+				if (report == FILES) {
+					continue;
+				}
+				LineList lines = word.getLines(f);
+				out.writeVarint(lines.size());
+				int previous = 0;
+				for (int i = 0; i < lines.size(); i++) {
+					out.writeVarint(lines.get(i) - previous);
+					previous = lines.get(i);
+				}
+			}
+		}
+
+		@Override
+		void end() throws IOException {
+			out.writeVarint(0);
+		}
+
+		@Override
+		String formatName(String filename) {
+			return filename;
+		}
+
+		private void writeFile(int fileId) throws IOException {
+			if (fileId >= numbers.length) {
+				numbers = Arrays.copyOf(numbers, Math.max(fileId + 1, numbers.length * 2));
+			}
+			if (numbers[fileId] != 0) {
+				out.writeVarint(numbers[fileId] - 1);
+				return;
+			}
+			numbers[fileId] = ++fileCount;
+			out.writeVarint(fileCount - 1);
+			writeString(name(fileId));
+		}
+
+		/**
+		 * Length and UTF-8 bytes. A word is plain ASCII, one byte per char, so
+		 * it is copied as it is.
+		 */
+		private void writeString(String s) throws IOException {
+			for (int i = 0; i < s.length(); i++) {
+				if (s.charAt(i) >= 0x80) {
+					byte[] bytes = s.getBytes(CHARSET);
+					out.writeVarint(bytes.length).write(bytes);
+					return;
+				}
+			}
+			out.writeVarint(s.length()).print(s);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package appDomain;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes a report into a large byte buffer that is handed to the output in
+ * one call whenever it fills, instead of a PrintWriter that encodes and
+ * passes on every small print.
+ *
+ * Text is encoded with the platform charset unless another is given, as
+ * PrintWriter does, so reports are byte for byte the same. Plain ASCII, which
+ * is all a word can hold, is copied straight into the buffer, and numbers are
+ * written digit by digit without making a String, so writing a report
+ * allocates nothing per line. Binary reports write raw bytes and varints
+ * through the same buffer.
+ */
+public class ReportWriter implements Closeable, Flushable
+{
+	/**
+	 * Bytes gathered before they are written out.
+	 */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final Charset charset;
+	// whether charset writes every ASCII char as that same single byte
+	private final boolean asciiCompatible;
+	private final byte[] lineSeparator;
+	private final byte[] buffer;
+	private int count;
+
+	/**
+	 * @param out where the report goes
+	 */
+	public ReportWriter(OutputStream out) {
+		this(out, Charset.defaultCharset(), BUFFER_SIZE);
+	}
+
+	/**
+	 * @param out where the report goes
+	 * @param charset how text is encoded
+	 */
+	public ReportWriter(OutputStream out, Charset charset) {
+		this(out, charset, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param out where the report goes
+	 * @param charset how text is encoded
+	 * @param bufferSize bytes gathered before they are written out, at least 16
+	 */
+	public ReportWriter(OutputStream out, Charset charset, int bufferSize) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+		}
+		this.out = out;
+		this.charset = charset;
+		this.asciiCompatible = isAsciiCompatible(charset);
+		this.lineSeparator = System.lineSeparator().getBytes(charset);
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Write a string.
+	 * @param s the string
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter print(String s) throws IOException {
+		int length = s.length();
+		if (asciiCompatible) {
+			int i = 0;
+			while (i < length) {
+				if (count == buffer.length) {
+					flushBuffer();
+				}
+				int end = Math.min(length, i + buffer.length - count);
+				for (; i < end; i++) {
+					char c = s.charAt(i);
+					if (c >= 0x80) {
+						// not plain ASCII after all: let the charset encode the rest
+						write(s.substring(i).getBytes(charset));
+						return this;
+					}
+					buffer[count++] = (byte) c;
+				}
+			}
+			return this;
+		}
+		write(s.getBytes(charset));
+		return this;
+	}
+
+	/**
+	 * Write a number in decimal, as PrintWriter.print(int) does.
+	 * @param n the number
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter print(int n) throws IOException {
+		if (!asciiCompatible || n == Integer.MIN_VALUE) {
+			return print(Integer.toString(n));
+		}
+		if (buffer.length - count < 11) {
+			flushBuffer();
+		}
+		if (n < 0) {
+			buffer[count++] = '-';
+			n = -n;
+		}
+		int digits = 1;
+		for (int rest = n / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		int pos = count + digits;
+		count = pos;
+		do {
+			buffer[--pos] = (byte) ('0' + n % 10);
+			n /= 10;
+		} while (n != 0);
+		return this;
+	}
+
+	/**
+	 * End the line, with the platform line separator as PrintWriter does.
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter println() throws IOException {
+		write(lineSeparator);
+		return this;
+	}
+
+	/**
+	 * Write a string and end the line.
+	 * @param s the string
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter println(String s) throws IOException {
+		return print(s).println();
+	}
+
+	/**
+	 * Write one byte as it is.
+	 * @param b the byte, in the low 8 bits
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter writeByte(int b) throws IOException {
+		if (count == buffer.length) {
+			flushBuffer();
+		}
+		buffer[count++] = (byte) b;
+		return this;
+	}
+
+	/**
+	 * Write a number as an unsigned LEB128 varint: seven bits per byte, high
+	 * bit set on all but the last, as the repository does.
+	 * @param value the number
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter writeVarint(int value) throws IOException {
+		if (buffer.length - count < 5) {
+			flushBuffer();
+		}
+		while ((value & ~0x7F) != 0) {
+			buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[count++] = (byte) value;
+		return this;
+	}
+
+	/**
+	 * Write bytes as they are.
+	 * @param bytes the bytes
+	 * @return this writer
+	 * @throws IOException if the output cannot be written
+	 */
+	public ReportWriter write(byte[] bytes) throws IOException {
+		if (bytes.length > buffer.length - count) {
+			flushBuffer();
+			if (bytes.length > buffer.length) {
+				out.write(bytes);
+				return this;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, count, bytes.length);
+		count += bytes.length;
+		return this;
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Write out everything buffered so far.
+	 * @throws IOException if the output cannot be written
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Write out everything buffered and close the output.
+	 * @throws IOException if the output cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static boolean isAsciiCompatible(Charset charset) {
+		byte[] ascii = new byte[0x80];
+		char[] chars = new char[0x80];
+		for (int c = 0; c < 0x80; c++) {
+			ascii[c] = (byte) c;
+			chars[c] = (char) c;
+		}
+		return Arrays.equals(ascii, new String(chars).getBytes(charset));
+	}
+}
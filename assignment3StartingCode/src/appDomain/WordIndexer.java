@@ -0,0 +1,618 @@
+package appDomain;
+
+import implementations.ArrayBSTree;
+import implementations.AVLTree;
+import implementations.BSTree;
+import implementations.ConcurrentBSTree;
+import implementations.FileRegistry;
+import implementations.Word;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Reads text files into the shared word tree.
+ *
+ * Every file is first tokenized into its own local tree, which only the
+ * thread working on that file touches, so files can be read in parallel on a
+ * pool of worker threads. The local trees are then merged into the shared tree
+ * one at a time, always in the order the files were given, which leaves the
+ * shared tree exactly as if the files had been read one after the other.
+ *
+ * In mapped mode files are memory-mapped and tokenized straight from the
+ * bytes instead of being decoded first. A big file is cut into pieces at line
+ * breaks so the pieces can be read in parallel too; each piece counts its
+ * lines from 1 and is moved down by the lines of the pieces before it when it
+ * is merged.
+ */
+public class WordIndexer
+{
+	// mapped files are read in pieces of about this size
+	private static final long CHUNK_SIZE = 16 << 20;
+	// and never more than a mapping can hold
+	private static final long MAX_PIECE_SIZE = Integer.MAX_VALUE;
+
+	private BSTreeADT<Word> wordTree;
+	private final int threads;
+	private final boolean mapped;
+	private long chunkSize = CHUNK_SIZE;
+	private long maxPieceSize = MAX_PIECE_SIZE;
+	private PieceListener listener;
+	// FileRegistry ids of the files the last indexFiles could not read
+	private final Set<Integer> failedFiles = new HashSet<>();
+
+	/**
+	 * Gets the words of every piece of every file, in order, just before they
+	 * are merged into the shared tree.
+	 */
+	public interface PieceListener
+	{
+		/**
+		 * @param words the words of the piece, with their final line numbers;
+		 *        they may be taken over by the shared tree once this returns
+		 */
+		public void indexed(BSTreeADT<Word> words);
+
+		/**
+		 * The pieces of a file given so far were taken out of the shared tree
+		 * again, because a later one could not be read.
+		 *
+		 * @param fileId the FileRegistry id of the file
+		 */
+		public void dropped(int fileId);
+	}
+
+	/**
+	 * @param wordTree the shared tree the files are added to
+	 * @param threads how many files to read at the same time
+	 */
+	public WordIndexer(BSTreeADT<Word> wordTree, int threads) {
+		this(wordTree, threads, false);
+	}
+
+	/**
+	 * @param wordTree the shared tree the files are added to
+	 * @param threads how many files, or pieces of files, to read at the same time
+	 * @param mapped true to memory-map the files; they must be in an encoding
+	 *        where ASCII characters are single bytes, such as UTF-8
+	 */
+	public WordIndexer(BSTreeADT<Word> wordTree, int threads, boolean mapped) {
+		this.wordTree = wordTree;
+		this.threads = Math.max(1, threads);
+		this.mapped = mapped;
+	}
+
+	/**
+	 * The shared tree. Merging may replace it with a rebuilt one, so callers
+	 * should fetch it again after indexing.
+	 *
+	 * @return the shared word tree
+	 */
+	public BSTreeADT<Word> getWordTree() {
+		return wordTree;
+	}
+
+	/**
+	 * @return FileRegistry ids of the files the last indexFiles could not read
+	 */
+	public Set<Integer> getFailedFiles() {
+		return failedFiles;
+	}
+
+	/**
+	 * Change how big the pieces of a mapped file are. Mostly for testing; the
+	 * default is 16 MB.
+	 *
+	 * @param chunkSize the size of a piece in bytes
+	 */
+	public void setChunkSize(long chunkSize) {
+		if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Change the most a piece of a mapped file can hold, which is how far it
+	 * goes on past the chunk size looking for a line break. Only for testing;
+	 * the default is what a mapping can hold, 2 GB.
+	 *
+	 * @param maxPieceSize the most bytes in a piece
+	 */
+	public void setMaxPieceSize(long maxPieceSize) {
+		if (maxPieceSize < 1 || maxPieceSize > MAX_PIECE_SIZE) {
+			throw new IllegalArgumentException("Invalid piece size: " + maxPieceSize);
+		}
+		this.maxPieceSize = maxPieceSize;
+	}
+
+	/**
+	 * @param listener what to tell about every piece read, or null
+	 */
+	public void setPieceListener(PieceListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Read all files and add their words to the shared tree. A file that cannot
+	 * be read is reported and skipped.
+	 *
+	 * @param files the files in the order they should be added
+	 * @return the shared tree with the words from all files
+	 */
+	public BSTreeADT<Word> indexFiles(List<String> files) {
+		// give the files their ids in input order, not in whatever order the
+		// worker threads get to them, so the reports list files the same way
+		for (String filename : files) {
+			FileRegistry.idOf(filename);
+		}
+		failedFiles.clear();
+
+		ExecutorService pool = threads == 1 ? null : Executors.newFixedThreadPool(threads);
+		try {
+			// keep a bounded window of pieces in flight so finished local trees
+			// don't pile up while an earlier, bigger piece is still being read
+			ArrayDeque<Piece> waiting = new ArrayDeque<>();
+			ArrayDeque<Piece> pending = new ArrayDeque<>();
+			int next = 0;
+			int window = pool == null ? 1 : threads * 2;
+			BSTreeADT<Word> tree = wordTree;
+			int lineOffset = 0;
+			boolean failed = false;
+			// some of the current file is in the tree
+			boolean merged = false;
+
+			while (true) {
+				while (pending.size() < window && (!waiting.isEmpty() || next < files.size())) {
+					if (waiting.isEmpty()) {
+						waiting.addAll(split(files.get(next++)));
+					} else {
+						Piece piece = waiting.poll();
+						piece.result = submit(pool, piece.reader);
+						pending.add(piece);
+					}
+				}
+				Piece piece = pending.poll();
+				if (piece == null) {
+					break;
+				}
+
+				if (piece.first) {
+					lineOffset = 0;
+					failed = false;
+					merged = false;
+				}
+				if (failed) {
+					// the rest of a file that could not be read
+					continue;
+				}
+				try {
+					Chunk chunk = piece.result.get();
+					if (lineOffset > 0) {
+						Iterator<Word> words = chunk.words.inorderIterator();
+						while (words.hasNext()) {
+							words.next().shiftLines(lineOffset);
+						}
+					}
+					if (listener != null) {
+						listener.indexed(chunk.words);
+					}
+					tree = merge(tree, chunk.words);
+					lineOffset += chunk.lines;
+					merged = true;
+				} catch (ExecutionException e) {
+					reportError(piece.filename, e.getCause());
+					failedFiles.add(FileRegistry.idOf(piece.filename));
+					failed = true;
+					if (merged) {
+						tree = dropPieces(tree, piece.filename);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					if (merged) {
+						tree = dropPieces(tree, piece.filename);
+					}
+					// this file and the ones after it were not read
+					failedFiles.add(FileRegistry.idOf(piece.filename));
+					for (Piece left : pending) {
+						failedFiles.add(FileRegistry.idOf(left.filename));
+					}
+					for (Piece left : waiting) {
+						failedFiles.add(FileRegistry.idOf(left.filename));
+					}
+					for (String filename : files.subList(next, files.size())) {
+						failedFiles.add(FileRegistry.idOf(filename));
+					}
+					break;
+				}
+			}
+			wordTree = tree;
+			return tree;
+		} finally {
+			if (pool != null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Take the pieces of a file that were merged back out of the tree, so a
+	 * file that could not be read in full is not in it at all.
+	 */
+	private BSTreeADT<Word> dropPieces(BSTreeADT<Word> tree, String filename) {
+		int fileId = FileRegistry.idOf(filename);
+		if (listener != null) {
+			listener.dropped(fileId);
+		}
+		return removeFiles(tree, Collections.singleton(fileId));
+	}
+
+	/**
+	 * Run a piece on the pool, or right away on this thread if there is none.
+	 */
+	private static Future<Chunk> submit(ExecutorService pool, Callable<Chunk> reader) {
+		if (pool != null) {
+			return pool.submit(reader);
+		}
+		FutureTask<Chunk> task = new FutureTask<>(reader);
+		task.run();
+		return task;
+	}
+
+	/**
+	 * Cut a file into the pieces it is read in: the whole file, unless it is
+	 * mapped and bigger than the chunk size. A file that cannot be opened gives
+	 * one piece that fails with the error, so it is reported in order.
+	 */
+	private List<Piece> split(String filename) {
+		List<Piece> pieces = new ArrayList<>();
+		if (!mapped) {
+			pieces.add(new Piece(filename, true, () -> new Chunk(indexFile(filename), 0)));
+			return pieces;
+		}
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long start = 0;
+			do {
+				final long from = start;
+				final long to = size - start <= Math.min(chunkSize, maxPieceSize) ? size
+						: pieceEnd(channel, start + Math.min(chunkSize, maxPieceSize), start + maxPieceSize);
+				pieces.add(new Piece(filename, from == 0, () -> indexMapped(filename, from, to)));
+				start = to;
+			} while (start < size);
+		} catch (IOException | RuntimeException e) {
+			pieces.clear();
+			pieces.add(new Piece(filename, true, () -> {
+				throw e;
+			}));
+		}
+		return pieces;
+	}
+
+	/**
+	 * Where a piece ending at or after position ends: just after the first \n
+	 * from position, or at the end of the file. Cutting there never splits a
+	 * word or a \r\n pair.
+	 *
+	 * A piece has to fit in one mapping, so with no \n before limit it ends
+	 * just after the last byte before limit that is neither a letter nor \r.
+	 * That splits no word or line break either; the next piece goes on with
+	 * the same line. Only a word as long as the whole piece is cut at limit.
+	 */
+	private static long pieceEnd(FileChannel channel, long position, long limit) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long separator = -1;
+		while (position < limit) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '\n') {
+					return position + i + 1;
+				}
+				int lower = b | 0x20;
+				if (b != '\r' && (lower < 'a' || lower > 'z')) {
+					separator = position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return separator > 0 ? separator : limit;
+	}
+
+	/**
+	 * Tokenize part of a file straight from its mapped bytes.
+	 *
+	 * @param filename the file to read
+	 * @param from where the piece starts; the start of a line
+	 * @param to where the piece ends; the start of a line or the end of the file
+	 * @return the words of the piece, with lines counted from the start of the
+	 *         piece
+	 * @throws IOException if the file cannot be read
+	 */
+	static Chunk indexMapped(String filename, long from, long to) throws IOException {
+		BSTreeADT<Word> local = new AVLTree<>();
+		WordTokenizer tokenizer = new WordTokenizer(new OccurrenceAdder(local, filename));
+
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+			tokenizer.feed(bytes, 0, bytes.limit());
+			tokenizer.finish();
+		}
+		return new Chunk(local, tokenizer.getLineNumber() - 1);
+	}
+
+	/**
+	 * A piece of a file, waiting to be read or being read.
+	 */
+	private static class Piece
+	{
+		final String filename;
+		// the first piece of its file, where line numbers start again
+		final boolean first;
+		final Callable<Chunk> reader;
+		Future<Chunk> result;
+
+		Piece(String filename, boolean first, Callable<Chunk> reader) {
+			this.filename = filename;
+			this.first = first;
+			this.reader = reader;
+		}
+	}
+
+	/**
+	 * The words of a piece of a file, and how many line breaks the piece has.
+	 */
+	static class Chunk
+	{
+		final BSTreeADT<Word> words;
+		final int lines;
+
+		Chunk(BSTreeADT<Word> words, int lines) {
+			this.words = words;
+			this.lines = lines;
+		}
+	}
+
+	/**
+	 * Tokenize one file into a tree of its own, not touching the shared tree.
+	 *
+	 * @param filename the file to read
+	 * @return the words of the file with their line numbers
+	 * @throws IOException if the file cannot be read
+	 */
+	public static BSTreeADT<Word> indexFile(String filename) throws IOException {
+		// a file can be sorted (a word list), so the local tree balances itself
+		BSTreeADT<Word> local = new AVLTree<>();
+		WordTokenizer tokenizer = new WordTokenizer(new OccurrenceAdder(local, filename));
+
+		// read in big chunks rather than lines; the tokenizer counts the lines
+		try (Reader reader = new FileReader(filename)) {
+			char[] buffer = new char[1 << 16];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				tokenizer.feed(buffer, 0, read);
+			}
+			tokenizer.finish();
+		}
+		return local;
+	}
+
+	/**
+	 * Add the words of one line to a tree.
+	 *
+	 * @param line the text of the line
+	 * @param filename the file the line is from
+	 * @param lineNumber the number of the line in the file
+	 * @param tree where to add the words
+	 */
+	public static void processLine(String line, String filename, int lineNumber, BSTreeADT<Word> tree) {
+		WordTokenizer tokenizer = new WordTokenizer(new OccurrenceAdder(tree, filename) {
+			@Override
+			public void word(WordTokenizer.Token token, int ignored) {
+				super.word(token, lineNumber);
+			}
+		});
+		tokenizer.feedLine(line);
+	}
+
+	/**
+	 * Adds every word the tokenizer finds to a tree. The word is looked up with
+	 * the tokenizer's own buffer, so a Word is only created the first time its
+	 * text is seen.
+	 */
+	private static class OccurrenceAdder implements WordTokenizer.TokenHandler
+	{
+		private final BSTreeADT<Word> tree;
+		private final int fileId;
+
+		OccurrenceAdder(BSTreeADT<Word> tree, String filename) {
+			this.tree = tree;
+			this.fileId = FileRegistry.idOf(filename);
+		}
+
+		@Override
+		public void word(WordTokenizer.Token token, int lineNumber) {
+			Word word = tree.find(token);
+			if (word == null) {
+				word = tree.addOrGet(new Word(token.toString()));
+			}
+			word.addOccurrence(fileId, lineNumber);
+		}
+	}
+
+	/**
+	 * Drop every line from some files, and the words left without any, e.g.
+	 * before reading files that changed again. The emptied words are unlinked
+	 * from the tree in place, so the rest of it is not rebuilt.
+	 *
+	 * @param tree the shared tree
+	 * @param fileIds FileRegistry ids of the files to drop
+	 * @return the tree, without the files
+	 */
+	public static BSTreeADT<Word> removeFiles(BSTreeADT<Word> tree, Set<Integer> fileIds) {
+		Iterator<Word> words = tree.inorderIterator();
+		while (words.hasNext()) {
+			Word word = words.next();
+			for (int fileId : fileIds) {
+				word.removeFile(fileId);
+			}
+		}
+
+		tree.removeAll(word -> word.getFileCount() == 0);
+		return tree;
+	}
+
+	/**
+	 * Merge the local tree of one file into the shared tree.
+	 *
+	 * Small files are merged word by word, O(m log n). When the file has about
+	 * as many words as the shared tree it is cheaper to walk both trees in
+	 * order side by side and bulk-load the result, O(n + m).
+	 *
+	 * A ConcurrentBSTree is always merged word by word: other threads may hold
+	 * it and add to it while this walks it, and would neither see a rebuilt
+	 * tree nor have their words in it.
+	 *
+	 * @param tree the shared tree
+	 * @param local the words of the file
+	 * @return the shared tree, which is a new tree if it was rebuilt
+	 */
+	static BSTreeADT<Word> merge(BSTreeADT<Word> tree, BSTreeADT<Word> local) {
+		int n = tree.size();
+		int m = local.size();
+
+		if (tree instanceof ConcurrentBSTree || n > 0 && (long) m * (32 - Integer.numberOfLeadingZeros(n)) <= n + m) {
+			// pre-order of the balanced local tree, so a plain shared tree does
+			// not get the new words in sorted order
+			Iterator<Word> words = local.preorderIterator();
+			while (words.hasNext()) {
+				Word word = words.next();
+				Word existing = tree.addOrGet(word);
+				if (existing != word) {
+					existing.addOccurrences(word);
+				}
+			}
+			return tree;
+		}
+
+		Word[] merged = new Word[n + m];
+		int count = 0;
+		Iterator<Word> left = tree.inorderIterator();
+		Iterator<Word> right = local.inorderIterator();
+		Word a = left.hasNext() ? left.next() : null;
+		Word b = right.hasNext() ? right.next() : null;
+
+		while (a != null || b != null) {
+			int comparison = a == null ? 1 : b == null ? -1 : a.compareTo(b);
+			if (comparison < 0) {
+				merged[count++] = a;
+				a = left.hasNext() ? left.next() : null;
+			} else if (comparison > 0) {
+				merged[count++] = b;
+				b = right.hasNext() ? right.next() : null;
+			} else {
+				a.addOccurrences(b);
+				merged[count++] = a;
+				a = left.hasNext() ? left.next() : null;
+				b = right.hasNext() ? right.next() : null;
+			}
+		}
+
+		return rebuild(tree, Arrays.copyOf(merged, count));
+	}
+	
+	/**
+	 * A balanced tree of the same kind as tree, holding sorted.
+	 */
+	private static BSTreeADT<Word> rebuild(BSTreeADT<Word> tree, Word[] sorted) {
+		if (tree instanceof ArrayBSTree) {
+			return ArrayBSTree.fromSorted(sorted);
+		}
+		return tree instanceof AVLTree ? AVLTree.fromSorted(sorted) : BSTree.fromSorted(sorted);
+	}
+
+	private static void reportError(String filename, Throwable e) {
+		if (e instanceof FileNotFoundException || e instanceof NoSuchFileException) {
+			System.err.println("Error: File not found -" + filename);
+		} else {
+			System.err.println("Error reading file: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Turn the command line inputs into a list of files. An input can be a file,
+	 * a directory (every file below it) or a glob such as res/*.txt or
+	 * logs/**.log. Directory and glob matches are sorted so the order, and
+	 * therefore the output, is the same on every run; a file listed twice is
+	 * only read once.
+	 *
+	 * @param inputs the inputs as given on the command line
+	 * @return the files to read, in order
+	 * @throws IOException if a directory cannot be listed
+	 */
+	public static List<String> expandInputs(List<String> inputs) throws IOException {
+		LinkedHashSet<String> files = new LinkedHashSet<>();
+
+		for (String input : inputs) {
+			if (isGlob(input)) {
+				PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+				List<String> matches = walk(globBase(input), matcher);
+				if (matches.isEmpty()) {
+					System.err.println("Error: No files match -" + input);
+				}
+				files.addAll(matches);
+			} else if (Files.isDirectory(Paths.get(input))) {
+				files.addAll(walk(Paths.get(input), null));
+			} else {
+				files.add(input);
+			}
+		}
+		return new ArrayList<>(files);
+	}
+
+	private static boolean isGlob(String input) {
+		return input.indexOf('*') >= 0 || input.indexOf('?') >= 0
+				|| input.indexOf('[') >= 0 || input.indexOf('{') >= 0;
+	}
+
+	/**
+	 * The directory a glob starts in: everything before the first path element
+	 * that contains a wildcard.
+	 */
+	private static Path globBase(String glob) {
+		String[] parts = glob.split("[/\\\\]");
+		StringBuilder base = new StringBuilder();
+		for (int i = 0; i < parts.length - 1 && !isGlob(parts[i]); i++) {
+			base.append(parts[i]).append('/');
+		}
+		return Paths.get(base.toString());
+	}
+
+	private static List<String> walk(Path dir, PathMatcher matcher) throws IOException {
+		List<String> found = new ArrayList<>();
+		if (!dir.toString().isEmpty() && !Files.isDirectory(dir)) {
+			return found;
+		}
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.filter(Files::isRegularFile)
+					.filter(p -> matcher == null || matcher.matches(p))
+					.forEach(p -> found.add(p.toString()));
+		}
+		Collections.sort(found);
+		return found;
+	}
+}
@@ -0,0 +1,633 @@
+package appDomain;
+
+import implementations.AVLTree;
+import implementations.BSTree;
+import implementations.FileRegistry;
+import implementations.LineList;
+import implementations.Word;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the word repository in a compact, versioned binary format.
+ *
+ * Layout (all counts and lengths are unsigned varints):
+ * <pre>
+ *   magic "WTRK" (4 bytes), format version, tree kind (0 plain, 1 AVL),
+ *   snapshot id (8 bytes)
+ *   file count, then each file name as length + UTF-8 bytes, in the order
+ *   the files were first read
+ *   word count, then each word in alphabetical order:
+ *     text as length + UTF-8 bytes
+ *     number of files, then per file:
+ *       index into the file table, line count,
+ *       line numbers as zigzag varint deltas from the previous line
+ *   count of files with known contents, then per file:
+ *     index into the file table, size and modification time (8 bytes each),
+ *     hash as length + bytes
+ * </pre>
+ * Words are stored sorted so loading can build a balanced tree from them in
+ * O(n) instead of adding them one by one. Nothing in the file depends on the layout of the Java classes, so they can change without
+ * breaking existing repositories.
+ *
+ * Next to the snapshot is an append-only log, repository.dat.log, so a run
+ * that reads a few small files only writes what it added instead of the whole
+ * repository:
+ * <pre>
+ *   magic "WTLG" (4 bytes), log version, id of the snapshot it belongs to
+ *   records, each: payload length, payload, CRC-32 of the payload (4 bytes)
+ *   payload: file table, word count and words, and optionally the files
+ *   with known contents, as in the snapshot
+ * </pre>
+ * Loading replays the records on top of the snapshot. Adding occurrences
+ * that are already there changes nothing, so a record replayed twice does no
+ * harm, but a log is only replayed on the snapshot whose id it carries; save
+ * writes a new snapshot with a new id and removes the log. A record cut short
+ * by a crash fails its checksum and is dropped, with everything after it.
+ */
+public class WordRepository
+{
+	private static final int MAGIC = 0x5754524B; // "WTRK"
+	private static final int VERSION = 4;
+
+	private static final int LOG_MAGIC = 0x57544C47; // "WTLG"
+	private static final int LOG_VERSION = 1;
+	// magic, version and snapshot id
+	private static final int LOG_HEADER_SIZE = 4 + 1 + 8;
+	// the id a log gets when there is no snapshot
+	private static final long NO_SNAPSHOT = 0;
+
+	private static final int PLAIN_TREE = 0;
+	private static final int AVL_TREE = 1;
+
+	private WordRepository() {
+	}
+
+	/**
+	 * Write the tree to file as a new snapshot, without any file contents.
+	 *
+	 * @param tree the words to save
+	 * @param file where to save them
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(BSTreeADT<Word> tree, File file) throws IOException {
+		save(tree, new FileCatalog(), file);
+	}
+
+	/**
+	 * Write the tree to file as a new snapshot and drop the log, whose records
+	 * the tree already holds. The data goes to a temporary file first which then
+	 * replaces file in a single move, so a failed save never leaves a half
+	 * written repository, nor none at all.
+	 *
+	 * @param tree the words to save
+	 * @param catalog what is known about the files that were read
+	 * @param file where to save them
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(BSTreeADT<Word> tree, FileCatalog catalog, File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		long id;
+		do {
+			id = new Random().nextLong();
+		} while (id == NO_SNAPSHOT);
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+				out.writeInt(MAGIC);
+				writeVarint(out, VERSION);
+				writeVarint(out, tree instanceof AVLTree ? AVL_TREE : PLAIN_TREE);
+				out.writeLong(id);
+				writeWords(out, tree, catalog, catalog.fileIds());
+			}
+
+			// in one step, so a crash leaves either the old snapshot with its
+			// log or the new one
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			// left only if the save failed
+			temp.delete();
+		}
+		// if this fails the log no longer matches the snapshot id and is ignored
+		logFile(file).delete();
+	}
+
+	/**
+	 * Read a tree written by save, with the log written since replayed on top.
+	 *
+	 * @param file the repository file
+	 * @return the words in the repository
+	 * @throws IOException if the file cannot be read or is not a repository
+	 */
+	public static BSTreeADT<Word> load(File file) throws IOException {
+		return load(file, new FileCatalog());
+	}
+
+	/**
+	 * Read a tree written by save, with the log written since replayed on top.
+	 * If there is only a log, it is replayed on an empty tree.
+	 *
+	 * @param file the repository file
+	 * @param catalog gets what is known about the files that were read
+	 * @return the words in the repository
+	 * @throws IOException if the file cannot be read or is not a repository
+	 */
+	public static BSTreeADT<Word> load(File file, FileCatalog catalog) throws IOException {
+		if (!file.exists()) {
+			return replay(new BSTree<>(), catalog, NO_SNAPSHOT, logFile(file));
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a word repository");
+			}
+			int version = readVarint(in);
+			if (version != VERSION) {
+				throw new IOException("Unsupported repository version " + version);
+			}
+			boolean avl = readVarint(in) == AVL_TREE;
+			long id = in.readLong();
+
+			int[] files = readFileTable(in);
+			Word[] words = readWords(in, files);
+			readFileInfos(in, files, catalog);
+			unknownFiles(files, catalog);
+
+			BSTreeADT<Word> tree = avl ? AVLTree.fromSorted(words) : BSTree.fromSorted(words);
+			return replay(tree, catalog, id, logFile(file));
+		} catch (EOFException e) {
+			throw new IOException(file + " is truncated", e);
+		}
+	}
+
+	/**
+	 * @param file the repository file
+	 * @return true if there is a snapshot or a log to load
+	 */
+	public static boolean exists(File file) {
+		return file.exists() || logFile(file).exists();
+	}
+
+	/**
+	 * @param file the repository file
+	 * @return when the snapshot or the log was last written, whichever was
+	 *         later, or 0 if there is neither
+	 */
+	public static long lastModified(File file) {
+		return Math.max(file.lastModified(), logFile(file).lastModified());
+	}
+
+	/**
+	 * Whether the log has grown big enough that it should be folded into a new
+	 * snapshot with save: once it is half the size of the snapshot, or if there
+	 * is no snapshot yet. Replaying the log then never costs more than about
+	 * half of loading the snapshot itself, while the cost of rewriting the
+	 * snapshot is spread over the runs that grew the log.
+	 *
+	 * @param file the repository file
+	 * @return true if the repository should be saved in full
+	 */
+	public static boolean needsCompaction(File file) {
+		return !file.exists() || logFile(file).length() > file.length() / 2;
+	}
+
+	/**
+	 * Open the log of a repository to add records to it. A log that belongs to
+	 * an older snapshot is started over; a record cut short at its end is cut
+	 * off.
+	 *
+	 * @param file the repository file
+	 * @return the open log
+	 * @throws IOException if the log cannot be opened
+	 */
+	public static Log openLog(File file) throws IOException {
+		long id = snapshotId(file);
+		File log = logFile(file);
+
+		long valid = scanLog(log, id, null);
+		if (valid < 0) {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(log), 1 << 16));
+			out.writeInt(LOG_MAGIC);
+			writeVarint(out, LOG_VERSION);
+			out.writeLong(id);
+			out.flush();
+			return new Log(out);
+		}
+		try (RandomAccessFile truncate = new RandomAccessFile(log, "rw")) {
+			truncate.setLength(valid);
+		}
+		return new Log(new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(log, true), 1 << 16)));
+	}
+
+	/**
+	 * An open repository log. Each piece of a file read by the indexer is
+	 * appended as one record, before it is merged into the word tree.
+	 */
+	public static class Log implements WordIndexer.PieceListener, Closeable
+	{
+		private final DataOutputStream out;
+		private boolean failed;
+
+		private Log(DataOutputStream out) {
+			this.out = out;
+		}
+
+		/**
+		 * Append the words of one piece of a file. If the log cannot be written
+		 * the error is reported and nothing more is written; the caller should
+		 * then save the whole repository instead.
+		 */
+		@Override
+		public void indexed(BSTreeADT<Word> words) {
+			if (failed) {
+				return;
+			}
+			try {
+				ByteArrayOutputStream payload = new ByteArrayOutputStream();
+				try (DataOutputStream record = new DataOutputStream(payload)) {
+					writeWords(record, words, null, Collections.<Integer>emptyList());
+				}
+				append(payload.toByteArray());
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * The log now holds lines the tree does not, which cannot be taken
+		 * back, so nothing more is written and the whole repository has to be
+		 * saved instead.
+		 */
+		@Override
+		public void dropped(int fileId) {
+			failed = true;
+		}
+
+		/**
+		 * Append what is now known about the files that were checked, once they
+		 * have been read, so a file only counts as read once all of it is in
+		 * the log.
+		 *
+		 * @param catalog the catalog the files were checked with
+		 */
+		public void filesChecked(FileCatalog catalog) {
+			if (failed || catalog.updatedFileIds().isEmpty()) {
+				return;
+			}
+			try {
+				append(fileInfoRecord(catalog));
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+
+		private void append(byte[] payload) throws IOException {
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			writeVarint(out, payload.length);
+			out.write(payload);
+			out.writeInt((int) crc.getValue());
+			out.flush();
+		}
+
+		private void fail(IOException e) {
+			System.err.println("Error writing repository log: " + e.getMessage());
+			failed = true;
+		}
+
+		/**
+		 * @return true if a record could not be written, or lines in the log
+		 *         were dropped from the tree
+		 */
+		public boolean hasFailed() {
+			return failed;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	private static File logFile(File file) {
+		return new File(file.getPath() + ".log");
+	}
+
+	/**
+	 * The id of the snapshot in file, NO_SNAPSHOT if there is none.
+	 */
+	private static long snapshotId(File file) throws IOException {
+		if (!file.exists()) {
+			return NO_SNAPSHOT;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64))) {
+			if (in.readInt() != MAGIC || readVarint(in) != VERSION) {
+				return NO_SNAPSHOT;
+			}
+			readVarint(in);
+			return in.readLong();
+		} catch (EOFException e) {
+			return NO_SNAPSHOT;
+		}
+	}
+
+	/**
+	 * Merge every intact record of a log into tree, if the log belongs to the
+	 * snapshot with the given id.
+	 */
+	private static BSTreeADT<Word> replay(BSTreeADT<Word> tree, FileCatalog catalog, long id, File log) throws IOException {
+		List<byte[]> records = new ArrayList<>();
+		scanLog(log, id, records);
+		for (byte[] payload : records) {
+			ByteArrayInputStream bytes = new ByteArrayInputStream(payload);
+			DataInputStream in = new DataInputStream(bytes);
+			int[] files = readFileTable(in);
+			Word[] words = readWords(in, files);
+			if (bytes.available() > 0) {
+				readFileInfos(in, files, catalog);
+			}
+			unknownFiles(files, catalog);
+			tree = WordIndexer.merge(tree, BSTree.fromSorted(words));
+		}
+		return tree;
+	}
+
+	/**
+	 * Find the intact records of a log: those before the end of the log or the
+	 * first record that is cut short or fails its checksum.
+	 *
+	 * @param records where to put the payloads of the records, or null
+	 * @return how many bytes the header and the intact records take, or -1 if
+	 *         there is no log for the snapshot with the given id
+	 */
+	private static long scanLog(File log, long id, List<byte[]> records) throws IOException {
+		long size = log.length();
+		if (!log.exists() || size < LOG_HEADER_SIZE) {
+			return -1;
+		}
+		long position = LOG_HEADER_SIZE;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(log), 1 << 16))) {
+			if (in.readInt() != LOG_MAGIC || readVarint(in) != LOG_VERSION || in.readLong() != id) {
+				return -1;
+			}
+			while (position < size) {
+				int length = readVarint(in);
+				long end = position + varintSize(length) + length + 4;
+				if (length < 0 || end > size) {
+					break;
+				}
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				CRC32 crc = new CRC32();
+				crc.update(payload);
+				if (in.readInt() != (int) crc.getValue()) {
+					break;
+				}
+				if (records != null) {
+					records.add(payload);
+				}
+				position = end;
+			}
+		} catch (EOFException e) {
+			// cut short inside a record; the log is good up to position
+		}
+		return position;
+	}
+
+	/**
+	 * Write the file table, the words of the tree in order, then what is known
+	 * about the given files.
+	 */
+	private static void writeWords(DataOutputStream out, BSTreeADT<Word> tree, FileCatalog catalog,
+			Collection<Integer> infoIds) throws IOException {
+		// string table: every file the words use once, in id order, so the
+		// ids come out in the same order when the table is loaded again
+		int[] fileIndex = new int[FileRegistry.size()];
+		for (int id : infoIds) {
+			fileIndex[id] = 1;
+		}
+		Iterator<Word> words = tree.inorderIterator();
+		while (words.hasNext()) {
+			Word word = words.next();
+			for (int f = 0; f < word.getFileCount(); f++) {
+				fileIndex[word.getFileId(f)] = 1;
+			}
+		}
+		int fileCount = 0;
+		for (int id = 0; id < fileIndex.length; id++) {
+			fileIndex[id] = fileIndex[id] == 0 ? -1 : fileCount++;
+		}
+		writeVarint(out, fileCount);
+		for (int id = 0; id < fileIndex.length; id++) {
+			if (fileIndex[id] >= 0) {
+				writeString(out, FileRegistry.nameOf(id));
+			}
+		}
+
+		writeVarint(out, tree.size());
+		words = tree.inorderIterator();
+		while (words.hasNext()) {
+			writeWord(out, words.next(), fileIndex);
+		}
+
+		writeVarint(out, infoIds.size());
+		for (int id : infoIds) {
+			FileCatalog.FileInfo info = catalog.get(id);
+			writeVarint(out, fileIndex[id]);
+			out.writeLong(info.size);
+			out.writeLong(info.modified);
+			byte[] hash = info.hash == null ? new byte[0] : info.hash;
+			writeVarint(out, hash.length);
+			out.write(hash);
+		}
+	}
+
+	/**
+	 * Read the file table written by writeWords.
+	 *
+	 * @return the FileRegistry id of each file in the table
+	 */
+	private static int[] readFileTable(DataInputStream in) throws IOException {
+		int[] files = new int[readVarint(in)];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = FileRegistry.idOf(readString(in));
+		}
+		return files;
+	}
+
+	/**
+	 * Read the words written by writeWords.
+	 */
+	private static Word[] readWords(DataInputStream in, int[] files) throws IOException {
+		Word[] words = new Word[readVarint(in)];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = readWord(in, files);
+		}
+		return words;
+	}
+
+	/**
+	 * Read what writeWords wrote about the files into the catalog.
+	 */
+	private static void readFileInfos(DataInputStream in, int[] files, FileCatalog catalog) throws IOException {
+		int count = readVarint(in);
+		for (int i = 0; i < count; i++) {
+			int id = files[readVarint(in)];
+			long size = in.readLong();
+			long modified = in.readLong();
+			byte[] hash = new byte[readVarint(in)];
+			in.readFully(hash);
+			catalog.put(id, new FileCatalog.FileInfo(size, modified, hash.length == 0 ? null : hash));
+		}
+	}
+
+	/**
+	 * Files the repository has words from but knows nothing else about were read
+	 * by an older version; they count as changed when they are read again, so
+	 * their old lines are replaced.
+	 */
+	private static void unknownFiles(int[] files, FileCatalog catalog) {
+		for (int id : files) {
+			catalog.addUnknown(id);
+		}
+	}
+
+	/**
+	 * A log record with what is known about the files checked since the
+	 * repository was loaded.
+	 */
+	private static byte[] fileInfoRecord(FileCatalog catalog) throws IOException {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		try (DataOutputStream record = new DataOutputStream(payload)) {
+			writeWords(record, new BSTree<Word>(), catalog, catalog.updatedFileIds());
+		}
+		return payload.toByteArray();
+	}
+
+	/**
+	 * Read a repository written with Java serialization by older versions.
+	 *
+	 * @param file the repository.ser file
+	 * @return the words in the repository
+	 * @throws IOException if the file cannot be read or deserialized
+	 */
+	@SuppressWarnings("unchecked")
+	public static BSTreeADT<Word> loadLegacy(File file) throws IOException {
+		try (ObjectInputStream ois = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			return (BSTreeADT<Word>) ois.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException(file + " is not a word repository", e);
+		}
+	}
+
+	private static void writeWord(DataOutputStream out, Word word, int[] fileIndex) throws IOException {
+		writeString(out, word.getText());
+
+		writeVarint(out, word.getFileCount());
+		for (int f = 0; f < word.getFileCount(); f++) {
+			LineList lines = word.getLines(f);
+			writeVarint(out, fileIndex[word.getFileId(f)]);
+			writeVarint(out, lines.size());
+
+			int previous = 0;
+			for (int i = 0; i < lines.size(); i++) {
+				int line = lines.get(i);
+				writeVarint(out, zigzag(line - previous));
+				previous = line;
+			}
+		}
+	}
+
+	private static Word readWord(DataInputStream in, int[] files) throws IOException {
+		Word word = new Word(readString(in));
+
+		int fileCount = readVarint(in);
+		for (int f = 0; f < fileCount; f++) {
+			int fileId = files[readVarint(in)];
+			int lineCount = readVarint(in);
+
+			LineList lines = new LineList(lineCount);
+			int previous = 0;
+			for (int i = 0; i < lineCount; i++) {
+				previous += unzigzag(readVarint(in));
+				lines.add(previous);
+			}
+			word.setLines(fileId, lines);
+		}
+		return word;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[readVarint(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Unsigned LEB128: seven bits per byte, high bit set on all but the last.
+	 */
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private static int readVarint(DataInputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint in repository");
+	}
+
+	/**
+	 * Lines are kept increasing now, but repositories written by older versions
+	 * can have a file's lines out of order, so deltas are signed.
+	 */
+	private static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
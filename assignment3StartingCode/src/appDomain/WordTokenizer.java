@@ -0,0 +1,196 @@
+package appDomain;
+
+import implementations.Word;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits text into words in a single pass over the characters.
+ *
+ * A word is a run of ASCII letters; everything else separates words. Letters
+ * are lowercased as they are copied into a reusable {@link Token}, so no
+ * strings are created while scanning. This gives the same words as the old
+ * <code>replaceAll("[^a-zA-Z\\s]", " ")</code>, <code>split("\\s+")</code> and
+ * <code>toLowerCase()</code> combination, and the same line numbers as
+ * <code>BufferedReader.readLine()</code>: a line ends at "\n", "\r" or "\r\n".
+ *
+ * Text can be fed as chars or as undecoded bytes, in chunks of any size; a word
+ * cut in half by the end of a chunk is finished off by the next one.
+ */
+public class WordTokenizer
+{
+	/**
+	 * Receives the words found by the tokenizer.
+	 */
+	public interface TokenHandler
+	{
+		/**
+		 * Called once for every word.
+		 *
+		 * @param token the word; only valid until this method returns
+		 * @param lineNumber the line the word is on, starting at 1
+		 */
+		public void word(Token token, int lineNumber);
+	}
+
+	private final Token token = new Token();
+	private final TokenHandler handler;
+	private int lineNumber = 1;
+	private boolean afterCarriageReturn;
+
+	/**
+	 * @param handler receives every word found
+	 */
+	public WordTokenizer(TokenHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * Scan the next chunk of text.
+	 *
+	 * @param chars buffer holding the text
+	 * @param offset where the text starts in the buffer
+	 * @param length how many chars to scan
+	 */
+	public void feed(char[] chars, int offset, int length) {
+		int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			accept(chars[i]);
+		}
+	}
+
+	/**
+	 * Scan the next chunk of text as bytes, without decoding it. The text must be
+	 * in an encoding where ASCII characters are single bytes, such as UTF-8 or
+	 * ISO-8859-1; the bytes of any other character are never letters or line
+	 * breaks there, so they only separate words, as they do when decoded.
+	 *
+	 * @param bytes buffer holding the text, e.g. a mapped file
+	 * @param from index of the first byte to scan
+	 * @param to index after the last byte to scan
+	 */
+	public void feed(ByteBuffer bytes, int from, int to) {
+		for (int i = from; i < to; i++) {
+			accept((char) (bytes.get(i) & 0xFF));
+		}
+	}
+
+	/**
+	 * Scan a whole line, as if it were followed by a line break.
+	 *
+	 * @param line the text of the line
+	 */
+	public void feedLine(CharSequence line) {
+		for (int i = 0, n = line.length(); i < n; i++) {
+			accept(line.charAt(i));
+		}
+		accept('\n');
+	}
+
+	/**
+	 * Hand over the last word if the text did not end with a separator.
+	 */
+	public void finish() {
+		endToken();
+	}
+
+	/**
+	 * @return the line the tokenizer is on, starting at 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Start again at line 1 with nothing pending, discarding a half read word.
+	 */
+	public void reset() {
+		token.length = 0;
+		lineNumber = 1;
+		afterCarriageReturn = false;
+	}
+
+	private void accept(char c) {
+		if (c >= 'a' && c <= 'z') {
+			token.append(c);
+		} else if (c >= 'A' && c <= 'Z') {
+			token.append((char) (c + ('a' - 'A')));
+		} else {
+			endToken();
+			if (c == '\n') {
+				// the \n of a \r\n pair was already counted at the \r
+				if (!afterCarriageReturn) {
+					lineNumber++;
+				}
+			} else if (c == '\r') {
+				lineNumber++;
+			}
+		}
+		afterCarriageReturn = c == '\r';
+	}
+
+	private void endToken() {
+		if (token.length > 0) {
+			handler.word(token, lineNumber);
+			token.length = 0;
+		}
+	}
+
+	/**
+	 * A word found by the tokenizer, as a view over a reusable buffer. It is
+	 * overwritten by the next word, so anything that has to keep it must call
+	 * toString(). It compares to a Word by text, so it can be used to look a word
+	 * up in the tree without creating one.
+	 */
+	public static final class Token implements CharSequence, Comparable<Word>
+	{
+		private char[] chars = new char[32];
+		private int length;
+
+		private void append(char c) {
+			if (length == chars.length) {
+				chars = java.util.Arrays.copyOf(chars, length * 2);
+			}
+			chars[length++] = c;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length) {
+				throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+			}
+			return chars[index];
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().substring(start, end);
+		}
+
+		/**
+		 * Same ordering as String.compareTo on the word text.
+		 */
+		@Override
+		public int compareTo(Word word) {
+			String text = word.getText();
+			int n = Math.min(length, text.length());
+			for (int i = 0; i < n; i++) {
+				int difference = chars[i] - text.charAt(i);
+				if (difference != 0) {
+					return difference;
+				}
+			}
+			return length - text.length();
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, 0, length);
+		}
+	}
+}
@@ -1,196 +1,571 @@
 package appDomain;
 
+import implementations.AVLTree;
 import implementations.BSTree;
+import implementations.FileRegistry;
+import implementations.LineList;
 import implementations.Word;
+import utilities.BSTreeADT;
 import utilities.Iterator;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.*;
 
 /**
  * WordTracker Application
  * Tracks words from text files and generates reports
  * 
- * Usage: java -jar WordTracker.jar <input.txt> -pf/-pl/-po [-f<output.txt>]
+ * Usage: java -jar WordTracker.jar <input...> -pf/-pl/-po [-f<output.txt>] [-o<format>] [-avl] [-w<prefix>] [-t<threads>] [-mmap] [-offheap]
+ * 
+ * Or, to keep the tree in memory between runs:
+ *        java -jar WordTracker.jar -serve[<port>] [-avl] [-s<seconds>]
+ *        java -jar WordTracker.jar -connect[<port>] <input...> -pf/-pl/-po [...]
+ * (see WordTrackerServer)
+ * 
+ * Runs with and without -offheap keep the repository in different files,
+ * repository.idx and repository.dat. Whichever was written last holds the
+ * repository: a run finding the other one newer starts from that one and
+ * converts it, so the two modes can be mixed without losing words.
  */
 
 public class WordTracker
 {
 	private static final long serialVersionUID = 1L;
-	private static final String REPOSITORY_FILE = "repository.ser";
-	private static BSTree<Word> wordTree;
+	private static final String REPOSITORY_FILE = "repository.dat";
+	// written with Java serialization by older versions, converted on first load
+	private static final String LEGACY_REPOSITORY_FILE = "repository.ser";
+	// the repository of -offheap runs, used where it is, memory-mapped; each
+	// update is a new generation of it, repository.idx.1 and so on
+	private static final String INDEX_FILE = "repository.idx";
+	private static BSTreeADT<Word> wordTree;
+	// set when the loaded repository has to be written out in full
+	private static boolean mustSave;
+	private static FileCatalog catalog = new FileCatalog();
+	// set in a server, which keeps the tree between runs and saves it itself
+	private static boolean serving;
+	// where a run says what it is doing; not where a report other programs
+	// read is going
+	private static PrintStream status = System.out;
 	
 	public static void main (String[] args) {
-		if (args.length < 2) {
-			System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf/-pl/-po [-f<output.txt>]");
-			System.out.println(" <input.txt> : Text file to process");
+		if (args.length > 0 && args[0].startsWith(WordTrackerServer.SERVE)) {
+			WordTrackerServer.main(args);
+			return;
+		}
+		if (args.length > 0 && args[0].startsWith(WordTrackerClient.CONNECT)) {
+			WordTrackerClient.main(args);
+			return;
+		}
+		run(args);
+	}
+	
+	/**
+	 * One run: read the inputs into the tree and print the report. The tree is
+	 * loaded from the repository first unless a server already has it.
+	 * 
+	 * @param args the command line
+	 */
+	static void run(String[] args) {
+		int reportIndex = 0;
+		while (reportIndex < args.length && !isReportType(args[reportIndex])) {
+			reportIndex++;
+		}
+		
+		if (reportIndex == 0 || reportIndex == args.length) {
+			System.out.println("Usage: java -jar WordTracker.jar <input...> -pf/-pl/-po [-f<output.txt>] [-o<format>] [-avl] [-w<prefix>] [-t<threads>] [-mmap] [-offheap]");
+			System.out.println(" <input...>  : Text files, directories or globs (e.g. \"res/*.txt\") to process");
 			System.out.println(" -pf         : Print words with files");
 			System.out.println(" -pl         : Print words with files and line numbers");
 			System.out.println(" -po         : Print words with files, lines, and frequency");
 			System.out.println(" -f<output>  : Optional - redirect output to file");
+			System.out.println(" -o<format>  : Optional - report format: text (default), jsonl, csv or bin");
+			System.out.println(" -avl        : Optional - keep the word tree balanced (AVL)");
+			System.out.println(" -w<prefix>  : Optional - only report words starting with prefix");
+			System.out.println(" -t<threads> : Optional - files read in parallel (default: one per core)");
+			System.out.println(" -mmap       : Optional - memory-map the files (UTF-8 or ASCII text); big files are read in parallel pieces");
+			System.out.println(" -offheap    : Optional - keep the repository in " + INDEX_FILE + "[.<n>], memory-mapped, instead of on the heap");
+			System.out.println("              (" + INDEX_FILE + " and " + REPOSITORY_FILE + ": the one written last is used, and converted to the other)");
+			System.out.println("Or keep the tree in memory between runs:");
+			System.out.println(" java -jar WordTracker.jar -serve[<port>] [-avl] [-s<seconds>]");
+			System.out.println(" java -jar WordTracker.jar -connect[<port>] <input...> -pf/-pl/-po [...]");
 			return;
 		}
 		
-		String inputFile = args[0];
-		String reportType = args[1];
+		List<String> inputs = Arrays.asList(args).subList(0, reportIndex);
+		String reportType = args[reportIndex];
 		String outputFile = null;
+		String format = ReportFormat.TEXT;
+		boolean balanced = false;
+		String prefix = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean mapped = false;
+		boolean offHeap = false;
 		
-		if (args.length >= 3 && args[2].startsWith("-f")) {
-			outputFile = args[2].substring(2); 
+		for (int i = reportIndex + 1; i < args.length; i++) {
+			if (args[i].startsWith("-f")) {
+				outputFile = args[i].substring(2);
+			} else if (args[i].equals("-offheap")) {
+				// before -o, which it starts with
+				offHeap = true;
+			} else if (args[i].startsWith("-o")) {
+				format = args[i].substring(2);
+				if (!ReportFormat.isFormat(format)) {
+					System.err.println("Invalid report format: " + format);
+					System.err.println("Use text, jsonl, csv or bin");
+					return;
+				}
+			} else if (args[i].equals("-avl")) {
+				balanced = true;
+			} else if (args[i].equals("-mmap")) {
+				mapped = true;
+			} else if (args[i].startsWith("-w")) {
+				prefix = args[i].substring(2).toLowerCase();
+			} else if (args[i].startsWith("-t")) {
+				try {
+					threads = Integer.parseInt(args[i].substring(2));
+				} catch (NumberFormatException e) {
+					System.err.println("Invalid thread count: " + args[i].substring(2));
+					return;
+				}
+			}
 		}
 		
-		wordTree = loadRepository();
+		status = outputFile == null && !format.equals(ReportFormat.TEXT) ? System.err : System.out;
 		
-		System.out.println("Processing file: "+ inputFile);
+		List<String> files;
+		try {
+			files = WordIndexer.expandInputs(inputs);
+		} catch (IOException e) {
+			System.err.println("Error listing input files: " + e.getMessage());
+			return;
+		}
+		
+		if (offHeap) {
+			runOffHeap(files, threads, mapped, reportType, format, outputFile, prefix);
+			return;
+		}
+		
+		if (wordTree == null) {
+			wordTree = loadRepository(balanced, catalog);
+		}
+		Set<Integer> changed = new HashSet<>();
+		files = filesToRead(files, catalog, changed, threads);
+		if (!changed.isEmpty()) {
+			wordTree = WordIndexer.removeFiles(wordTree, changed);
+			// the log can only add lines, not remove them
+			mustSave = true;
+		}
 		
-		processFile(inputFile);
+		WordIndexer indexer = new WordIndexer(wordTree, threads, mapped);
+		WordRepository.Log log = openLog();
+		indexer.setPieceListener(log);
+		wordTree = indexer.indexFiles(files);
+		markRead(files, indexer, catalog);
+		status.println("File processed. Total unique word in tree: " + wordTree.size());
 		
-		saveRepository();
+		saveRepository(log);
 		
-		generateReport(reportType, outputFile);
+		generateReport(reportType, format, outputFile, prefix, reportWords(prefix), prefix == null ? 0 : countWords(prefix));
 		
-		System.out.println("\nWordTracker completed successfully!");
+		status.println("\nWordTracker completed successfully!");
 	}
 	
 	/**
-	 * Load existing word tree from repository.ser
+	 * A run with the repository in the memory-mapped index file rather than in
+	 * the word tree. Only the words of the files read in this run are held on
+	 * the heap; they are then merged with the index into a new index file, and
+	 * the report is read from that. A repository.dat written since the index
+	 * was, by a run without -offheap, is converted first, as is one with no
+	 * index yet.
+	 */
+	private static void runOffHeap(List<String> files, int threads, boolean mapped, String reportType, String format,
+			String outputFile, String prefix) {
+		File indexFile = new File(INDEX_FILE);
+		File repoFile = new File(REPOSITORY_FILE);
+		FileCatalog indexCatalog = new FileCatalog();
+		MappedWordIndex index;
+		try {
+			if (WordRepository.exists(repoFile)
+					&& WordRepository.lastModified(repoFile) > MappedWordIndex.lastModified(indexFile)) {
+				if (MappedWordIndex.exists(indexFile)) {
+					status.println(REPOSITORY_FILE + " is newer than " + INDEX_FILE + "; converting it again");
+				}
+				MappedWordIndex.save(WordRepository.load(repoFile, indexCatalog), indexCatalog, indexFile);
+				status.println("Converted " + REPOSITORY_FILE + " to " + INDEX_FILE);
+				indexCatalog = new FileCatalog();
+			}
+			index = MappedWordIndex.open(indexFile, indexCatalog);
+		} catch (IOException e) {
+			System.err.println("Error opening word index: " + e.getMessage());
+			return;
+		}
+		status.println("Word index opened. Words in index: " + index.size());
+		
+		Set<Integer> changed = new HashSet<>();
+		files = filesToRead(files, indexCatalog, changed, threads);
+		if (!files.isEmpty()) {
+			WordIndexer indexer = new WordIndexer(new AVLTree<>(), threads, mapped);
+			BSTreeADT<Word> added = indexer.indexFiles(files);
+			markRead(files, indexer, indexCatalog);
+			try {
+				index = index.update(indexFile, added, changed, indexCatalog);
+				status.println("File processed. Total unique word in index: " + index.size());
+			} catch (IOException e) {
+				System.err.println("Error updating word index: " + e.getMessage());
+				return;
+			}
+		}
+		
+		generateReport(reportType, format, outputFile, prefix, index.words(prefix), prefix == null ? 0 : index.count(prefix));
+		index.close();
+		
+		status.println("\nWordTracker completed successfully!");
+	}
+	
+	/**
+	 * Leave out the files that have not changed since they were read, and say
+	 * what will be read. The old lines of the files that changed have to be
+	 * dropped before they are read again.
+	 * 
+	 * @param files the input files
+	 * @param catalog what is known about the files already read
+	 * @param changed gets the FileRegistry ids of the files that changed
+	 * @param threads how many files are read at the same time
+	 * @return the files that have to be read
+	 */
+	private static List<String> filesToRead(List<String> files, FileCatalog catalog, Set<Integer> changed, int threads) {
+		List<String> toRead = new ArrayList<>();
+		int unchanged = 0;
+		
+		for (String filename : files) {
+			try {
+				FileCatalog.Status status = catalog.check(filename);
+				if (status == FileCatalog.Status.UNCHANGED) {
+					unchanged++;
+					continue;
+				}
+				if (status == FileCatalog.Status.CHANGED) {
+					changed.add(FileRegistry.idOf(filename));
+				}
+			} catch (IOException e) {
+				// the indexer reports the file as it tries to read it
+			}
+			toRead.add(filename);
+		}
+		
+		if (unchanged > 0) {
+			status.println("Skipped " + unchanged + " unchanged file(s)");
+		}
+		if (!changed.isEmpty()) {
+			status.println("Replacing " + changed.size() + " changed file(s)");
+		}
+		
+		if (toRead.size() == 1) {
+			status.println("Processing file: "+ toRead.get(0));
+		} else if (!toRead.isEmpty()) {
+			status.println("Processing " + toRead.size() + " files with " + threads + " threads");
+		}
+		return toRead;
+	}
+	
+	/**
+	 * Tell the catalog which of the files were read, so a file that could not
+	 * be is not skipped as unchanged next time.
+	 * 
+	 * @param files the files given to the indexer
+	 * @param indexer the indexer that read them
+	 * @param catalog the catalog the files were checked with
+	 */
+	private static void markRead(List<String> files, WordIndexer indexer, FileCatalog catalog) {
+		for (String filename : files) {
+			if (indexer.getFailedFiles().contains(FileRegistry.idOf(filename))) {
+				catalog.markFailed(filename);
+			} else {
+				catalog.markRead(filename);
+			}
+		}
+	}
+	
+	private static boolean isReportType(String arg) {
+		return arg.equals("-pf") || arg.equals("-pl") || arg.equals("-po");
+	}
+	
+	/**
+	 * Load existing word tree from the repository, converting a repository.ser
+	 * left by older versions if that is all there is. An index written by an
+	 * -offheap run since the repository was is loaded instead, and the
+	 * repository is written again from it.
 	 * 
+	 * @param balanced true if the tree should be an AVL tree; an existing plain
+	 *                 tree is converted
+	 * @param catalog gets what is known about the files already read
 	 */
-	private static BSTree<Word> loadRepository() {
+	private static BSTreeADT<Word> loadRepository(boolean balanced, FileCatalog catalog) {
 		File repoFile = new File(REPOSITORY_FILE);
+		File legacyFile = new File(LEGACY_REPOSITORY_FILE);
+		File indexFile = new File(INDEX_FILE);
+		
+		if (MappedWordIndex.lastModified(indexFile) > WordRepository.lastModified(repoFile)) {
+			status.println("Loading " + INDEX_FILE + ", which is newer than " + REPOSITORY_FILE + "...");
+			// the catalog only gets the index's files once it has all of them
+			FileCatalog indexCatalog = new FileCatalog();
+			try (MappedWordIndex index = MappedWordIndex.open(indexFile, indexCatalog)) {
+				BSTreeADT<Word> tree = balanced ? AVLTree.fromSorted(index.words(null)) : BSTree.fromSorted(index.words(null));
+				for (int id : indexCatalog.fileIds()) {
+					catalog.put(id, indexCatalog.get(id));
+				}
+				status.println("Index loaded successfully. Words in tree: " + tree.size());
+				mustSave = true;
+				return tree;
+			} catch (IOException e) {
+				System.err.println("Error loading word index: " + e.getMessage());
+			}
+		}
 		
-		if (!repoFile.exists()) {
-			System.out.println("No exisiting repository found. Creating new word tree, ");
-			return new BSTree<>(); 
+		if (!WordRepository.exists(repoFile) && !legacyFile.exists()) {
+			status.println("No exisiting repository found. Creating new word tree, ");
+			return newTree(balanced); 
 		}
 		
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(repoFile))) {
-			System.out.println("Loading existing repository...");
-			BSTree<Word> tree = (BSTree<Word>) ois.readObject();
-			System.out.println("Repository loaded successfully. Words in tree: " + tree.size());
+		try {
+			BSTreeADT<Word> tree;
+			status.println("Loading existing repository...");
+			if (WordRepository.exists(repoFile)) {
+				tree = WordRepository.load(repoFile, catalog);
+			} else {
+				tree = WordRepository.loadLegacy(legacyFile);
+				Iterator<Word> words = tree.inorderIterator();
+				while (words.hasNext()) {
+					Word word = words.next();
+					for (int f = 0; f < word.getFileCount(); f++) {
+						catalog.addUnknown(word.getFileId(f));
+					}
+				}
+				WordRepository.save(tree, catalog, repoFile);
+				status.println("Converted " + LEGACY_REPOSITORY_FILE + " to " + REPOSITORY_FILE);
+			}
+			status.println("Repository loaded successfully. Words in tree: " + tree.size());
+			
+			if (balanced && !(tree instanceof AVLTree)) {
+				status.println("Repository converted to a balanced tree.");
+				mustSave = true;
+				return AVLTree.fromSorted(tree.inorderIterator());
+			}
 			return tree;
 		} catch (Exception e) {
 			System.err.println("Error loading repository: " + e.getMessage());
-			System.out.println("Creating new word tree.");
-			return new BSTree<>();
+			status.println("Creating new word tree.");
+			mustSave = true;
+			return newTree(balanced);
 		}
 	}
+	
+	private static BSTreeADT<Word> newTree(boolean balanced) {
+		return balanced ? new AVLTree<>() : new BSTree<>();
+	}
+	
 	/**
-	 * Save word tree to repository.ser
+	 * Load the repository for a server, which keeps the tree for every run after.
 	 * 
+	 * @param balanced true if the tree should be an AVL tree
 	 */
-	private static void saveRepository() {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(REPOSITORY_FILE))) {
-			oos.writeObject(wordTree);
-			System.out.println("Repository saved successfully.");
-		} catch (IOException e) {
-			System.out.println("Error saving repository: " +e.getMessage());
-		}
+	static void startServing(boolean balanced) {
+		serving = true;
+		wordTree = loadRepository(balanced, catalog);
 	}
 	
-	private static void processFile(String filename) {
-		try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-			String line;
-			int lineNumber = 1;
-			
-			while ((line = reader.readLine()) !=null) {
-				processLine(line, filename, lineNumber);
-				lineNumber++;
+	/**
+	 * Let the FileRegistry forget the files the repository does not refer to,
+	 * e.g. ones given to a server that could not be read or were only read
+	 * with -offheap, so a server does not keep every name it was ever sent.
+	 * Finding the files in use walks the whole tree, so that is only done
+	 * once there are as many unused names as files in the repository.
+	 * 
+	 * @return how many names were forgotten
+	 */
+	static int trimFileRegistry() {
+		int known = catalog.fileIds().size();
+		if (FileRegistry.nameCount() < 2 * known + 64) {
+			return 0;
+		}
+		Set<Integer> inUse = new HashSet<>(catalog.fileIds());
+		Iterator<Word> words = wordTree.inorderIterator();
+		while (words.hasNext()) {
+			Word word = words.next();
+			for (int f = 0; f < word.getFileCount(); f++) {
+				inUse.add(word.getFileId(f));
 			}
-			
-			System.out.println("File processed. Total unique word in tree: " + wordTree.size());
-		} catch (FileNotFoundException e) {
-			System.err.println("Error: File not found -" + filename);
+		}
+		return FileRegistry.retainAll(inUse);
+	}
+	
+	/**
+	 * Write the whole tree to the repository if a run has left it to the server.
+	 * 
+	 * @return true if it was written
+	 * @throws IOException if it cannot be written; it is tried again next time
+	 */
+	static boolean saveIfNeeded() throws IOException {
+		if (!mustSave) {
+			return false;
+		}
+		WordRepository.save(wordTree, catalog, new File(REPOSITORY_FILE));
+		mustSave = false;
+		return true;
+	}
+	
+	/**
+	 * Open the repository log, which gets the words of every file as it is read.
+	 * 
+	 * @return the log, or null if it cannot be opened
+	 */
+	private static WordRepository.Log openLog() {
+		if (mustSave) {
+			return null;
+		}
+		try {
+			return WordRepository.openLog(new File(REPOSITORY_FILE));
 		} catch (IOException e) {
-			System.err.println("Error reading file: " + e.getMessage());
+			System.err.println("Error opening repository log: " + e.getMessage());
+			return null;
 		}
 	}
-	private static void processLine(String line, String filename, int lineNumber) {
-		String cleanLine = line.replaceAll("[^a-zA-Z\\s]", " ");
-		String[] words = cleanLine.trim().split("\\s+");
-		
-		for (String wordText : words) {
-			if (wordText.isEmpty()) {
-				continue;
-			}
-			
-			wordText =  wordText.toLowerCase();
-			
-			Word searchWord = new Word(wordText);
-			
-			Word existingWord = null;
-			Iterator<Word> iterator = wordTree.inorderIterator();
-			
-			while (iterator.hasNext()) {
-				Word w = iterator.next();
-				if (w.getText().equals(wordText)) {
-					existingWord = w;
-					break;
-				}
+	
+	/**
+	 * Save word tree to the repository. Usually the log already holds what this
+	 * run added; the whole tree is only written when the log has grown too big
+	 * or could not be written.
+	 * 
+	 * In a server the full write is left to saveIfNeeded, and the log is not
+	 * used again until it has happened.
+	 * 
+	 * @param log the log the files were written to, or null
+	 */
+	private static void saveRepository(WordRepository.Log log) {
+		File repoFile = new File(REPOSITORY_FILE);
+		if (log != null) {
+			log.filesChecked(catalog);
+		}
+		boolean logged = log != null && !log.hasFailed();
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				logged = false;
 			}
-			
-			if (existingWord != null) {
-				existingWord.addOccurrence(filename, lineNumber);
+		}
+		
+		try {
+			boolean whole = !logged || WordRepository.needsCompaction(repoFile);
+			if (whole && serving) {
+				mustSave = true;
+				status.println("Repository will be saved by the server.");
+			} else if (whole) {
+				WordRepository.save(wordTree, catalog, repoFile);
+				status.println("Repository saved successfully.");
 			} else {
-				Word newWord = new Word(wordText);
-				newWord.addOccurrence(filename, lineNumber);
-				wordTree.add(newWord);
+				status.println("Repository log updated successfully.");
 			}
+		} catch (IOException e) {
+			status.println("Error saving repository: " +e.getMessage());
+		}
+	}
+	
+	/**
+	 * Words the report covers: the whole tree, or only the words starting with
+	 * prefix. All such words sort between the prefix itself and the prefix
+	 * followed by the highest char, so this is a range query on the tree.
+	 * 
+	 * @param prefix the prefix to match, or null for every word
+	 * @return the matching words in alphabetical order
+	 */
+	private static Iterator<Word> reportWords(String prefix) {
+		if (prefix == null) {
+			return wordTree.inorderIterator();
 		}
+		return wordTree.rangeIterator(new Word(prefix), new Word(prefix + Character.MAX_VALUE));
+	}
+	
+	/**
+	 * Count of the words starting with prefix, without walking them.
+	 * 
+	 * @param prefix the prefix to match
+	 * @return number of words in the tree starting with prefix
+	 */
+	private static int countWords(String prefix) {
+		return wordTree.countRange(new Word(prefix), new Word(prefix + Character.MAX_VALUE));
 	}
-	private static void generateReport(String reportType, String outputFile) {
-		PrintWriter writer = null;
+	
+	/**
+	 * @param words the words to report on, in alphabetical order
+	 * @param matching how many words start with prefix, if there is one
+	 */
+	private static void generateReport(String reportType, String format, String outputFile, String prefix,
+			Iterator<Word> words, long matching) {
+		ReportWriter writer = null;
+		boolean text = format.equals(ReportFormat.TEXT);
+		Charset charset = text ? Charset.defaultCharset() : ReportFormat.CHARSET;
 		
 		try {
 			if (outputFile !=null) {
-				writer = new PrintWriter(new FileWriter(outputFile));
-				System.out.println("Report will be written to: " + outputFile);
+				writer = new ReportWriter(new FileOutputStream(outputFile), charset);
+				status.println("Report will be written to: " + outputFile);
 			} else {
-				writer = new PrintWriter(System.out);
+				writer = new ReportWriter(System.out, charset);
 			}
 			
-			switch (reportType) {
-				case "-pf":
-					generateFileReport(writer);
-					break;
-				case "-pl":
-					generateLineReport(writer);
-					break;
-				case "-po":
-					generateOccurrenceReport(writer);
-					break;
-				default:
-					System.err.println("Inavlid report type:" + reportType);
-					System.err.println("Use -pf, -pl, -po");
-					return;
+			if (prefix != null) {
+				status.println("Words starting with \"" + prefix + "\": " + matching);
+			}
+			
+			if (!text) {
+				ReportFormat.forName(format, reportType, writer).write(words);
+			} else {
+				switch (reportType) {
+					case "-pf":
+						generateFileReport(writer, words);
+						break;
+					case "-pl":
+						generateLineReport(writer, words);
+						break;
+					case "-po":
+						generateOccurrenceReport(writer, words);
+						break;
+					default:
+						System.err.println("Inavlid report type:" + reportType);
+						System.err.println("Use -pf, -pl, -po");
+						return;
+				}
 			}
 			
 			writer.flush();
 			
 			if (outputFile !=null) {
-				System.out.println("Report generated successfully in " + outputFile);
+				status.println("Report generated successfully in " + outputFile);
 			}
 		} catch (IOException e) {
 			System.err.println("Error generating report: " + e.getMessage());
 		} finally {
 			if (writer != null && outputFile != null) {
-				writer.close();
+				try {
+					writer.close();
+				} catch (IOException e) {
+					System.err.println("Error closing report: " + e.getMessage());
+				}
 			}
 		}
 	}
 	
-	private static void generateFileReport(PrintWriter writer) {
+	private static void generateFileReport(ReportWriter writer, Iterator<Word> iterator) throws IOException {
 		writer.println("===WORD REPORT: Files===\n");
 		
-		Iterator<Word> iterator = wordTree.inorderIterator();
-		
 		while (iterator.hasNext()) {
 			Word word = iterator.next();
-			writer.println("Word: " + word.getText());
+			writer.print("Word: ").println(word.getText());
 			
-			Set<String> files = word.getFileOccurrences().keySet();
-			for (String file: files) {
-				writer.println(" - " + file);
+			for (int f = 0; f < word.getFileCount(); f++) {
+				writer.print(" - ").println(FileRegistry.nameOf(word.getFileId(f)));
 			}
 			writer.println();
 		}
@@ -199,33 +574,22 @@ public class WordTracker
 	 * Report: Words with file name only (-pf)
 	 */
 	
-	private static void generateLineReport(PrintWriter writer) {
+	private static void generateLineReport(ReportWriter writer, Iterator<Word> iterator) throws IOException {
 		writer.println("===WORD REPORT: Files, Lines, Occurrences ===\n");
 		
-		Iterator<Word> iterator = wordTree.inorderIterator();
-		
 		while (iterator.hasNext()) {
 			Word word = iterator.next();
-			writer.println("Word: " + word.getText());
-			writer.println(" Total Occurrences: " + word.getTotalFrequency());
+			writer.print("Word: ").println(word.getText());
+			writer.print(" Total Occurrences: ").print(word.getTotalFrequency()).println();
 			
-			HashMap<String, ArrayList<Integer>> occurrences = word.getFileOccurrences();
-			
-			for (Map.Entry<String, ArrayList<Integer>> entry : occurrences.entrySet()) {
-				String filename = entry.getKey();
-				ArrayList<Integer> lines = entry.getValue();
+			for (int f = 0; f < word.getFileCount(); f++) {
+				LineList lines = word.getLines(f);
 				
-				writer.print("  -" + filename + " (");
-				writer.print(lines.size() + "occurrence");
+				writer.print("  -").print(FileRegistry.nameOf(word.getFileId(f))).print(" (");
+				writer.print(lines.size()).print("occurrence");
 				if (lines.size() != 1) writer.print("s");
 				writer.print(", lines: ");
-				
-				for (int i = 0; i < lines.size(); i++) {
-					writer.print(lines.get(i));
-					if (i < lines.size() -1) {
-						writer.print(", ");
-					}
-				}
+				printLines(writer, lines);
 				writer.println(")");
 			}
 			writer.println();
@@ -236,36 +600,37 @@ public class WordTracker
 	 * Report: Words with files, lines and frequency (-po)
 	 */
 	
-	private static void generateOccurrenceReport(PrintWriter writer) {
+	private static void generateOccurrenceReport(ReportWriter writer, Iterator<Word> iterator) throws IOException {
 		writer.println("===WORD REPORT: Files, Lines, and Occurrences ===\n");
 		
-		Iterator<Word> iterator = wordTree.inorderIterator();
-		
 		while (iterator.hasNext()) {
 			Word word = iterator.next();
-			writer.println("Word: " +word.getText());
-			writer.println("  Total Occurrences: " + word.getTotalFrequency());
+			writer.print("Word: ").println(word.getText());
+			writer.print("  Total Occurrences: ").print(word.getTotalFrequency()).println();
 			
-			HashMap<String, ArrayList<Integer>> occurrences = word.getFileOccurrences();
-			
-			for (Map.Entry<String, ArrayList<Integer>> entry : occurrences.entrySet()) {
-				String filename = entry.getKey();
-				ArrayList<Integer> lines = entry.getValue();
+			for (int f = 0; f < word.getFileCount(); f++) {
+				LineList lines = word.getLines(f);
 				
-				writer.print("  - " + filename + " (");
-				writer.print(lines.size() + " occurrence ");
+				writer.print("  - ").print(FileRegistry.nameOf(word.getFileId(f))).print(" (");
+				writer.print(lines.size()).print(" occurrence ");
 				if (lines.size() !=1) writer.print("s");
 				writer.print(", lines: ");
-				
-				for (int i = 0; i < lines.size(); i++) {
-					writer.print(lines.get(i));
-					if (i <lines.size() -1) {
-						writer.print(", ");
-					}
-				}
+				printLines(writer, lines);
 				writer.println(")");
 			}
 			writer.println();
 		}
 	}
+	
+	/**
+	 * Line numbers separated by commas, e.g. "3, 7, 12".
+	 */
+	private static void printLines(ReportWriter writer, LineList lines) throws IOException {
+		for (int i = 0; i < lines.size(); i++) {
+			if (i > 0) {
+				writer.print(", ");
+			}
+			writer.print(lines.get(i));
+		}
+	}
 }
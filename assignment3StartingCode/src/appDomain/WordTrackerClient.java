@@ -0,0 +1,76 @@
+package appDomain;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Sends a WordTracker command to a WordTrackerServer and prints what the run
+ * printed, what went to standard output to System.out and the rest to
+ * System.err, as without a server. This loads none of the tree, so it starts in the time it takes to
+ * start the JVM. It proves it may send commands with the token the server
+ * left in the user's home directory.
+ *
+ * Usage: java -jar WordTracker.jar -connect[<port>] <input...> -pf/-pl/-po [-f<output.txt>] [...]
+ *        java -jar WordTracker.jar -connect[<port>] -save
+ *        java -jar WordTracker.jar -connect[<port>] -stop
+ */
+public class WordTrackerClient
+{
+	public static final String CONNECT = "-connect";
+
+	public static void main(String[] args) {
+		int port = WordTrackerServer.DEFAULT_PORT;
+		try {
+			if (args[0].length() > CONNECT.length()) {
+				port = Integer.parseInt(args[0].substring(CONNECT.length()));
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid port: " + args[0].substring(CONNECT.length()));
+			return;
+		}
+
+		String token;
+		try {
+			token = new String(Files.readAllBytes(WordTrackerServer.tokenFile(port).toPath()), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			System.err.println("No WordTracker server of yours on port " + port + ": start one with java -jar WordTracker.jar -serve");
+			return;
+		}
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			out.write(token);
+			out.write('\n');
+			out.write(new File("").getAbsolutePath());
+			out.write('\n');
+			for (int i = 1; i < args.length; i++) {
+				out.write(args[i]);
+				out.write('\n');
+			}
+			out.write('\n');
+			out.flush();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			byte[] buffer = new byte[1 << 16];
+			for (int stream = in.read(); stream >= 0; stream = in.read()) {
+				int length = in.readInt();
+				if (length > buffer.length) {
+					buffer = new byte[length];
+				}
+				in.readFully(buffer, 0, length);
+				// flushed at once, so the two keep their order on a terminal
+				PrintStream to = stream == WordTrackerServer.STDERR ? System.err : System.out;
+				to.write(buffer, 0, length);
+				to.flush();
+			}
+		} catch (ConnectException e) {
+			System.err.println("No WordTracker server on port " + port + ": start one with java -jar WordTracker.jar -serve");
+		} catch (IOException e) {
+			System.err.println("Error talking to server: " + e.getMessage());
+		}
+	}
+}
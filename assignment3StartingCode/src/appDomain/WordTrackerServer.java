@@ -0,0 +1,327 @@
+package appDomain;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the word tree in memory and runs WordTracker commands sent to it, so a
+ * run does not pay for starting a JVM and loading the repository each time.
+ *
+ * Usage: java -jar WordTracker.jar -serve[<port>] [-avl] [-s<seconds>]
+ *  <port>       : port on the loopback address (default 7451)
+ *  -avl         : keep the word tree balanced (AVL)
+ *  -s<seconds>  : how often to write the whole repository when it is due (default 60)
+ *
+ * The repository is the one in the directory the server is started in. What a
+ * run adds goes to the repository log straight away, as it does without a
+ * server; when the whole repository has to be written, that waits until the
+ * next save interval, a -save command or the server stopping, so runs stay
+ * quick. Don't run WordTracker without the server on the same repository
+ * while it is running. After a run the server forgets the names of files
+ * the repository does not hold, such as ones that could not be read, once
+ * there are enough of them (see WordTracker.trimFileRegistry).
+ *
+ * Commands are run one at a time. A client sends, in UTF-8, the server's
+ * token, its working directory and then the command line arguments, one to a
+ * line, ending with an empty line; the server sends back what the run printed
+ * and closes the connection. Relative paths are taken from the client's
+ * directory. What the run prints to System.out and to System.err is sent
+ * apart, so a report on standard output is not mixed with what the run says
+ * it is doing: it comes back in chunks, each a byte saying which stream it is
+ * (STDOUT or STDERR), its length as a 4-byte int and then its bytes.
+ *
+ * A run reads and writes files as the user who started the server, so only
+ * that user may send commands: the server makes up a random token when it
+ * starts and writes it to a file in their home directory only they can read,
+ * and a command without it is refused. A client that sends nothing for a
+ * while is dropped, so it cannot hold up the others or the saves. The
+ * arguments are those of WordTracker without a server, -avl aside, or one of
+ *  -save        : write the whole repository now if it is due
+ *  -stop        : write it if due and stop the server
+ * WordTrackerClient is such a client.
+ */
+public class WordTrackerServer
+{
+	public static final String SERVE = "-serve";
+	public static final int DEFAULT_PORT = 7451;
+	public static final String SAVE = "-save";
+	public static final String STOP = "-stop";
+	private static final int DEFAULT_SAVE_SECONDS = 60;
+	// how long a client may take to send its command
+	private static final int READ_TIMEOUT_MILLIS = 10000;
+	// which stream a chunk sent back is for
+	static final int STDOUT = 1;
+	static final int STDERR = 2;
+
+	// what a client has to send first
+	private static String token;
+
+	// taken while a command runs or the repository is written, so a shutdown
+	// waits for the command
+	private static final Object lock = new Object();
+
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		boolean balanced = false;
+		int saveSeconds = DEFAULT_SAVE_SECONDS;
+		try {
+			if (args[0].length() > SERVE.length()) {
+				port = Integer.parseInt(args[0].substring(SERVE.length()));
+			}
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("-avl")) {
+					balanced = true;
+				} else if (args[i].startsWith("-s")) {
+					saveSeconds = Integer.parseInt(args[i].substring(2));
+				}
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid number: " + e.getMessage());
+			System.out.println("Usage: java -jar WordTracker.jar -serve[<port>] [-avl] [-s<seconds>]");
+			return;
+		}
+
+		try (ServerSocket server = new ServerSocket()) {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			token = writeToken(port);
+			WordTracker.startServing(balanced);
+			final int boundPort = port;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				save();
+				tokenFile(boundPort).delete();
+			}));
+			System.out.println("WordTracker server listening on port " + port);
+			serve(server, saveSeconds * 1000L);
+		} catch (IOException e) {
+			System.err.println("Error starting server: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * The file a server keeps its token in, in the user's home directory.
+	 *
+	 * @param port the port of the server
+	 * @return the token file
+	 */
+	static File tokenFile(int port) {
+		return new File(System.getProperty("user.home"), ".wordtracker-" + port + ".token");
+	}
+
+	/**
+	 * Make up a new token and write it to a new token file only the user can
+	 * read.
+	 */
+	private static String writeToken(int port) throws IOException {
+		byte[] bytes = new byte[32];
+		new SecureRandom().nextBytes(bytes);
+		StringBuilder hex = new StringBuilder();
+		for (byte b : bytes) {
+			hex.append(String.format("%02x", b));
+		}
+
+		Path path = tokenFile(port).toPath();
+		Files.deleteIfExists(path);
+		try {
+			Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			// not POSIX, e.g. Windows, where the home directory is the user's own
+			Files.createFile(path);
+		}
+		Files.write(path, hex.toString().getBytes(StandardCharsets.UTF_8));
+		return hex.toString();
+	}
+
+	/**
+	 * Run commands until one says stop. Waiting for a connection gives up at
+	 * each save interval to write the repository if it is due.
+	 */
+	private static void serve(ServerSocket server, long saveMillis) throws IOException {
+		server.setSoTimeout((int) Math.max(1, Math.min(saveMillis, Integer.MAX_VALUE)));
+		long lastSave = System.currentTimeMillis();
+		boolean stopping = false;
+
+		while (!stopping) {
+			if (System.currentTimeMillis() - lastSave >= saveMillis) {
+				save();
+				lastSave = System.currentTimeMillis();
+			}
+			try (Socket client = server.accept()) {
+				client.setSoTimeout(READ_TIMEOUT_MILLIS);
+				stopping = handle(client);
+			} catch (SocketTimeoutException e) {
+				// time to check whether the repository is due
+			} catch (IOException e) {
+				System.err.println("Error talking to client: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Read one command and run it with System.out and System.err going to the
+	 * client, each in chunks of its own.
+	 *
+	 * @return true if the command was to stop
+	 */
+	private static boolean handle(Socket client) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+		String sent;
+		String dir;
+		List<String> args = new ArrayList<>();
+		try {
+			sent = in.readLine();
+			dir = in.readLine();
+			for (String line = in.readLine(); line != null && !line.isEmpty(); line = in.readLine()) {
+				args.add(line);
+			}
+		} catch (SocketTimeoutException e) {
+			System.err.println("Client sent no command in time");
+			return false;
+		}
+		if (dir == null) {
+			return false;
+		}
+
+		DataOutputStream connection = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+		PrintStream out = new PrintStream(new BufferedOutputStream(new ChunkStream(connection, STDOUT), 1 << 16), false);
+		// flushed at each line, so status lines keep their place among the
+		// report's chunks
+		PrintStream err = new PrintStream(new ChunkStream(connection, STDERR), true);
+		if (!MessageDigest.isEqual(sent.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+			err.println("Error: wrong token; only the user who started the server can send it commands");
+			connection.flush();
+			return false;
+		}
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		synchronized (lock) {
+			System.setOut(out);
+			System.setErr(err);
+			try {
+				if (args.size() == 1 && (args.get(0).equals(SAVE) || args.get(0).equals(STOP))) {
+					System.out.println(WordTracker.saveIfNeeded() ? "Repository saved successfully." : "Repository is up to date.");
+					if (args.get(0).equals(STOP)) {
+						System.out.println("WordTracker server stopped.");
+						return true;
+					}
+				} else {
+					WordTracker.run(resolve(args, dir));
+					WordTracker.trimFileRegistry();
+				}
+			} catch (IOException e) {
+				System.err.println("Error saving repository: " + e.getMessage());
+			} catch (RuntimeException e) {
+				// a broken command must not take the tree down with it
+				System.err.println("Error: " + e);
+			} finally {
+				out.flush();
+				err.flush();
+				connection.flush();
+				System.setOut(stdout);
+				System.setErr(stderr);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sends what is written to it to the client as chunks of one stream, each
+	 * the stream, the length and the bytes. Both streams of a run share the
+	 * connection, so a chunk is written whole before the other stream's next.
+	 */
+	private static class ChunkStream extends OutputStream {
+		private final DataOutputStream connection;
+		private final int stream;
+
+		ChunkStream(DataOutputStream connection, int stream) {
+			this.connection = connection;
+			this.stream = stream;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return;
+			}
+			synchronized (connection) {
+				connection.writeByte(stream);
+				connection.writeInt(len);
+				connection.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			connection.flush();
+		}
+	}
+
+	/**
+	 * Write the repository if it is due.
+	 */
+	private static void save() {
+		synchronized (lock) {
+			try {
+				if (WordTracker.saveIfNeeded()) {
+					System.out.println("Repository saved successfully.");
+				}
+			} catch (IOException e) {
+				System.err.println("Error saving repository: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * The arguments with the input files and -f output taken relative to the
+	 * client's directory. A path under the server's directory is kept relative
+	 * to it, so the file gets the same name it would get without a server.
+	 */
+	private static String[] resolve(List<String> args, String clientDir) {
+		String[] result = new String[args.size()];
+		boolean inputs = true;
+		for (int i = 0; i < result.length; i++) {
+			String arg = args.get(i);
+			if (arg.equals("-pf") || arg.equals("-pl") || arg.equals("-po")) {
+				inputs = false;
+			}
+			if (inputs) {
+				result[i] = resolve(arg, clientDir);
+			} else if (arg.startsWith("-f")) {
+				result[i] = "-f" + resolve(arg.substring(2), clientDir);
+			} else {
+				result[i] = arg;
+			}
+		}
+		return result;
+	}
+
+	private static String resolve(String path, String clientDir) {
+		if (path.isEmpty() || new File(path).isAbsolute()) {
+			return path;
+		}
+		String serverDir = new File("").getAbsolutePath();
+		if (clientDir.equals(serverDir)) {
+			return path;
+		}
+		if (clientDir.startsWith(serverDir + File.separator)) {
+			return clientDir.substring(serverDir.length() + 1) + File.separator + path;
+		}
+		return clientDir + File.separator + path;
+	}
+}
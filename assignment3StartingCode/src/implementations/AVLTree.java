@@ -0,0 +1,142 @@
+package implementations;
+
+/**
+ * Self-balancing BST (AVL). Works exactly like BSTree but after every add or
+ * remove it walks back up to the root and rotates wherever the heights of two
+ * sibling subtrees differ by more than one, so the height stays O(log n) even
+ * when the input arrives sorted. Rotations keep the subtree sizes that BSTree
+ * stores in each node correct, so rank and select stay O(log n) here.
+ *
+ * @param <E> Comparable element type
+ */
+public class AVLTree<E extends Comparable<? super E>> extends BSTree<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * default constructor
+     */
+    public AVLTree() {
+        super();
+    }
+
+    /**
+     * Constructor with initial element
+     * @param element the initial element to add
+     */
+    public AVLTree(E element) {
+        super(element);
+    }
+
+    /**
+     * Builds an AVL tree from elements that are already sorted, in O(n). The
+     * result is as balanced as it gets, so no rotations are needed.
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if the array or any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> AVLTree<E> fromSorted(E[] sorted) {
+        AVLTree<E> tree = new AVLTree<>();
+        tree.build(sorted, sorted.length);
+        return tree;
+    }
+
+    /**
+     * Builds an AVL tree from an iteration in strictly increasing order in O(n).
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> AVLTree<E> fromSorted(utilities.Iterator<E> sorted) {
+        AVLTree<E> tree = new AVLTree<>();
+        Object[] elements = toArray(sorted);
+        tree.build(elements, elements.length);
+        return tree;
+    }
+
+    /**
+     * Walk from node up to the root fixing heights and sizes and rotating out
+     * any imbalance.
+     */
+    @Override
+    protected void rebalance(BSTreeNode<E> node) {
+        while (node != null) {
+            node.update();
+            int balance = balanceOf(node);
+
+            if (balance > 1) {
+                // left heavy - left-right case needs the child rotated first
+                if (balanceOf(node.getLeft()) < 0) {
+                    rotateLeft(node.getLeft());
+                }
+                node = rotateRight(node);
+            } else if (balance < -1) {
+                // right heavy - right-left case needs the child rotated first
+                if (balanceOf(node.getRight()) > 0) {
+                    rotateRight(node.getRight());
+                }
+                node = rotateLeft(node);
+            }
+
+            node = node.getParent();
+        }
+    }
+
+    /**
+     * Rotates node down to the left, its right child takes its place.
+     * @param node the subtree root
+     * @return the new subtree root
+     */
+    private BSTreeNode<E> rotateLeft(BSTreeNode<E> node) {
+        BSTreeNode<E> pivot = node.getRight();
+
+        replaceChild(node.getParent(), node, pivot);
+
+        node.setRight(pivot.getLeft());
+        if (pivot.getLeft() != null) {
+            pivot.getLeft().setParent(node);
+        }
+        pivot.setLeft(node);
+        node.setParent(pivot);
+
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    /**
+     * Rotates node down to the right, its left child takes its place.
+     * @param node the subtree root
+     * @return the new subtree root
+     */
+    private BSTreeNode<E> rotateRight(BSTreeNode<E> node) {
+        BSTreeNode<E> pivot = node.getLeft();
+
+        replaceChild(node.getParent(), node, pivot);
+
+        node.setLeft(pivot.getRight());
+        if (pivot.getRight() != null) {
+            pivot.getRight().setParent(node);
+        }
+        pivot.setRight(node);
+        node.setParent(pivot);
+
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private static int heightOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.getHeight();
+    }
+
+    private static int balanceOf(BSTreeNode<?> node) {
+        return heightOf(node.getLeft()) - heightOf(node.getRight());
+    }
+}
@@ -0,0 +1,1097 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import utilities.BSTreeADT;
+
+/**
+ * AVL tree kept in parallel arrays instead of node objects. A node is an index
+ * ("slot") into elements, left, right, parent, height and size; links are
+ * slot numbers, NIL for none. The tree is one element array and five primitive
+ * arrays however big it gets, about 21 bytes a node against 40 for a
+ * BSTreeNode, and the garbage collector only has to trace the element array -
+ * the int arrays hold no references. A tree built from sorted input has its
+ * slots in in-order order, so walking it reads the arrays front to back.
+ *
+ * Removed slots go on a free list, chained through right, and are handed out
+ * again before the arrays grow.
+ *
+ * There are no node objects to hand out, so getRoot and search return a new
+ * BSTreeNode holding the element and the height and size of its subtree but
+ * linked to nothing, and removeMin and removeMax a new leaf holding the
+ * removed element. Changing them does not change the tree.
+ *
+ * Balancing works exactly like AVLTree, so the same adds and removes give the
+ * same shape.
+ *
+ * @param <E> Comparable element type
+ */
+public class ArrayBSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int NIL = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    // the largest array most VMs will allocate
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private transient Object[] elements;
+    private transient int[] left;
+    private transient int[] right;
+    private transient int[] parent;
+    // an AVL tree of 2^31 nodes is less than 50 high
+    private transient byte[] height;
+    private transient int[] size;
+
+    private transient int root = NIL;
+    // number of elements in the tree
+    private transient int count;
+    // slots below this have been handed out at least once
+    private transient int used;
+    // first slot of the free list, NIL if it is empty
+    private transient int free = NIL;
+    // bumped on every structural change so iterators can fail fast
+    private transient int modCount;
+
+    /**
+     * default constructor
+     */
+    public ArrayBSTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor with room for a number of elements before the arrays grow
+     * @param initialCapacity how many elements to make room for
+     * @throws IllegalArgumentException if initialCapacity is negative
+     */
+    public ArrayBSTree(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Constructor with initial element
+     * @param element the initial element to add
+     */
+    public ArrayBSTree(E element) {
+        this(DEFAULT_CAPACITY);
+        if (element == null) {
+            throw new NullPointerException("Cannot create tree with null element");
+        }
+        add(element);
+    }
+
+    /**
+     * Builds a balanced tree from elements that are already sorted, in O(n),
+     * with element i in slot i.
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if the array or any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> ArrayBSTree<E> fromSorted(E[] sorted) {
+        ArrayBSTree<E> tree = new ArrayBSTree<>(0);
+        tree.build(sorted, sorted.length);
+        return tree;
+    }
+
+    /**
+     * Builds a balanced tree from an iteration in strictly increasing order,
+     * for example the in-order iterator of another tree, in O(n).
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> ArrayBSTree<E> fromSorted(utilities.Iterator<E> sorted) {
+        ArrayBSTree<E> tree = new ArrayBSTree<>(0);
+        Object[] elements = BSTree.toArray(sorted);
+        tree.build(elements, elements.length);
+        return tree;
+    }
+
+    private void allocate(int capacity) {
+        elements = new Object[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        parent = new int[capacity];
+        height = new byte[capacity];
+        size = new int[capacity];
+        root = NIL;
+        count = 0;
+        used = 0;
+        free = NIL;
+    }
+
+    /**
+     * Replaces the contents of this tree with a balanced tree made of the first
+     * n elements, each in the slot of its index. As in BSTree.build, each range
+     * becomes a subtree rooted at its middle element, and a subtree of s nodes
+     * has height bitLength(s).
+     *
+     * @param sorted the elements in strictly increasing order
+     * @param n how many of them to use
+     */
+    @SuppressWarnings("unchecked")
+    private void build(Object[] sorted, int n) {
+        for (int i = 0; i < n; i++) {
+            if (sorted[i] == null) {
+                throw new NullPointerException("Cannot add null entry");
+            }
+            if (i > 0 && ((E) sorted[i - 1]).compareTo((E) sorted[i]) >= 0) {
+                throw new IllegalArgumentException("Elements are not in strictly increasing order at index " + i);
+            }
+        }
+
+        allocate(Math.max(n, DEFAULT_CAPACITY));
+        System.arraycopy(sorted, 0, elements, 0, n);
+        used = n;
+        count = n;
+        modCount++;
+        // only as deep as the tree, which is balanced
+        root = buildRange(0, n - 1, NIL);
+    }
+
+    private int buildRange(int lo, int hi, int parentSlot) {
+        if (lo > hi) {
+            return NIL;
+        }
+        int mid = (lo + hi) >>> 1;
+        parent[mid] = parentSlot;
+        left[mid] = buildRange(lo, mid - 1, mid);
+        right[mid] = buildRange(mid + 1, hi, mid);
+        size[mid] = hi - lo + 1;
+        height[mid] = (byte) (32 - Integer.numberOfLeadingZeros(hi - lo + 1));
+        return mid;
+    }
+
+    /**
+     * Takes a slot off the free list, or the next unused one, growing the
+     * arrays by half when they are full, and makes it a leaf holding element.
+     */
+    private int newSlot(E element, int parentSlot) {
+        int slot;
+        if (free != NIL) {
+            slot = free;
+            free = right[slot];
+        } else {
+            if (used == elements.length) {
+                grow();
+            }
+            slot = used++;
+        }
+        elements[slot] = element;
+        left[slot] = NIL;
+        right[slot] = NIL;
+        parent[slot] = parentSlot;
+        height[slot] = 1;
+        size[slot] = 1;
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = elements.length;
+        if (capacity == MAX_CAPACITY) {
+            throw new OutOfMemoryError("Tree cannot hold more than " + MAX_CAPACITY + " elements");
+        }
+        int newCapacity = (int) Math.min(MAX_CAPACITY, Math.max(DEFAULT_CAPACITY, capacity + (long) (capacity >> 1)));
+        elements = Arrays.copyOf(elements, newCapacity);
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        parent = Arrays.copyOf(parent, newCapacity);
+        height = Arrays.copyOf(height, newCapacity);
+        size = Arrays.copyOf(size, newCapacity);
+    }
+
+    /**
+     * Puts a slot that is no longer in the tree on the free list, dropping
+     * its element so it can be collected.
+     */
+    private void freeSlot(int slot) {
+        elements[slot] = null;
+        left[slot] = NIL;
+        parent[slot] = NIL;
+        right[slot] = free;
+        free = slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int slot) {
+        return (E) elements[slot];
+    }
+
+    private int heightOf(int slot) {
+        return slot == NIL ? 0 : height[slot];
+    }
+
+    private int sizeOf(int slot) {
+        return slot == NIL ? 0 : size[slot];
+    }
+
+    private int balanceOf(int slot) {
+        return heightOf(left[slot]) - heightOf(right[slot]);
+    }
+
+    /**
+     * Recomputes the height and size of a slot from its children.
+     */
+    private void update(int slot) {
+        height[slot] = (byte) (1 + Math.max(heightOf(left[slot]), heightOf(right[slot])));
+        size[slot] = 1 + sizeOf(left[slot]) + sizeOf(right[slot]);
+    }
+
+    /**
+     * A BSTreeNode holding the element of slot and the height and size of its
+     * subtree, not linked to anything.
+     */
+    private BSTreeNode<E> nodeAt(int slot) {
+        BSTreeNode<E> node = new BSTreeNode<>(elementAt(slot));
+        node.setHeight(height[slot]);
+        node.setSize(size[slot]);
+        return node;
+    }
+
+    /**
+     * Add: add a new element into the tree.
+     */
+    @Override
+    public boolean add(E newEntry) throws NullPointerException {
+        if (newEntry == null) {
+            throw new NullPointerException("Cannot add null entry");
+        }
+        return insert(newEntry) == NIL;
+    }
+
+    /**
+     * Find-or-insert: returns the stored element equal to entry, or adds entry
+     * and returns it. Only walks down the tree once.
+     */
+    @Override
+    public E addOrGet(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot add null entry");
+        }
+        int existing = insert(entry);
+        return existing == NIL ? entry : elementAt(existing);
+    }
+
+    /**
+     * Walks down from the root to where newEntry belongs and hangs a new slot
+     * there, unless an equal element is already stored.
+     *
+     * @param newEntry the element to insert, not null
+     * @return the slot holding the equal element, or NIL if newEntry was added
+     */
+    private int insert(E newEntry) {
+        if (root == NIL) {
+            root = newSlot(newEntry, NIL);
+            count++;
+            modCount++;
+            return NIL;
+        }
+
+        int current = root;
+        while (true) {
+            int comparison = newEntry.compareTo(elementAt(current));
+
+            if (comparison == 0) {
+                return current;
+            }
+
+            int next = comparison < 0 ? left[current] : right[current];
+            if (next == NIL) {
+                int slot = newSlot(newEntry, current);
+                if (comparison < 0) {
+                    left[current] = slot;
+                } else {
+                    right[current] = slot;
+                }
+                count++;
+                modCount++;
+                rebalance(slot);
+                return NIL;
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * Size: returns the number of elements.
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * isEmpty: returns true if tree is empty.
+     */
+    @Override
+    public boolean isEmpty() {
+        return root == NIL;
+    }
+
+    /**
+     * Search: a detached copy of the node holding the element equal to entry.
+     */
+    @Override
+    public BSTreeNode<E> search(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+        int slot = findSlot(entry);
+        return slot == NIL ? null : nodeAt(slot);
+    }
+
+    /**
+     * Search with any key that compares against the elements, e.g. a reusable
+     * buffer, so nothing has to be allocated just to look an element up.
+     */
+    @Override
+    public E find(Comparable<? super E> key) throws NullPointerException {
+        if (key == null) {
+            throw new NullPointerException("Cannot search for null key");
+        }
+        int slot = findSlot(key);
+        return slot == NIL ? null : elementAt(slot);
+    }
+
+    private int findSlot(Comparable<? super E> key) {
+        int current = root;
+        while (current != NIL) {
+            int comparison = key.compareTo(elementAt(current));
+
+            if (comparison == 0) {
+                return current;
+            }
+            current = comparison < 0 ? left[current] : right[current];
+        }
+        return NIL;
+    }
+
+    /**
+     * Contains: check if element exists.
+     */
+    @Override
+    public boolean contains(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+        return findSlot(entry) != NIL;
+    }
+
+    /**
+     * Height of the tree, stored with the root, so O(1).
+     */
+    @Override
+    public int getHeight() {
+        return heightOf(root);
+    }
+
+    /**
+     * Select: element at position k of the in-order walk, one path down the
+     * tree using the subtree sizes.
+     */
+    @Override
+    public E select(int k) throws IndexOutOfBoundsException {
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of range for size " + count);
+        }
+
+        int current = root;
+        while (true) {
+            int leftSize = sizeOf(left[current]);
+
+            if (k < leftSize) {
+                current = left[current];
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                current = right[current];
+            } else {
+                return elementAt(current);
+            }
+        }
+    }
+
+    /**
+     * Rank: number of elements smaller than entry, one path down the tree.
+     */
+    @Override
+    public int rank(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot rank null entry");
+        }
+
+        int rank = 0;
+        int current = root;
+        while (current != NIL) {
+            int comparison = entry.compareTo(elementAt(current));
+
+            if (comparison < 0) {
+                current = left[current];
+            } else if (comparison > 0) {
+                rank += sizeOf(left[current]) + 1;
+                current = right[current];
+            } else {
+                return rank + sizeOf(left[current]);
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Floor: largest element less than or equal to entry.
+     */
+    @Override
+    public E floor(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        int best = NIL;
+        int current = root;
+        while (current != NIL) {
+            int comparison = entry.compareTo(elementAt(current));
+
+            if (comparison == 0) {
+                return elementAt(current);
+            } else if (comparison < 0) {
+                current = left[current];
+            } else {
+                best = current;
+                current = right[current];
+            }
+        }
+        return best == NIL ? null : elementAt(best);
+    }
+
+    /**
+     * Ceiling: smallest element greater than or equal to entry.
+     */
+    @Override
+    public E ceiling(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        int best = NIL;
+        int current = root;
+        while (current != NIL) {
+            int comparison = entry.compareTo(elementAt(current));
+
+            if (comparison == 0) {
+                return elementAt(current);
+            } else if (comparison > 0) {
+                current = right[current];
+            } else {
+                best = current;
+                current = left[current];
+            }
+        }
+        return best == NIL ? null : elementAt(best);
+    }
+
+    /**
+     * Count range: elements between lo and hi inclusive, from two ranks.
+     */
+    @Override
+    public int countRange(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        int upTo = rank(hi) + (contains(hi) ? 1 : 0);
+        return upTo - rank(lo);
+    }
+
+    /**
+     * Range iterator: in-order walk from the ceiling of lo that stops after hi.
+     */
+    @Override
+    public utilities.Iterator<E> rangeIterator(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        return new RangeIterator(lo, hi);
+    }
+
+    /**
+     * Remove the smallest element.
+     * @return a new leaf holding it, or null if the tree is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMin() {
+        return removeEnd(true);
+    }
+
+    /**
+     * Remove the largest element.
+     * @return a new leaf holding it, or null if the tree is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMax() {
+        return removeEnd(false);
+    }
+
+    private BSTreeNode<E> removeEnd(boolean smallest) {
+        if (root == NIL) {
+            return null;
+        }
+        int end = endSlot(smallest);
+        BSTreeNode<E> node = new BSTreeNode<>(elementAt(end));
+        unlink(end);
+        return node;
+    }
+
+    /**
+     * The leftmost (smallest) or rightmost slot, the tree not being empty.
+     */
+    private int endSlot(boolean smallest) {
+        int end = root;
+        int[] toward = smallest ? left : right;
+        while (toward[end] != NIL) {
+            end = toward[end];
+        }
+        return end;
+    }
+
+    /**
+     * Remove: unlinks the slot holding the element equal to entry, one path
+     * down the tree and one back up.
+     */
+    @Override
+    public boolean remove(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot remove null entry");
+        }
+        int slot = findSlot(entry);
+        if (slot == NIL) {
+            return false;
+        }
+        unlink(slot);
+        return true;
+    }
+
+    /**
+     * Remove all: collects the matching slots in one in-order walk, then
+     * unlinks them one by one, O(n + k log n) for k removals. Unlinking
+     * relinks slots rather than moving elements between them, so the slots
+     * still to be unlinked keep their own elements.
+     */
+    @Override
+    public int removeAll(Predicate<? super E> filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("Cannot remove with null filter");
+        }
+
+        int[] matches = new int[count];
+        int found = 0;
+        InorderIterator slots = new InorderIterator();
+        while (slots.hasNext()) {
+            int slot = slots.advance();
+            if (filter.test(elementAt(slot))) {
+                matches[found++] = slot;
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            unlink(matches[i]);
+        }
+        return found;
+    }
+
+    /**
+     * Drain ascending: the whole tree, smallest first.
+     */
+    @Override
+    public int drainAscending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, true);
+    }
+
+    /**
+     * Drain ascending: pop the k smallest.
+     */
+    @Override
+    public int drainAscending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, true);
+    }
+
+    /**
+     * Drain descending: the whole tree, largest first.
+     */
+    @Override
+    public int drainDescending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, false);
+    }
+
+    /**
+     * Drain descending: pop the k largest.
+     */
+    @Override
+    public int drainDescending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, false);
+    }
+
+    /**
+     * Walks the tree in order handing elements to the sink, then cuts off the
+     * ones handed over in the finally block, as BSTree does.
+     */
+    private int drain(int limit, Consumer<? super E> sink, boolean ascending) {
+        if (sink == null) {
+            throw new NullPointerException("Cannot drain into null sink");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Cannot drain " + limit + " elements");
+        }
+
+        int target = Math.min(limit, count);
+        int expectedModCount = modCount;
+        int[] toward = ascending ? left : right;
+        int[] away = ascending ? right : left;
+        // the in-order stack is never deeper than the tree
+        int[] stack = new int[getHeight()];
+        int depth = 0;
+        for (int slot = root; slot != NIL; slot = toward[slot]) {
+            stack[depth++] = slot;
+        }
+        int drained = 0;
+        try {
+            while (drained < target && !Thread.currentThread().isInterrupted()) {
+                int slot = stack[--depth];
+                for (int next = away[slot]; next != NIL; next = toward[next]) {
+                    stack[depth++] = next;
+                }
+                sink.accept(elementAt(slot));
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                drained++;
+            }
+        } finally {
+            if (modCount == expectedModCount) {
+                cut(drained, ascending);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Removes the n smallest (ascending) or largest elements: one at a time
+     * for a few, past about size / height of them by building a new tree from
+     * the ones that stay.
+     */
+    private void cut(int n, boolean ascending) {
+        if (n == 0) {
+            return;
+        }
+        if (n == count) {
+            clear();
+            return;
+        }
+
+        if ((long) n * getHeight() < count) {
+            for (int i = 0; i < n; i++) {
+                unlink(endSlot(ascending));
+            }
+            return;
+        }
+
+        Object[] rest = new Object[count - n];
+        InorderIterator slots = new InorderIterator();
+        for (int i = 0; i < (ascending ? n : 0); i++) {
+            slots.advance();
+        }
+        for (int i = 0; i < rest.length; i++) {
+            rest[i] = elementAt(slots.advance());
+        }
+        build(rest, rest.length);
+    }
+
+    /**
+     * Takes a slot out of the tree the way BSTree.unlink takes out a node: a
+     * slot with two children is replaced by its in-order successor, lifted out
+     * of its own place, so no element moves between slots. The slot then goes
+     * on the free list.
+     */
+    private void unlink(int slot) {
+        int l = left[slot];
+        int r = right[slot];
+        // lowest slot whose subtree changed, where fixing up starts
+        int changed;
+
+        if (l != NIL && r != NIL) {
+            int successor = r;
+            while (left[successor] != NIL) {
+                successor = left[successor];
+            }
+
+            if (successor == r) {
+                changed = successor;
+            } else {
+                changed = parent[successor];
+                replaceChild(changed, successor, right[successor]);
+                right[successor] = r;
+                parent[r] = successor;
+            }
+            left[successor] = l;
+            parent[l] = successor;
+            replaceChild(parent[slot], slot, successor);
+        } else {
+            changed = parent[slot];
+            replaceChild(changed, slot, l != NIL ? l : r);
+        }
+
+        freeSlot(slot);
+        count--;
+        modCount++;
+        rebalance(changed);
+    }
+
+    /**
+     * Walk from slot up to the root fixing heights and sizes and rotating out
+     * any imbalance, as AVLTree does.
+     */
+    private void rebalance(int slot) {
+        while (slot != NIL) {
+            update(slot);
+            int balance = balanceOf(slot);
+
+            if (balance > 1) {
+                // left heavy - left-right case needs the child rotated first
+                if (balanceOf(left[slot]) < 0) {
+                    rotateLeft(left[slot]);
+                }
+                slot = rotateRight(slot);
+            } else if (balance < -1) {
+                // right heavy - right-left case needs the child rotated first
+                if (balanceOf(right[slot]) > 0) {
+                    rotateRight(right[slot]);
+                }
+                slot = rotateLeft(slot);
+            }
+
+            slot = parent[slot];
+        }
+    }
+
+    /**
+     * Rotates slot down to the left, its right child takes its place.
+     * @return the new subtree root
+     */
+    private int rotateLeft(int slot) {
+        int pivot = right[slot];
+
+        replaceChild(parent[slot], slot, pivot);
+
+        right[slot] = left[pivot];
+        if (left[pivot] != NIL) {
+            parent[left[pivot]] = slot;
+        }
+        left[pivot] = slot;
+        parent[slot] = pivot;
+
+        update(slot);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotates slot down to the right, its left child takes its place.
+     * @return the new subtree root
+     */
+    private int rotateRight(int slot) {
+        int pivot = left[slot];
+
+        replaceChild(parent[slot], slot, pivot);
+
+        left[slot] = right[pivot];
+        if (right[pivot] != NIL) {
+            parent[right[pivot]] = slot;
+        }
+        right[pivot] = slot;
+        parent[slot] = pivot;
+
+        update(slot);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Puts newChild where oldChild used to hang under parentSlot, fixing the
+     * parent link. NIL for parentSlot means oldChild was the root.
+     */
+    private void replaceChild(int parentSlot, int oldChild, int newChild) {
+        if (parentSlot == NIL) {
+            root = newChild;
+        } else if (left[parentSlot] == oldChild) {
+            left[parentSlot] = newChild;
+        } else {
+            right[parentSlot] = newChild;
+        }
+
+        if (newChild != NIL) {
+            parent[newChild] = parentSlot;
+        }
+    }
+
+    /**
+     * Clear: empties the tree, keeping the arrays for the next elements.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(elements, 0, used, null);
+        root = NIL;
+        count = 0;
+        used = 0;
+        free = NIL;
+        modCount++;
+    }
+
+    /**
+     * A detached copy of the root node.
+     */
+    @Override
+    public BSTreeNode<E> getRoot() throws NullPointerException {
+        if (root == NIL) {
+            throw new NullPointerException("Tree is empty - no root node");
+        }
+        return nodeAt(root);
+    }
+
+    /**
+     * Writes the size and then the elements in order. Reading them back builds
+     * a balanced tree with the slots in order and no free list.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(count);
+        InorderIterator slots = new InorderIterator();
+        while (slots.hasNext()) {
+            out.writeObject(elementAt(slots.advance()));
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        if (n < 0) {
+            throw new java.io.InvalidObjectException("Negative size: " + n);
+        }
+        Object[] sorted = new Object[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = in.readObject();
+        }
+        build(sorted, n);
+    }
+
+    /**
+     * inorder iterator (left to root to right)
+     */
+    @Override
+    public utilities.Iterator<E> inorderIterator() {
+        return new InorderIterator();
+    }
+
+    /**
+     * preorder iterator (root to left to right)
+     */
+    @Override
+    public utilities.Iterator<E> preorderIterator() {
+        return new PreorderIterator();
+    }
+
+    /**
+     * postorder iterator (left to right to root)
+     */
+    @Override
+    public utilities.Iterator<E> postorderIterator() {
+        return new PostorderIterator();
+    }
+
+    /**
+     * Base class for the iterators, the same walks as BSTree's with a stack of
+     * slots in an int array. Changing the tree while iterating makes next()
+     * throw a ConcurrentModificationException.
+     */
+    private abstract class ArrayTreeIterator implements utilities.Iterator<E> {
+        private int[] stack = new int[getHeight() + 1];
+        private int depth;
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public E next() throws java.util.NoSuchElementException {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return elementAt(advance());
+        }
+
+        /**
+         * Pops the next slot and pushes whatever comes after it.
+         * @return the next slot in this traversal order
+         */
+        protected abstract int advance();
+
+        protected void push(int slot) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = slot;
+        }
+
+        protected int pop() {
+            return stack[--depth];
+        }
+
+        protected int peek() {
+            return depth == 0 ? NIL : stack[depth - 1];
+        }
+
+        protected void popAll() {
+            depth = 0;
+        }
+    }
+
+    /**
+     * In-order: the stack holds the left spine still waiting to be visited.
+     */
+    private class InorderIterator extends ArrayTreeIterator {
+        InorderIterator() {
+            pushLeftSpine(root);
+        }
+
+        @Override
+        protected int advance() {
+            int slot = pop();
+            pushLeftSpine(right[slot]);
+            return slot;
+        }
+
+        private void pushLeftSpine(int slot) {
+            while (slot != NIL) {
+                push(slot);
+                slot = left[slot];
+            }
+        }
+    }
+
+    /**
+     * In-order between two bounds, starting from the path to the first element
+     * >= lo and stopping at the first element > hi.
+     */
+    private class RangeIterator extends ArrayTreeIterator {
+        private final E lo;
+        private final E hi;
+
+        RangeIterator(E lo, E hi) {
+            this.lo = lo;
+            this.hi = hi;
+            pushFrom(root);
+            trimPastHi();
+        }
+
+        @Override
+        protected int advance() {
+            int slot = pop();
+            pushFrom(right[slot]);
+            trimPastHi();
+            return slot;
+        }
+
+        /**
+         * Like pushing the left spine, but skips slots below lo.
+         */
+        private void pushFrom(int slot) {
+            while (slot != NIL) {
+                if (elementAt(slot).compareTo(lo) < 0) {
+                    slot = right[slot];
+                } else {
+                    push(slot);
+                    slot = left[slot];
+                }
+            }
+        }
+
+        private void trimPastHi() {
+            if (hasNext() && elementAt(peek()).compareTo(hi) > 0) {
+                popAll();
+            }
+        }
+    }
+
+    /**
+     * Pre-order: visit the slot, then its left subtree, then the right one.
+     */
+    private class PreorderIterator extends ArrayTreeIterator {
+        PreorderIterator() {
+            if (root != NIL) {
+                push(root);
+            }
+        }
+
+        @Override
+        protected int advance() {
+            int slot = pop();
+            if (right[slot] != NIL) {
+                push(right[slot]);
+            }
+            if (left[slot] != NIL) {
+                push(left[slot]);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Post-order: the top of the stack is always the next slot to visit and
+     * the rest of the stack is its ancestors.
+     */
+    private class PostorderIterator extends ArrayTreeIterator {
+        PostorderIterator() {
+            pushFirstLeaf(root);
+        }
+
+        @Override
+        protected int advance() {
+            int slot = pop();
+            int up = peek();
+
+            // coming back up from a left child: the right subtree goes first
+            if (up != NIL && left[up] == slot && right[up] != NIL) {
+                pushFirstLeaf(right[up]);
+            }
+            return slot;
+        }
+
+        private void pushFirstLeaf(int slot) {
+            while (slot != NIL) {
+                push(slot);
+                slot = left[slot] != NIL ? left[slot] : right[slot];
+            }
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package implementations;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import utilities.BSTreeADT;
 
@@ -23,8 +30,17 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 
     private static final long serialVersionUID = 1L;
 
-    private BSTreeNode<E> root;
+    // child flags used by writeObject/readObject
+    private static final int HAS_LEFT = 1;
+    private static final int HAS_RIGHT = 2;
+    // which side of its parent a pending range in build() goes on
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private transient BSTreeNode<E> root;
     private int size;
+    // bumped on every structural change so iterators can fail fast
+    private transient int modCount;
 
     /**
      * default constructor
@@ -46,6 +62,126 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         size = 1;
     }
 
+    /**
+     * Builds a height-balanced tree from elements that are already sorted, in
+     * O(n) - much cheaper than adding them one by one, which is O(n log n) at
+     * best and O(n^2) for a plain BST fed sorted input.
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if the array or any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> fromSorted(E[] sorted) {
+        BSTree<E> tree = new BSTree<>();
+        tree.build(sorted, sorted.length);
+        return tree;
+    }
+
+    /**
+     * Builds a height-balanced tree from an iteration in strictly increasing
+     * order, for example the in-order iterator of another tree, in O(n).
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> BSTree<E> fromSorted(utilities.Iterator<E> sorted) {
+        BSTree<E> tree = new BSTree<>();
+        Object[] elements = toArray(sorted);
+        tree.build(elements, elements.length);
+        return tree;
+    }
+
+    /**
+     * Copies what is left of an iteration into an array.
+     */
+    static Object[] toArray(utilities.Iterator<?> iterator) {
+        ArrayList<Object> elements = new ArrayList<>();
+        while (iterator.hasNext()) {
+            elements.add(iterator.next());
+        }
+        return elements.toArray();
+    }
+
+    /**
+     * Replaces the contents of this tree with a balanced tree made of the first
+     * count elements. Each range of the array becomes a subtree rooted at its
+     * middle element; ranges are handled from an explicit stack rather than by
+     * recursion. Splitting at the middle makes the two halves differ in size by
+     * at most one, so a subtree of s nodes always has height bitLength(s) and
+     * the metadata can be filled in directly.
+     *
+     * @param elements the elements in strictly increasing order
+     * @param count how many of them to use
+     */
+    @SuppressWarnings("unchecked")
+    void build(Object[] elements, int count) {
+        for (int i = 0; i < count; i++) {
+            if (elements[i] == null) {
+                throw new NullPointerException("Cannot add null entry");
+            }
+            if (i > 0 && ((E) elements[i - 1]).compareTo((E) elements[i]) >= 0) {
+                throw new IllegalArgumentException("Elements are not in strictly increasing order at index " + i);
+            }
+        }
+
+        root = null;
+        size = count;
+        modCount++;
+        if (count == 0) {
+            return;
+        }
+
+        // each pending range: lo, hi (inclusive), which side of its parent it
+        // goes on, plus the parent itself on the other stack
+        ArrayDeque<int[]> ranges = new ArrayDeque<>();
+        ArrayDeque<BSTreeNode<E>> parents = new ArrayDeque<>();
+        int mid = (count - 1) >>> 1;
+        root = newSubtreeRoot(elements, 0, count - 1);
+        pushHalves(ranges, parents, root, 0, mid, count - 1);
+
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.pop();
+            BSTreeNode<E> parent = parents.pop();
+            int lo = range[0];
+            int hi = range[1];
+            mid = (lo + hi) >>> 1;
+
+            BSTreeNode<E> node = newSubtreeRoot(elements, lo, hi);
+            node.setParent(parent);
+            if (range[2] == LEFT) {
+                parent.setLeft(node);
+            } else {
+                parent.setRight(node);
+            }
+            pushHalves(ranges, parents, node, lo, mid, hi);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private BSTreeNode<E> newSubtreeRoot(Object[] elements, int lo, int hi) {
+        BSTreeNode<E> node = new BSTreeNode<>((E) elements[(lo + hi) >>> 1]);
+        int subtreeSize = hi - lo + 1;
+        node.setSize(subtreeSize);
+        node.setHeight(32 - Integer.numberOfLeadingZeros(subtreeSize));
+        return node;
+    }
+
+    private static <N> void pushHalves(ArrayDeque<int[]> ranges, ArrayDeque<N> parents, N node, int lo, int mid, int hi) {
+        if (mid < hi) {
+            ranges.push(new int[] {mid + 1, hi, RIGHT});
+            parents.push(node);
+        }
+        if (lo < mid) {
+            ranges.push(new int[] {lo, mid - 1, LEFT});
+            parents.push(node);
+        }
+    }
+
     /**
      * Hans - Add: add a new element into the BST.
      */
@@ -54,43 +190,59 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         if (newEntry == null) {
             throw new NullPointerException("Cannot add null entry");
         }
+        return insert(newEntry) == null;
+    }
+
+    /**
+     * Find-or-insert: returns the stored element equal to entry, or adds entry
+     * and returns it. Only walks down the tree once.
+     */
+    @Override
+    public E addOrGet(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot add null entry");
+        }
+        BSTreeNode<E> existing = insert(entry);
+        return existing == null ? entry : existing.getElement();
+    }
 
+    /**
+     * Walks down from the root to where newEntry belongs and hangs a new node
+     * there, unless an equal element is already stored.
+     *
+     * @param newEntry the element to insert, not null
+     * @return the node holding the equal element, or null if newEntry was added
+     */
+    private BSTreeNode<E> insert(E newEntry) {
         if (root == null) {
             root = new BSTreeNode<>(newEntry);
             size++;
-            return true;
+            modCount++;
+            return null;
         }
-        return addRecursive(root, newEntry);
-    }
 
-    // recursive method to add (helper function)
-    private boolean addRecursive(BSTreeNode<E> current, E newEntry) {
-        int comparison = newEntry.compareTo(current.getElement());
+        BSTreeNode<E> current = root;
+        while (true) {
+            int comparison = newEntry.compareTo(current.getElement());
 
-        if (comparison < 0) {
-            if (current.getLeft() == null) {
-                BSTreeNode<E> newNode = new BSTreeNode<>(newEntry);
-                newNode.setParent(current);
-                current.setLeft(newNode);
-                size++;
-                return true;
+            if (comparison == 0) {
+                return current;
             }
-            return addRecursive(current.getLeft(), newEntry);
 
-        } else if (comparison > 0) {
-
-            if (current.getRight() == null) {
-                BSTreeNode<E> newNode = new BSTreeNode<>(newEntry);
-                newNode.setParent(current);
-                current.setRight(newNode);
+            BSTreeNode<E> next = comparison < 0 ? current.getLeft() : current.getRight();
+            if (next == null) {
+                BSTreeNode<E> newNode = new BSTreeNode<>(newEntry, current);
+                if (comparison < 0) {
+                    current.setLeft(newNode);
+                } else {
+                    current.setRight(newNode);
+                }
                 size++;
-                return true;
+                modCount++;
+                rebalance(newNode);
+                return null;
             }
-
-            return addRecursive(current.getRight(), newEntry);
-
-        } else {
-            return false;
+            current = next;
         }
     }
 
@@ -118,24 +270,33 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         if (entry == null) {
             throw new NullPointerException("Cannot search for null entry");
         }
-        return searchRecursive(root, entry);
+        return findNode(entry);
     }
 
-    // recursive search helper function
-    private BSTreeNode<E> searchRecursive(BSTreeNode<E> current, E entry) {
-        if (current == null) {
-            return null;
+    /**
+     * Search with any key that compares against the elements, e.g. a reusable
+     * buffer, so nothing has to be allocated just to look an element up.
+     */
+    @Override
+    public E find(Comparable<? super E> key) throws NullPointerException {
+        if (key == null) {
+            throw new NullPointerException("Cannot search for null key");
         }
+        BSTreeNode<E> node = findNode(key);
+        return node == null ? null : node.getElement();
+    }
 
-        int comparison = entry.compareTo(current.getElement());
+    private BSTreeNode<E> findNode(Comparable<? super E> key) {
+        BSTreeNode<E> current = root;
+        while (current != null) {
+            int comparison = key.compareTo(current.getElement());
 
-        if (comparison == 0) {
-            return current;
-        } else if (comparison < 0) {
-            return searchRecursive(current.getLeft(), entry);
-        } else {
-            return searchRecursive(current.getRight(), entry);
+            if (comparison == 0) {
+                return current;
+            }
+            current = comparison < 0 ? current.getLeft() : current.getRight();
         }
+        return null;
     }
 
     /**
@@ -151,33 +312,153 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 
     /**
      * Xander: return height of tree.
+     * Every node keeps the height of its subtree, so this is O(1).
      */
     @Override
     public int getHeight() {
-        return getHeightHelper(root);
+        return root == null ? 0 : root.getHeight();
     }
 
     /**
-     * Recursive helper method to calculate height
-     * @param node current node
-     * @return height of subtree rooted at node
+     * Select: element at position k of the in-order walk. Uses the subtree
+     * sizes stored in the nodes, so it only walks one path down the tree.
      */
-    private int getHeightHelper(BSTreeNode<E> node) {
-        // Empty tree has height 0
-        if (node == null) {
+    @Override
+    public E select(int k) throws IndexOutOfBoundsException {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of range for size " + size);
+        }
+
+        BSTreeNode<E> current = root;
+        while (true) {
+            int leftSize = sizeOf(current.getLeft());
+
+            if (k < leftSize) {
+                current = current.getLeft();
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                current = current.getRight();
+            } else {
+                return current.getElement();
+            }
+        }
+    }
+
+    /**
+     * Rank: number of elements smaller than entry, one path down the tree.
+     */
+    @Override
+    public int rank(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot rank null entry");
+        }
+
+        int rank = 0;
+        BSTreeNode<E> current = root;
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison < 0) {
+                current = current.getLeft();
+            } else if (comparison > 0) {
+                rank += sizeOf(current.getLeft()) + 1;
+                current = current.getRight();
+            } else {
+                return rank + sizeOf(current.getLeft());
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Floor: largest element less than or equal to entry.
+     */
+    @Override
+    public E floor(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        E best = null;
+        BSTreeNode<E> current = root;
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison == 0) {
+                return current.getElement();
+            } else if (comparison < 0) {
+                current = current.getLeft();
+            } else {
+                // candidate, but something closer may be to the right
+                best = current.getElement();
+                current = current.getRight();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Ceiling: smallest element greater than or equal to entry.
+     */
+    @Override
+    public E ceiling(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        E best = null;
+        BSTreeNode<E> current = root;
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison == 0) {
+                return current.getElement();
+            } else if (comparison > 0) {
+                current = current.getRight();
+            } else {
+                // candidate, but something closer may be to the left
+                best = current.getElement();
+                current = current.getLeft();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count range: elements between lo and hi inclusive, from two ranks.
+     */
+    @Override
+    public int countRange(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        if (lo.compareTo(hi) > 0) {
             return 0;
         }
+        int upTo = rank(hi) + (contains(hi) ? 1 : 0);
+        return upTo - rank(lo);
+    }
 
-        // Recursively get height of left and right subtrees
-        int leftHeight = getHeightHelper(node.getLeft());
-        int rightHeight = getHeightHelper(node.getRight());
+    /**
+     * Range iterator: in-order walk that starts at the ceiling of lo and stops
+     * after hi, so it costs O(log n) to get going plus O(1) amortized per
+     * element returned.
+     */
+    @Override
+    public utilities.Iterator<E> rangeIterator(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        return new RangeIterator(lo, hi);
+    }
 
-        // Height is 1 + max of left and right subtree heights
-        return 1 + Math.max(leftHeight, rightHeight);
+    private static int sizeOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.getSize();
     }
 
     /**
      * Xander: remove smallest node.
+     * The node itself is unlinked and returned, not a copy of it.
      */
     @Override
     public BSTreeNode<E> removeMin() {
@@ -191,18 +472,13 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             minNode = minNode.getLeft();
         }
 
-        // Create a copy of the node to return
-        BSTreeNode<E> result = new BSTreeNode<>(minNode.getElement());
-
-        // Remove the minimum node
-        removeNode(minNode);
-        size--;
-
-        return result;
+        unlink(minNode);
+        return minNode;
     }
 
     /**
      * Xander: remove largest node.
+     * The node itself is unlinked and returned, not a copy of it.
      */
     @Override
     public BSTreeNode<E> removeMax() {
@@ -216,90 +492,254 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             maxNode = maxNode.getRight();
         }
 
-        // Create a copy of the node to return
-        BSTreeNode<E> result = new BSTreeNode<>(maxNode.getElement());
-
-        // Remove the maximum node
-        removeNode(maxNode);
-        size--;
-
-        return result;
+        unlink(maxNode);
+        return maxNode;
     }
 
     /**
-     * Helper method to remove a node from the tree
-     * Handles three cases:
-     * 1. Node is a leaf (no children)
-     * 2. Node has one child
-     * 3. Node has two children (not typically used in removeMin/removeMax)
-     *
-     * @param node the node to remove
+     * Remove: unlinks the node holding the element equal to entry, one path
+     * down the tree and one back up.
      */
-    private void removeNode(BSTreeNode<E> node) {
+    @Override
+    public boolean remove(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot remove null entry");
+        }
+        BSTreeNode<E> node = findNode(entry);
         if (node == null) {
-            return;
+            return false;
         }
+        unlink(node);
+        return true;
+    }
 
-        BSTreeNode<E> parent = node.getParent();
+    /**
+     * Remove all: collects the matching nodes in one in-order walk, then
+     * unlinks them one by one, so O(n + k log n) on an AVL tree for k
+     * removals. Unlinking moves nodes rather than the elements in them, so
+     * the nodes still to be unlinked keep holding their own elements.
+     */
+    @Override
+    public int removeAll(Predicate<? super E> filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("Cannot remove with null filter");
+        }
 
-        // Case 1: Node is a leaf (no children)
-        if (node.isLeaf()) {
-            if (parent == null) {
-                // Removing the root
-                root = null;
-            } else if (parent.getLeft() == node) {
-                parent.setLeft(null);
-            } else {
-                parent.setRight(null);
+        ArrayList<BSTreeNode<E>> matches = new ArrayList<>();
+        InorderIterator nodes = new InorderIterator();
+        while (nodes.hasNext()) {
+            BSTreeNode<E> node = nodes.advance();
+            if (filter.test(node.getElement())) {
+                matches.add(node);
             }
         }
-        // Case 2: Node has only a right child
-        else if (node.getLeft() == null) {
-            BSTreeNode<E> rightChild = node.getRight();
 
-            if (parent == null) {
-                // Node is root
-                root = rightChild;
-                rightChild.setParent(null);
-            } else if (parent.getLeft() == node) {
-                parent.setLeft(rightChild);
-                rightChild.setParent(parent);
-            } else {
-                parent.setRight(rightChild);
-                rightChild.setParent(parent);
+        for (BSTreeNode<E> node : matches) {
+            unlink(node);
+        }
+        return matches.size();
+    }
+
+    /**
+     * Drain ascending: the whole tree, smallest first.
+     */
+    @Override
+    public int drainAscending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, true);
+    }
+
+    /**
+     * Drain ascending: pop the k smallest.
+     */
+    @Override
+    public int drainAscending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, true);
+    }
+
+    /**
+     * Drain descending: the whole tree, largest first.
+     */
+    @Override
+    public int drainDescending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, false);
+    }
+
+    /**
+     * Drain descending: pop the k largest.
+     */
+    @Override
+    public int drainDescending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, false);
+    }
+
+    /**
+     * Walks the tree in order handing elements to the sink, without changing
+     * it, and only then cuts off the elements that were handed over, in the
+     * finally block so that a sink that throws still leaves the elements it
+     * took removed and the tree whole. The walk is O(k + h) for k elements and
+     * the cut O(min(k h, n)), so draining the whole tree is O(n).
+     */
+    private int drain(int limit, Consumer<? super E> sink, boolean ascending) {
+        if (sink == null) {
+            throw new NullPointerException("Cannot drain into null sink");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Cannot drain " + limit + " elements");
+        }
+
+        int target = Math.min(limit, size);
+        int expectedModCount = modCount;
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        pushSpine(stack, root, ascending);
+        int drained = 0;
+        try {
+            while (drained < target && !Thread.currentThread().isInterrupted()) {
+                BSTreeNode<E> node = stack.pop();
+                pushSpine(stack, ascending ? node.getRight() : node.getLeft(), ascending);
+                sink.accept(node.getElement());
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                drained++;
+            }
+        } finally {
+            if (modCount == expectedModCount) {
+                cut(drained, ascending);
             }
         }
-        // Case 3: Node has only a left child
-        else if (node.getRight() == null) {
-            BSTreeNode<E> leftChild = node.getLeft();
+        return drained;
+    }
 
-            if (parent == null) {
-                // Node is root
-                root = leftChild;
-                leftChild.setParent(null);
-            } else if (parent.getLeft() == node) {
-                parent.setLeft(leftChild);
-                leftChild.setParent(parent);
-            } else {
-                parent.setRight(leftChild);
-                leftChild.setParent(parent);
+    /**
+     * Pushes node and the path from it to the first node of its subtree in
+     * the drain order: the left spine going up, the right one going down.
+     */
+    private static <E> void pushSpine(ArrayDeque<BSTreeNode<E>> stack, BSTreeNode<E> node, boolean ascending) {
+        while (node != null) {
+            stack.push(node);
+            node = ascending ? node.getLeft() : node.getRight();
+        }
+    }
+
+    /**
+     * Removes the count smallest (ascending) or largest elements. A few are
+     * unlinked one at a time; past about n / h of them it is cheaper to build
+     * a new balanced tree from the ones that stay.
+     */
+    private void cut(int count, boolean ascending) {
+        if (count == 0) {
+            return;
+        }
+        if (count == size) {
+            clear();
+            return;
+        }
+
+        if ((long) count * getHeight() < size) {
+            for (int i = 0; i < count; i++) {
+                BSTreeNode<E> end = root;
+                while ((ascending ? end.getLeft() : end.getRight()) != null) {
+                    end = ascending ? end.getLeft() : end.getRight();
+                }
+                unlink(end);
             }
+            return;
+        }
+
+        Object[] rest = new Object[size - count];
+        InorderIterator nodes = new InorderIterator();
+        for (int i = 0; i < (ascending ? count : 0); i++) {
+            nodes.advance();
+        }
+        for (int i = 0; i < rest.length; i++) {
+            rest[i] = nodes.advance().getElement();
         }
-        // Case 4: Node has two children
-        // This is rare for removeMin/removeMax but included for completeness
-        else {
-            // Find inorder successor (smallest node in right subtree)
-            BSTreeNode<E> successor = node.getRight();
+        build(rest, rest.length);
+    }
+
+    /**
+     * Takes a node out of the tree by relinking the nodes around it:
+     * 1. Node is a leaf or has one child: the child (if any) takes its place
+     * 2. Node has two children: its in-order successor, the leftmost node of
+     *    the right subtree, has no left child, so it is lifted out of its own
+     *    place like case 1 and put in the removed node's place
+     * The removed node is left on its own, with no parent or children.
+     *
+     * @param node the node to remove
+     */
+    private void unlink(BSTreeNode<E> node) {
+        BSTreeNode<E> left = node.getLeft();
+        BSTreeNode<E> right = node.getRight();
+        // lowest node whose subtree changed, where fixing up starts
+        BSTreeNode<E> changed;
+
+        if (left != null && right != null) {
+            BSTreeNode<E> successor = right;
             while (successor.getLeft() != null) {
                 successor = successor.getLeft();
             }
 
-            // Copy successor's data to this node
-            node.setElement(successor.getElement());
+            if (successor == right) {
+                changed = successor;
+            } else {
+                changed = successor.getParent();
+                replaceChild(changed, successor, successor.getRight());
+                successor.setRight(right);
+                right.setParent(successor);
+            }
+            successor.setLeft(left);
+            left.setParent(successor);
+            replaceChild(node.getParent(), node, successor);
+        } else {
+            changed = node.getParent();
+            replaceChild(changed, node, left != null ? left : right);
+        }
+
+        node.setParent(null);
+        node.setLeft(null);
+        node.setRight(null);
+        node.update();
+        size--;
+        modCount++;
+
+        // Everything from the lowest changed node upwards may need fixing
+        rebalance(changed);
+    }
+
+    /**
+     * Hook called after a node has been added or spliced out, starting at the
+     * lowest node whose subtree changed. A plain BST does not rebalance, so this
+     * only walks up to the root refreshing the height and size stored in each
+     * node; balanced subclasses also restore their invariant on the way up.
+     *
+     * @param node lowest changed node, may be null
+     */
+    protected void rebalance(BSTreeNode<E> node) {
+        while (node != null) {
+            node.update();
+            node = node.getParent();
+        }
+    }
+
+    /**
+     * Puts newChild where oldChild used to hang under parent, fixing the parent
+     * link. A null parent means oldChild was the root.
+     *
+     * @param parent parent of oldChild, null if oldChild is the root
+     * @param oldChild the subtree being replaced
+     * @param newChild the replacement subtree, may be null
+     */
+    protected void replaceChild(BSTreeNode<E> parent, BSTreeNode<E> oldChild, BSTreeNode<E> newChild) {
+        if (parent == null) {
+            root = newChild;
+        } else if (parent.getLeft() == oldChild) {
+            parent.setLeft(newChild);
+        } else {
+            parent.setRight(newChild);
+        }
 
-            // Remove the successor (which has at most one child)
-            removeNode(successor);
-            size++; // Compensate since we'll decrement in the calling method
+        if (newChild != null) {
+            newChild.setParent(parent);
         }
     }
 
@@ -310,6 +750,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     public void clear() {
         root = null;
         size = 0;
+        modCount++;
     }
 
     // Hans - gets the root of the tree
@@ -323,42 +764,121 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     }
 
     /**
-     * inorder iterator (left to root to right)
-     * produces alphabetical order 
+     * Writes the size and then every element in pre-order, each followed by a
+     * byte saying which children it has. That is enough to rebuild the exact
+     * shape on the way back in without recursing, however deep the tree is
+     * (default serialization recurses once per node and overflows the stack
+     * on degenerate trees).
      */
-    @Override
-    public utilities.Iterator<E> inorderIterator() {
-        ArrayList<E> list = new ArrayList<>();
-        inorderHelper(root, list);
-        return new BSTreeIterator(list);
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            BSTreeNode<E> node = stack.pop();
+            out.writeObject(node.getElement());
+            out.writeByte((node.hasLeft() ? HAS_LEFT : 0) | (node.hasRight() ? HAS_RIGHT : 0));
+
+            if (node.hasRight()) {
+                stack.push(node.getRight());
+            }
+            if (node.hasLeft()) {
+                stack.push(node.getLeft());
+            }
+        }
     }
 
-    private void inorderHelper(BSTreeNode<E> node, ArrayList<E> list) {
-        if (node == null)
+    /**
+     * Rebuilds the tree written by writeObject. Streams written before the tree
+     * had its own format still carry the node graph in a root field, which is
+     * used as is.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        size = fields.get("size", 0);
+
+        if (fields.getObjectStreamClass().getField("root") != null) {
+            // written before nodes stored their height and size
+            root = (BSTreeNode<E>) fields.get("root", null);
+            updateAll();
             return;
+        }
+        if (size == 0) {
+            return;
+        }
+
+        // pre-order: a node's left child (if any) comes right after it, its
+        // right child after the whole left subtree
+        ArrayDeque<BSTreeNode<E>> waitingForRight = new ArrayDeque<>();
+        BSTreeNode<E> waitingForLeft = null;
+
+        for (int i = 0; i < size; i++) {
+            BSTreeNode<E> node = new BSTreeNode<>((E) in.readObject());
+            int children = in.readByte();
+
+            if (i == 0) {
+                root = node;
+            } else if (waitingForLeft != null) {
+                node.setParent(waitingForLeft);
+                waitingForLeft.setLeft(node);
+            } else {
+                BSTreeNode<E> parent = waitingForRight.pop();
+                node.setParent(parent);
+                parent.setRight(node);
+            }
 
-        inorderHelper(node.getLeft(), list);
-        list.add(node.getElement());
-        inorderHelper(node.getRight(), list);
+            if ((children & HAS_RIGHT) != 0) {
+                waitingForRight.push(node);
+            }
+            waitingForLeft = (children & HAS_LEFT) != 0 ? node : null;
+        }
+        updateAll();
     }
 
     /**
-     * preorder iterator (root to left to right)
+     * Recomputes the height and size of every node, children before parents.
      */
-    @Override
-    public utilities.Iterator<E> preorderIterator() {
-        ArrayList<E> list = new ArrayList<>();
-        preorderHelper(root, list);
-        return new BSTreeIterator(list);
+    private void updateAll() {
+        // reversed pre-order always reaches a subtree before the node above it
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        ArrayDeque<BSTreeNode<E>> reversed = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root);
+        }
+        while (!stack.isEmpty()) {
+            BSTreeNode<E> node = stack.pop();
+            reversed.push(node);
+            if (node.hasRight()) {
+                stack.push(node.getRight());
+            }
+            if (node.hasLeft()) {
+                stack.push(node.getLeft());
+            }
+        }
+        while (!reversed.isEmpty()) {
+            reversed.pop().update();
+        }
     }
 
-    private void preorderHelper(BSTreeNode<E> node, ArrayList<E> list) {
-        if (node == null)
-            return;
+    /**
+     * inorder iterator (left to root to right)
+     * produces alphabetical order 
+     */
+    @Override
+    public utilities.Iterator<E> inorderIterator() {
+        return new InorderIterator();
+    }
 
-        list.add(node.getElement());
-        preorderHelper(node.getLeft(), list);
-        preorderHelper(node.getRight(), list);
+    /**
+     * preorder iterator (root to left to right)
+     */
+    @Override
+    public utilities.Iterator<E> preorderIterator() {
+        return new PreorderIterator();
     }
 
     /**
@@ -366,43 +886,168 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
      */
     @Override
     public utilities.Iterator<E> postorderIterator() {
-        ArrayList<E> list = new ArrayList<>();
-        postorderHelper(root, list);
-        return new BSTreeIterator(list);
+        return new PostorderIterator();
     }
 
-    private void postorderHelper(BSTreeNode<E> node, ArrayList<E> list) {
-        if (node == null)
-            return;
+    /**
+     * Base class for the tree iterators. Nothing is copied up front: each
+     * iterator keeps a stack of the nodes it still has to come back to, which is
+     * never deeper than the tree, and works out the next element on demand.
+     * Changing the tree while iterating makes next() throw a
+     * ConcurrentModificationException.
+     */
+    private abstract class BSTreeIterator implements utilities.Iterator<E> {
+        protected final ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
 
-        postorderHelper(node.getLeft(), list);
-        postorderHelper(node.getRight(), list);
-        list.add(node.getElement());
+        @Override
+        public E next() throws java.util.NoSuchElementException {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return advance().getElement();
+        }
+
+        /**
+         * Pops the next node and pushes whatever comes after it.
+         * @return the next node in this traversal order
+         */
+        protected abstract BSTreeNode<E> advance();
     }
 
     /**
-     * Inner class for BSTree Iterator
+     * In-order: the stack holds the left spine still waiting to be visited.
      */
-    private class BSTreeIterator implements utilities.Iterator<E> {
-        private ArrayList<E> list;
-        private int current;
+    private class InorderIterator extends BSTreeIterator {
+        InorderIterator() {
+            pushLeftSpine(root);
+        }
 
-        public BSTreeIterator(ArrayList<E> list) {
-            this.list = list;
-            this.current = 0;
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            pushLeftSpine(node.getRight());
+            return node;
+        }
+
+        private void pushLeftSpine(BSTreeNode<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.getLeft();
+            }
+        }
+    }
+
+    /**
+     * In-order between two bounds: the stack starts as the path to the first
+     * element >= lo, holding only the nodes at or above lo, and the iteration
+     * stops at the first element > hi.
+     */
+    private class RangeIterator extends BSTreeIterator {
+        private final E lo;
+        private final E hi;
+
+        RangeIterator(E lo, E hi) {
+            this.lo = lo;
+            this.hi = hi;
+            pushFrom(root);
+            trimPastHi();
         }
 
         @Override
-        public boolean hasNext() {
-            return current < list.size();
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            pushFrom(node.getRight());
+            trimPastHi();
+            return node;
+        }
+
+        /**
+         * Like pushing the left spine, but skips nodes below lo: their left
+         * subtrees are all below lo too, so only their right child matters.
+         */
+        private void pushFrom(BSTreeNode<E> node) {
+            while (node != null) {
+                if (node.getElement().compareTo(lo) < 0) {
+                    node = node.getRight();
+                } else {
+                    stack.push(node);
+                    node = node.getLeft();
+                }
+            }
+        }
+
+        /**
+         * Once the next element is past hi everything after it is too.
+         */
+        private void trimPastHi() {
+            if (!stack.isEmpty() && stack.peek().getElement().compareTo(hi) > 0) {
+                stack.clear();
+            }
+        }
+    }
+
+    /**
+     * Pre-order: visit the node, then its left subtree, then the right one.
+     */
+    private class PreorderIterator extends BSTreeIterator {
+        PreorderIterator() {
+            if (root != null) {
+                stack.push(root);
+            }
         }
 
         @Override
-        public E next() throws java.util.NoSuchElementException {
-            if (!hasNext()) {
-                throw new java.util.NoSuchElementException();
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            if (node.getRight() != null) {
+                stack.push(node.getRight());
+            }
+            if (node.getLeft() != null) {
+                stack.push(node.getLeft());
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Post-order: the top of the stack is always the next node to visit and
+     * the rest of the stack is its ancestors.
+     */
+    private class PostorderIterator extends BSTreeIterator {
+        PostorderIterator() {
+            pushFirstLeaf(root);
+        }
+
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            BSTreeNode<E> parent = stack.peek();
+
+            // coming back up from a left child: the right subtree goes first
+            if (parent != null && parent.getLeft() == node && parent.getRight() != null) {
+                pushFirstLeaf(parent.getRight());
+            }
+            return node;
+        }
+
+        /**
+         * Pushes the path from node down to the first node visited in its
+         * subtree, going left whenever possible and right otherwise.
+         */
+        private void pushFirstLeaf(BSTreeNode<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.getLeft() != null ? node.getLeft() : node.getRight();
             }
-            return list.get(current++);
         }
     }
 }
\ No newline at end of file
@@ -16,6 +16,8 @@ public class BSTreeNode<E> implements Serializable {
     private BSTreeNode<E> left;
     private BSTreeNode<E> right;
     private BSTreeNode<E> parent;
+    private int height;
+    private int size;
     
     /**
      * Constructor with element only
@@ -26,6 +28,8 @@ public class BSTreeNode<E> implements Serializable {
         this.left = null;
         this.right = null;
         this.parent = null;
+        this.height = 1;
+        this.size = 1;
     }
     
     /**
@@ -38,6 +42,8 @@ public class BSTreeNode<E> implements Serializable {
         this.left = null;
         this.right = null;
         this.parent = parent;
+        this.height = 1;
+        this.size = 1;
     }
     
     /**
@@ -104,6 +110,49 @@ public class BSTreeNode<E> implements Serializable {
         this.parent = parent;
     }
     
+    /**
+     * Get the height of the subtree rooted at this node (a leaf is 1)
+     * @return subtree height
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * Set the height of the subtree rooted at this node
+     * @param height the new height
+     */
+    public void setHeight(int height) {
+        this.height = height;
+    }
+    
+    /**
+     * Get the number of nodes in the subtree rooted at this node, itself included
+     * @return subtree size
+     */
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * Set the number of nodes in the subtree rooted at this node
+     * @param size the new size
+     */
+    public void setSize(int size) {
+        this.size = size;
+    }
+    
+    /**
+     * Recompute this node's height and size from its children, which must
+     * already be up to date
+     */
+    void update() {
+        int leftHeight = left == null ? 0 : left.height;
+        int rightHeight = right == null ? 0 : right.height;
+        height = 1 + Math.max(leftHeight, rightHeight);
+        size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
+    }
+    
     /**
      * Check if this node is a leaf (has no children)
      * @return true if leaf node, false otherwise
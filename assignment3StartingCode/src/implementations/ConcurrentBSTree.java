@@ -0,0 +1,821 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import utilities.BSTreeADT;
+
+/**
+ * Thread-safe BST for an index that many threads add to while others search
+ * and iterate over it.
+ *
+ * The tree is an AVL tree whose nodes are never changed once another thread
+ * can see them. An update copies the path from the root down to where it
+ * changes the tree, rebalancing the copies on the way back up, and then swaps
+ * the new root in with one compare-and-set; if another update got there
+ * first it tries again on the new tree. That is O(log n) new nodes per update,
+ * and nothing is copied for an add that finds the element already there.
+ *
+ * Reads take whichever root is current and walk it without any locking, so
+ * they never wait for a writer, and each read or iterator sees one version of
+ * the tree: iterators are snapshots, unaffected by later updates, and never
+ * throw ConcurrentModificationException.
+ *
+ * This is a copy-on-write snapshot tree, not a tree with fine-grained
+ * locking: every update that changes the tree races for the one root, so
+ * writers that add or remove elements go one at a time, and under contention
+ * the losers redo their copies. What scales with threads is the reading, and
+ * the adds that find their element already there, which in indexing are most
+ * of them; new elements are added no faster than behind one lock.
+ *
+ * Only the tree is thread-safe. The elements in it are shared between the
+ * threads, so changing one needs its own locking, as Word does. Nodes from
+ * getRoot and search are shared between versions of the tree, have no parent
+ * links and must not be changed.
+ *
+ * @param <E> Comparable element type
+ */
+public class ConcurrentBSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient AtomicReference<BSTreeNode<E>> root = new AtomicReference<>();
+
+    /**
+     * default constructor
+     */
+    public ConcurrentBSTree() {
+    }
+
+    /**
+     * Builds a tree from elements that are already sorted, in O(n).
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if the array or any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> ConcurrentBSTree<E> fromSorted(E[] sorted) {
+        ConcurrentBSTree<E> tree = new ConcurrentBSTree<>();
+        tree.root.set(build(sorted));
+        return tree;
+    }
+
+    /**
+     * Builds a tree from an iteration in strictly increasing order in O(n).
+     *
+     * @param <E> Comparable element type
+     * @param sorted the elements in strictly increasing order
+     * @return a balanced tree holding the elements
+     * @throws NullPointerException if any element is null
+     * @throws IllegalArgumentException if the elements are not strictly increasing
+     */
+    public static <E extends Comparable<? super E>> ConcurrentBSTree<E> fromSorted(utilities.Iterator<E> sorted) {
+        ConcurrentBSTree<E> tree = new ConcurrentBSTree<>();
+        tree.root.set(build(BSTree.toArray(sorted)));
+        return tree;
+    }
+
+    /**
+     * A balanced tree of sorted elements, each range rooted at its middle
+     * element. Recursion is only as deep as the tree, log2 of the count.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> BSTreeNode<E> build(Object[] elements) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i] == null) {
+                throw new NullPointerException("Cannot add null entry");
+            }
+            if (i > 0 && ((E) elements[i - 1]).compareTo((E) elements[i]) >= 0) {
+                throw new IllegalArgumentException("Elements are not in strictly increasing order at index " + i);
+            }
+        }
+        return build(elements, 0, elements.length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> BSTreeNode<E> build(Object[] elements, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        return node((E) elements[mid], build(elements, lo, mid - 1), build(elements, mid + 1, hi));
+    }
+
+    @Override
+    public boolean add(E newEntry) throws NullPointerException {
+        if (newEntry == null) {
+            throw new NullPointerException("Cannot add null entry");
+        }
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            if (findNode(current, newEntry) != null) {
+                return false;
+            }
+            if (root.compareAndSet(current, insert(current, newEntry))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Find-or-insert. Whichever thread's entry gets into the tree, every
+     * thread adding an equal entry gets that same element back.
+     */
+    @Override
+    public E addOrGet(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot add null entry");
+        }
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            BSTreeNode<E> existing = findNode(current, entry);
+            if (existing != null) {
+                return existing.getElement();
+            }
+            if (root.compareAndSet(current, insert(current, entry))) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * A copy of the path to where entry belongs, with entry added there.
+     * Entry must not be in the tree. Recursion is only as deep as the tree.
+     */
+    private static <E extends Comparable<? super E>> BSTreeNode<E> insert(BSTreeNode<E> node, E entry) {
+        if (node == null) {
+            return new BSTreeNode<>(entry);
+        }
+        if (entry.compareTo(node.getElement()) < 0) {
+            return balance(node.getElement(), insert(node.getLeft(), entry), node.getRight());
+        }
+        return balance(node.getElement(), node.getLeft(), insert(node.getRight(), entry));
+    }
+
+    @Override
+    public int size() {
+        return sizeOf(root.get());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root.get() == null;
+    }
+
+    @Override
+    public BSTreeNode<E> search(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+        return findNode(root.get(), entry);
+    }
+
+    @Override
+    public E find(Comparable<? super E> key) throws NullPointerException {
+        if (key == null) {
+            throw new NullPointerException("Cannot search for null key");
+        }
+        BSTreeNode<E> node = findNode(root.get(), key);
+        return node == null ? null : node.getElement();
+    }
+
+    private static <E> BSTreeNode<E> findNode(BSTreeNode<E> current, Comparable<? super E> key) {
+        while (current != null) {
+            int comparison = key.compareTo(current.getElement());
+
+            if (comparison == 0) {
+                return current;
+            }
+            current = comparison < 0 ? current.getLeft() : current.getRight();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean contains(E entry) throws NullPointerException {
+        return search(entry) != null;
+    }
+
+    @Override
+    public int getHeight() {
+        BSTreeNode<E> current = root.get();
+        return current == null ? 0 : current.getHeight();
+    }
+
+    @Override
+    public E select(int k) throws IndexOutOfBoundsException {
+        BSTreeNode<E> current = root.get();
+        if (k < 0 || k >= sizeOf(current)) {
+            throw new IndexOutOfBoundsException("Rank " + k + " out of range for size " + sizeOf(current));
+        }
+
+        while (true) {
+            int leftSize = sizeOf(current.getLeft());
+
+            if (k < leftSize) {
+                current = current.getLeft();
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                current = current.getRight();
+            } else {
+                return current.getElement();
+            }
+        }
+    }
+
+    @Override
+    public int rank(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot rank null entry");
+        }
+        return rank(root.get(), entry);
+    }
+
+    private static <E extends Comparable<? super E>> int rank(BSTreeNode<E> current, E entry) {
+        int rank = 0;
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison < 0) {
+                current = current.getLeft();
+            } else if (comparison > 0) {
+                rank += sizeOf(current.getLeft()) + 1;
+                current = current.getRight();
+            } else {
+                return rank + sizeOf(current.getLeft());
+            }
+        }
+        return rank;
+    }
+
+    @Override
+    public E floor(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        E best = null;
+        BSTreeNode<E> current = root.get();
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison == 0) {
+                return current.getElement();
+            } else if (comparison < 0) {
+                current = current.getLeft();
+            } else {
+                best = current.getElement();
+                current = current.getRight();
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public E ceiling(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot search for null entry");
+        }
+
+        E best = null;
+        BSTreeNode<E> current = root.get();
+        while (current != null) {
+            int comparison = entry.compareTo(current.getElement());
+
+            if (comparison == 0) {
+                return current.getElement();
+            } else if (comparison > 0) {
+                current = current.getRight();
+            } else {
+                best = current.getElement();
+                current = current.getLeft();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Count range: both ranks come from the same version of the tree.
+     */
+    @Override
+    public int countRange(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        BSTreeNode<E> current = root.get();
+        int upTo = rank(current, hi) + (findNode(current, hi) != null ? 1 : 0);
+        return upTo - rank(current, lo);
+    }
+
+    /**
+     * Returns a copy of the removed node: the node itself is still part of
+     * older versions of the tree that readers may be walking.
+     */
+    @Override
+    public BSTreeNode<E> removeMin() {
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            if (current == null) {
+                return null;
+            }
+            BSTreeNode<E> min = current;
+            while (min.getLeft() != null) {
+                min = min.getLeft();
+            }
+            if (root.compareAndSet(current, removeMin(current))) {
+                return new BSTreeNode<>(min.getElement());
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the removed node, as removeMin does.
+     */
+    @Override
+    public BSTreeNode<E> removeMax() {
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            if (current == null) {
+                return null;
+            }
+            BSTreeNode<E> max = current;
+            while (max.getRight() != null) {
+                max = max.getRight();
+            }
+            if (root.compareAndSet(current, removeMax(current))) {
+                return new BSTreeNode<>(max.getElement());
+            }
+        }
+    }
+
+    private static <E extends Comparable<? super E>> BSTreeNode<E> removeMin(BSTreeNode<E> node) {
+        if (node.getLeft() == null) {
+            return node.getRight();
+        }
+        return balance(node.getElement(), removeMin(node.getLeft()), node.getRight());
+    }
+
+    private static <E extends Comparable<? super E>> BSTreeNode<E> removeMax(BSTreeNode<E> node) {
+        if (node.getRight() == null) {
+            return node.getLeft();
+        }
+        return balance(node.getElement(), node.getLeft(), removeMax(node.getRight()));
+    }
+
+    @Override
+    public boolean remove(E entry) throws NullPointerException {
+        if (entry == null) {
+            throw new NullPointerException("Cannot remove null entry");
+        }
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            if (findNode(current, entry) == null) {
+                return false;
+            }
+            if (root.compareAndSet(current, remove(current, entry))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The subtree without the element equal to entry, which it must hold. A
+     * node with two children is replaced by its in-order successor.
+     */
+    private static <E extends Comparable<? super E>> BSTreeNode<E> remove(BSTreeNode<E> node, E entry) {
+        int comparison = entry.compareTo(node.getElement());
+        if (comparison < 0) {
+            return balance(node.getElement(), remove(node.getLeft(), entry), node.getRight());
+        }
+        if (comparison > 0) {
+            return balance(node.getElement(), node.getLeft(), remove(node.getRight(), entry));
+        }
+        if (node.getLeft() == null) {
+            return node.getRight();
+        }
+        if (node.getRight() == null) {
+            return node.getLeft();
+        }
+        BSTreeNode<E> successor = node.getRight();
+        while (successor.getLeft() != null) {
+            successor = successor.getLeft();
+        }
+        return balance(successor.getElement(), node.getLeft(), removeMin(node.getRight()));
+    }
+
+    /**
+     * Builds the remaining elements into a new balanced tree in O(n) rather
+     * than copying a path per removal. If another update gets in first the
+     * filter runs again on the new tree, so it may see an element more than
+     * once.
+     */
+    @Override
+    public int removeAll(Predicate<? super E> filter) throws NullPointerException {
+        if (filter == null) {
+            throw new NullPointerException("Cannot remove with null filter");
+        }
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            ArrayList<E> kept = new ArrayList<>();
+            int removed = 0;
+            utilities.Iterator<E> elements = new InorderIterator(current);
+            while (elements.hasNext()) {
+                E element = elements.next();
+                if (filter.test(element)) {
+                    removed++;
+                } else {
+                    kept.add(element);
+                }
+            }
+            if (removed == 0) {
+                return 0;
+            }
+            if (root.compareAndSet(current, build(kept.toArray()))) {
+                return removed;
+            }
+        }
+    }
+
+    @Override
+    public int drainAscending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, true);
+    }
+
+    @Override
+    public int drainAscending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, true);
+    }
+
+    @Override
+    public int drainDescending(Consumer<? super E> sink) throws NullPointerException {
+        return drain(Integer.MAX_VALUE, sink, false);
+    }
+
+    @Override
+    public int drainDescending(int k, Consumer<? super E> sink) throws NullPointerException, IllegalArgumentException {
+        return drain(k, sink, false);
+    }
+
+    /**
+     * Claims the elements first, by swapping in the tree without them with one
+     * compare-and-set, and only then hands them to the sink, so drains running
+     * at the same time never get the same element. The tree left is rebuilt
+     * from what is left or, for a few elements, made by path-copying removals;
+     * if another update gets in first the elements are picked again from the
+     * new tree. Elements the sink does not take, because it throws or the
+     * thread is interrupted, are put back, so other threads do not see them
+     * in the meantime.
+     */
+    private int drain(int limit, Consumer<? super E> sink, boolean ascending) {
+        if (sink == null) {
+            throw new NullPointerException("Cannot drain into null sink");
+        }
+        if (limit < 0) {
+            throw new IllegalArgumentException("Cannot drain " + limit + " elements");
+        }
+        if (limit == 0 || Thread.currentThread().isInterrupted()) {
+            return 0;
+        }
+
+        ArrayList<E> claimed = claim(limit, ascending);
+        int delivered = 0;
+        try {
+            while (delivered < claimed.size() && !Thread.currentThread().isInterrupted()) {
+                sink.accept(claimed.get(delivered));
+                delivered++;
+            }
+        } finally {
+            putBack(claimed.subList(delivered, claimed.size()));
+        }
+        return delivered;
+    }
+
+    private static <E> void pushSpine(ArrayDeque<BSTreeNode<E>> stack, BSTreeNode<E> node, boolean ascending) {
+        while (node != null) {
+            stack.push(node);
+            node = ascending ? node.getLeft() : node.getRight();
+        }
+    }
+
+    /**
+     * Removes the first elements of the current version in the order asked
+     * for, at most limit of them, and returns them in that order.
+     */
+    private ArrayList<E> claim(int limit, boolean ascending) {
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            ArrayList<E> claimed = new ArrayList<>();
+            ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+            pushSpine(stack, current, ascending);
+            while (claimed.size() < limit && !stack.isEmpty()) {
+                BSTreeNode<E> node = stack.pop();
+                pushSpine(stack, ascending ? node.getRight() : node.getLeft(), ascending);
+                claimed.add(node.getElement());
+            }
+            if (claimed.isEmpty()) {
+                return claimed;
+            }
+
+            BSTreeNode<E> next;
+            if ((long) claimed.size() * heightOf(current) >= sizeOf(current)) {
+                Object[] rest = new Object[sizeOf(current) - claimed.size()];
+                InorderIterator elements = new InorderIterator(current);
+                for (int i = 0; i < (ascending ? claimed.size() : 0); i++) {
+                    elements.next();
+                }
+                for (int i = 0; i < rest.length; i++) {
+                    rest[i] = elements.next();
+                }
+                next = build(rest);
+            } else {
+                next = current;
+                for (E element : claimed) {
+                    next = remove(next, element);
+                }
+            }
+            if (root.compareAndSet(current, next)) {
+                return claimed;
+            }
+        }
+    }
+
+    /**
+     * Adds back claimed elements the sink did not take. One equal to an
+     * element added since is left out, as add would.
+     */
+    private void putBack(List<E> elements) {
+        if (elements.isEmpty()) {
+            return;
+        }
+        while (true) {
+            BSTreeNode<E> current = root.get();
+            BSTreeNode<E> next = current;
+            for (E element : elements) {
+                if (findNode(next, element) == null) {
+                    next = insert(next, element);
+                }
+            }
+            if (root.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        root.set(null);
+    }
+
+    @Override
+    public BSTreeNode<E> getRoot() throws NullPointerException {
+        BSTreeNode<E> current = root.get();
+        if (current == null) {
+            throw new NullPointerException("Tree is empty - no root node");
+        }
+        return current;
+    }
+
+    /**
+     * A new node over two subtrees, with its height and size filled in.
+     */
+    private static <E> BSTreeNode<E> node(E element, BSTreeNode<E> left, BSTreeNode<E> right) {
+        BSTreeNode<E> node = new BSTreeNode<>(element);
+        node.setLeft(left);
+        node.setRight(right);
+        node.update();
+        return node;
+    }
+
+    /**
+     * A new node over two subtrees whose heights differ by at most two,
+     * rotated as AVL needs. Rotations make new nodes too, since the subtrees
+     * may be shared with older versions of the tree.
+     */
+    private static <E> BSTreeNode<E> balance(E element, BSTreeNode<E> left, BSTreeNode<E> right) {
+        int balance = heightOf(left) - heightOf(right);
+
+        if (balance > 1) {
+            // left heavy - left-right case needs the child rotated first
+            if (heightOf(left.getLeft()) < heightOf(left.getRight())) {
+                left = rotateLeft(left.getElement(), left.getLeft(), left.getRight());
+            }
+            return rotateRight(element, left, right);
+        }
+        if (balance < -1) {
+            // right heavy - right-left case needs the child rotated first
+            if (heightOf(right.getRight()) < heightOf(right.getLeft())) {
+                right = rotateRight(right.getElement(), right.getLeft(), right.getRight());
+            }
+            return rotateLeft(element, left, right);
+        }
+        return node(element, left, right);
+    }
+
+    /**
+     * The node made of element, left and right, rotated down to the left: its
+     * right child takes its place.
+     */
+    private static <E> BSTreeNode<E> rotateLeft(E element, BSTreeNode<E> left, BSTreeNode<E> right) {
+        return node(right.getElement(), node(element, left, right.getLeft()), right.getRight());
+    }
+
+    /**
+     * The node made of element, left and right, rotated down to the right: its
+     * left child takes its place.
+     */
+    private static <E> BSTreeNode<E> rotateRight(E element, BSTreeNode<E> left, BSTreeNode<E> right) {
+        return node(left.getElement(), left.getLeft(), node(element, left.getRight(), right));
+    }
+
+    private static int heightOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.getHeight();
+    }
+
+    private static int sizeOf(BSTreeNode<?> node) {
+        return node == null ? 0 : node.getSize();
+    }
+
+    /**
+     * Writes the size and then the elements in order, from one version of the
+     * tree; reading them back builds a balanced tree.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        BSTreeNode<E> current = root.get();
+        out.writeInt(sizeOf(current));
+        utilities.Iterator<E> elements = new InorderIterator(current);
+        while (elements.hasNext()) {
+            out.writeObject(elements.next());
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Object[] elements = new Object[in.readInt()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = in.readObject();
+        }
+        root = new AtomicReference<>(build(elements));
+    }
+
+    @Override
+    public utilities.Iterator<E> rangeIterator(E lo, E hi) throws NullPointerException {
+        if (lo == null || hi == null) {
+            throw new NullPointerException("Range bounds cannot be null");
+        }
+        return new RangeIterator(root.get(), lo, hi);
+    }
+
+    @Override
+    public utilities.Iterator<E> inorderIterator() {
+        return new InorderIterator(root.get());
+    }
+
+    @Override
+    public utilities.Iterator<E> preorderIterator() {
+        return new PreorderIterator(root.get());
+    }
+
+    @Override
+    public utilities.Iterator<E> postorderIterator() {
+        return new PostorderIterator(root.get());
+    }
+
+    /**
+     * Base class for the iterators, each over the version of the tree that
+     * was current when it was made. They walk it the same way BSTree's do,
+     * with a stack no deeper than the tree.
+     */
+    private abstract class SnapshotIterator implements utilities.Iterator<E> {
+        protected final ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public E next() throws java.util.NoSuchElementException {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return advance().getElement();
+        }
+
+        protected abstract BSTreeNode<E> advance();
+    }
+
+    private class InorderIterator extends SnapshotIterator {
+        InorderIterator(BSTreeNode<E> snapshot) {
+            pushLeftSpine(snapshot);
+        }
+
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            pushLeftSpine(node.getRight());
+            return node;
+        }
+
+        private void pushLeftSpine(BSTreeNode<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.getLeft();
+            }
+        }
+    }
+
+    private class RangeIterator extends SnapshotIterator {
+        private final E lo;
+        private final E hi;
+
+        RangeIterator(BSTreeNode<E> snapshot, E lo, E hi) {
+            this.lo = lo;
+            this.hi = hi;
+            pushFrom(snapshot);
+            trimPastHi();
+        }
+
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            pushFrom(node.getRight());
+            trimPastHi();
+            return node;
+        }
+
+        private void pushFrom(BSTreeNode<E> node) {
+            while (node != null) {
+                if (node.getElement().compareTo(lo) < 0) {
+                    node = node.getRight();
+                } else {
+                    stack.push(node);
+                    node = node.getLeft();
+                }
+            }
+        }
+
+        private void trimPastHi() {
+            if (!stack.isEmpty() && stack.peek().getElement().compareTo(hi) > 0) {
+                stack.clear();
+            }
+        }
+    }
+
+    private class PreorderIterator extends SnapshotIterator {
+        PreorderIterator(BSTreeNode<E> snapshot) {
+            if (snapshot != null) {
+                stack.push(snapshot);
+            }
+        }
+
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            if (node.getRight() != null) {
+                stack.push(node.getRight());
+            }
+            if (node.getLeft() != null) {
+                stack.push(node.getLeft());
+            }
+            return node;
+        }
+    }
+
+    private class PostorderIterator extends SnapshotIterator {
+        PostorderIterator(BSTreeNode<E> snapshot) {
+            pushFirstLeaf(snapshot);
+        }
+
+        @Override
+        protected BSTreeNode<E> advance() {
+            BSTreeNode<E> node = stack.pop();
+            BSTreeNode<E> parent = stack.peek();
+
+            if (parent != null && parent.getLeft() == node && parent.getRight() != null) {
+                pushFirstLeaf(parent.getRight());
+            }
+            return node;
+        }
+
+        private void pushFirstLeaf(BSTreeNode<E> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.getLeft() != null ? node.getLeft() : node.getRight();
+            }
+        }
+    }
+}
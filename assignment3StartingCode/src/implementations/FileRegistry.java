@@ -0,0 +1,105 @@
+package implementations;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every file name a small int id, the same one for as long as the
+ * program runs, so words can refer to files by id instead of each keeping its
+ * own copy of the name.
+ *
+ * Ids are handed out in the order names are first seen, starting at 0.
+ * Looking up a name that already has an id never blocks, so worker threads can
+ * share the registry; new names are added under a lock.
+ *
+ * A program that keeps running, such as the server, can have the registry
+ * forget the names nothing refers to any more with retainAll. Their ids are
+ * not handed out again, so ids stay in the order names were first seen.
+ */
+public final class FileRegistry
+{
+	private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	// written before the id is published in ids, read without locking
+	private static volatile String[] names = new String[16];
+	private static int count;
+	// names forgotten by retainAll
+	private static int forgotten;
+
+	private FileRegistry() {
+	}
+
+	/**
+	 * The id of a file name, giving it the next free id if it has none yet.
+	 * @param filename the file name
+	 * @return the id of the file
+	 */
+	public static int idOf(String filename) {
+		Integer id = ids.get(filename);
+		return id != null ? id : register(filename);
+	}
+
+	private static synchronized int register(String filename) {
+		Integer id = ids.get(filename);
+		if (id != null) {
+			return id;
+		}
+		String[] current = names;
+		if (count == current.length) {
+			current = Arrays.copyOf(current, count * 2);
+		}
+		current[count] = filename;
+		names = current;
+		ids.put(filename, count);
+		return count++;
+	}
+
+	/**
+	 * The file name an id was given to.
+	 * @param id an id returned by idOf
+	 * @return the file name
+	 */
+	public static String nameOf(int id) {
+		String[] current = names;
+		if (id < 0 || id >= current.length || current[id] == null) {
+			throw new IllegalArgumentException("No file has id " + id);
+		}
+		return current[id];
+	}
+
+	/**
+	 * Forget the names whose ids are not in use. A name seen again gets a new
+	 * id. Only call this while no other thread is using the registry and
+	 * nothing holds an id outside the set.
+	 * @param inUse the ids still in use
+	 * @return how many names were forgotten
+	 */
+	public static synchronized int retainAll(Set<Integer> inUse) {
+		String[] current = Arrays.copyOf(names, names.length);
+		int removed = 0;
+		for (int id = 0; id < count; id++) {
+			if (current[id] != null && !inUse.contains(id)) {
+				ids.remove(current[id]);
+				current[id] = null;
+				removed++;
+			}
+		}
+		names = current;
+		forgotten += removed;
+		return removed;
+	}
+
+	/**
+	 * @return how many ids have been handed out; every id is less than this
+	 */
+	public static synchronized int size() {
+		return count;
+	}
+
+	/**
+	 * @return how many file names have an id now, leaving out forgotten ones
+	 */
+	public static synchronized int nameCount() {
+		return count - forgotten;
+	}
+}
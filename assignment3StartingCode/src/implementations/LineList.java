@@ -0,0 +1,134 @@
+package implementations;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The line numbers a word appears on in one file, kept as a growable int
+ * array in increasing order with no duplicates.
+ *
+ * A file is read from top to bottom, so a new line number is almost always
+ * bigger than or equal to the last one and add is O(1): append it or, if it is
+ * the same line again, drop it. Only a smaller number (the same file read a
+ * second time) needs a binary search.
+ */
+public class LineList implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private int[] lines;
+	private int size;
+
+	public LineList() {
+		this(4);
+	}
+
+	/**
+	 * @param capacity how many line numbers to make room for up front
+	 */
+	public LineList(int capacity) {
+		lines = new int[Math.max(1, capacity)];
+	}
+
+	/**
+	 * @param other the line numbers to start with, copied
+	 */
+	public LineList(LineList other) {
+		lines = Arrays.copyOf(other.lines, Math.max(1, other.size));
+		size = other.size;
+	}
+
+	/**
+	 * Add a line number unless it is already in the list.
+	 * @param line the line number
+	 * @return true if it was added
+	 */
+	public boolean add(int line) {
+		if (size == 0 || line > lines[size - 1]) {
+			if (size == lines.length) {
+				lines = Arrays.copyOf(lines, size + (size >> 1) + 1);
+			}
+			lines[size++] = line;
+			return true;
+		}
+		if (line == lines[size - 1]) {
+			return false;
+		}
+
+		int index = Arrays.binarySearch(lines, 0, size, line);
+		if (index >= 0) {
+			return false;
+		}
+		index = -index - 1;
+		if (size == lines.length) {
+			lines = Arrays.copyOf(lines, size + (size >> 1) + 1);
+		}
+		System.arraycopy(lines, index, lines, index + 1, size - index);
+		lines[index] = line;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Move every line number by the same amount, e.g. when the lines were
+	 * counted from the start of a piece of a file rather than the file itself.
+	 * @param offset how much to add to each line number
+	 */
+	public void shift(int offset) {
+		for (int i = 0; i < size; i++) {
+			lines[i] += offset;
+		}
+	}
+
+	/**
+	 * @param index position in the list, starting at 0
+	 * @return the line number at that position
+	 */
+	public int get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		return lines[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return a copy of the line numbers
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(lines, size);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (obj == null || getClass() != obj.getClass()) return false;
+		LineList other = (LineList) obj;
+		if (size != other.size) return false;
+		for (int i = 0; i < size; i++) {
+			if (lines[i] != other.lines[i]) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + lines[i];
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
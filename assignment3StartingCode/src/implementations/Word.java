@@ -1,20 +1,46 @@
 package implementations;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a word with all its occurrences across multiple files 
+ * 
+ * Files are kept by their FileRegistry id in a sorted array, next to the line
+ * numbers for each, rather than in a map keyed by the file name.
+ *
+ * Each change happens under the word's own lock, so threads sharing a word in
+ * a ConcurrentBSTree can add occurrences to it at the same time. Reading a
+ * single value is safe too, but a walk over the files by index only sees one
+ * consistent state while holding the lock (synchronized (word)) or when no
+ * other thread is changing the word; getFileOccurrences takes a copy.
  */
 
 public class Word implements Comparable<Word>, Serializable
 {
 	private static final long serialVersionUID = 1L;
 	
+	// saved the same way as before file ids, as a map from file name to lines,
+	// since ids are only valid while the program runs
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("text", String.class),
+		new ObjectStreamField("fileOccurrences", HashMap.class)
+	};
+	
 	private String text;
 
-	private HashMap<String, ArrayList<Integer>> fileOccurrences;
+	// sorted file ids, with the lines for fileIds[i] in lines[i]
+	private transient int[] fileIds;
+	private transient LineList[] lines;
+	private transient int fileCount;
 	
 	/**
 	 * Constructor - creating a new word entry
@@ -23,7 +49,8 @@ public class Word implements Comparable<Word>, Serializable
 	
 	public Word(String text) {
 		this.text = text.toLowerCase();
-		this.fileOccurrences = new HashMap<>();
+		this.fileIds = new int[1];
+		this.lines = new LineList[1];
 	}
 	
 	/**
@@ -33,28 +60,184 @@ public class Word implements Comparable<Word>, Serializable
 	 */
 	
 	public void addOccurrence(String filename, int lineNumber) {
-		if (!fileOccurrences.containsKey(filename)) {
-			fileOccurrences.put(filename, new ArrayList<>());
+		addOccurrence(FileRegistry.idOf(filename), lineNumber);
+	}
+	
+	/**
+	 * Add an occurrence to this word 
+	 * @param fileId FileRegistry id of the file the word was found in 
+	 * @param lineNumber which line number 
+	 */
+	
+	public synchronized void addOccurrence(int fileId, int lineNumber) {
+		// a file is read from start to end, so it is nearly always the last one
+		int index = fileCount > 0 && fileIds[fileCount - 1] == fileId ? fileCount - 1 : indexOf(fileId);
+		if (index < 0) {
+			index = insertFile(-index - 1, fileId, new LineList());
 		}
 		
-		ArrayList<Integer> lines = fileOccurrences.get(filename);
-		if (!lines.contains(lineNumber)) {
-			lines.add(lineNumber);
+		// lines come in order, so a repeat is only ever the last one
+		lines[index].add(lineNumber);
+	}
+	
+	/**
+	 * Add every occurrence of another entry for the same word.
+	 * @param other the other entry, not shared with other threads; it should
+	 *        not be used afterwards, as its line lists may be taken over
+	 */
+	
+	public synchronized void addOccurrences(Word other) {
+		for (int i = 0; i < other.fileCount; i++) {
+			int index = indexOf(other.fileIds[i]);
+			if (index < 0) {
+				insertFile(-index - 1, other.fileIds[i], other.lines[i]);
+			} else {
+				LineList from = other.lines[i];
+				for (int j = 0; j < from.size(); j++) {
+					lines[index].add(from.get(j));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Move all line numbers by the same amount.
+	 * @param offset how much to add to each line number
+	 */
+	
+	public synchronized void shiftLines(int offset) {
+		for (int i = 0; i < fileCount; i++) {
+			lines[i].shift(offset);
+		}
+	}
+	
+	/**
+	 * Set all line numbers for one file at once, replacing any already there.
+	 * Used when loading a saved repository.
+	 * @param filename which file the lines belong to
+	 * @param lines the line numbers
+	 */
+	
+	public void setLines(String filename, LineList lines) {
+		setLines(FileRegistry.idOf(filename), lines);
+	}
+	
+	/**
+	 * Set all line numbers for one file at once, replacing any already there.
+	 * @param fileId FileRegistry id of the file the lines belong to
+	 * @param lines the line numbers
+	 */
+	
+	public synchronized void setLines(int fileId, LineList lines) {
+		int index = indexOf(fileId);
+		if (index < 0) {
+			insertFile(-index - 1, fileId, lines);
+		} else {
+			this.lines[index] = lines;
+		}
+	}
+	
+	/**
+	 * Forget every occurrence in one file.
+	 * @param fileId FileRegistry id of the file
+	 * @return true if the word appeared in the file
+	 */
+	
+	public synchronized boolean removeFile(int fileId) {
+		int index = indexOf(fileId);
+		if (index < 0) {
+			return false;
+		}
+		fileCount--;
+		System.arraycopy(fileIds, index + 1, fileIds, index, fileCount - index);
+		System.arraycopy(lines, index + 1, lines, index, fileCount - index);
+		lines[fileCount] = null;
+		return true;
+	}
+	
+	private int indexOf(int fileId) {
+		return Arrays.binarySearch(fileIds, 0, fileCount, fileId);
+	}
+	
+	private int insertFile(int index, int fileId, LineList fileLines) {
+		if (fileCount == fileIds.length) {
+			fileIds = Arrays.copyOf(fileIds, fileCount * 2);
+			lines = Arrays.copyOf(lines, fileCount * 2);
 		}
+		System.arraycopy(fileIds, index, fileIds, index + 1, fileCount - index);
+		System.arraycopy(lines, index, lines, index + 1, fileCount - index);
+		fileIds[index] = fileId;
+		lines[index] = fileLines;
+		fileCount++;
+		return index;
 	}
 	
 	public String getText() {
 		return text;
 	}
 	
-	public HashMap<String, ArrayList<Integer>> getFileOccurrences() {
-		return fileOccurrences;
+	/**
+	 * @return how many files the word appears in
+	 */
+	
+	public synchronized int getFileCount() {
+		return fileCount;
+	}
+	
+	/**
+	 * @param index which file, from 0 to getFileCount() - 1, in id order
+	 * @return the FileRegistry id of that file
+	 */
+	
+	public synchronized int getFileId(int index) {
+		if (index < 0 || index >= fileCount) {
+			throw new IndexOutOfBoundsException("index " + index + ", files " + fileCount);
+		}
+		return fileIds[index];
+	}
+	
+	/**
+	 * @param index which file, from 0 to getFileCount() - 1, in id order
+	 * @return the lines the word is on in that file
+	 */
+	
+	public synchronized LineList getLines(int index) {
+		if (index < 0 || index >= fileCount) {
+			throw new IndexOutOfBoundsException("index " + index + ", files " + fileCount);
+		}
+		return lines[index];
 	}
 	
-	public int getTotalFrequency() {
+	/**
+	 * @param filename a file name
+	 * @return the lines the word is on in that file, or null if it is not in it
+	 */
+	
+	public LineList getLines(String filename) {
+		int fileId = FileRegistry.idOf(filename);
+		synchronized (this) {
+			int index = indexOf(fileId);
+			return index < 0 ? null : lines[index];
+		}
+	}
+	
+	/**
+	 * A copy of the occurrences keyed by file name, in file id order, taken in
+	 * one go. The reports and the repository read the arrays directly instead.
+	 */
+	
+	public synchronized Map<String, LineList> getFileOccurrences() {
+		Map<String, LineList> occurrences = new LinkedHashMap<>();
+		for (int i = 0; i < fileCount; i++) {
+			occurrences.put(FileRegistry.nameOf(fileIds[i]), new LineList(lines[i]));
+		}
+		return occurrences;
+	}
+	
+	public synchronized int getTotalFrequency() {
 		int total = 0;
-		for (ArrayList<Integer> lines : fileOccurrences.values()) {
-			total += lines.size();
+		for (int i = 0; i < fileCount; i++) {
+			total += lines[i].size();
 		}
 		return total;
 	}
@@ -73,8 +256,46 @@ public class Word implements Comparable<Word>, Serializable
 		return text.equals(other.text);
 	}
 	
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("text", text);
+		fields.put("fileOccurrences", new HashMap<>(getFileOccurrences()));
+		out.writeFields();
+	}
+	
+	/**
+	 * Words saved by older versions hold their lines as ArrayList&lt;Integer&gt;;
+	 * turn those into LineLists so repository.ser files can still be converted.
+	 */
+	
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		text = (String) fields.get("text", null);
+		fileIds = new int[1];
+		lines = new LineList[1];
+		
+		Map<String, Object> stored = (Map<String, Object>) fields.get("fileOccurrences", null);
+		if (stored == null) {
+			return;
+		}
+		for (Map.Entry<String, Object> entry : stored.entrySet()) {
+			LineList fileLines;
+			if (entry.getValue() instanceof List) {
+				List<Integer> old = (List<Integer>) entry.getValue();
+				fileLines = new LineList(old.size());
+				for (int line : old) {
+					fileLines.add(line);
+				}
+			} else {
+				fileLines = (LineList) entry.getValue();
+			}
+			setLines(entry.getKey(), fileLines);
+		}
+	}
+	
 	@Override
 	public String toString() {
-		return text + " (appears in " + fileOccurrences.size() + "files)";
+		return text + " (appears in " + fileCount + "files)";
 	}
 }
@@ -4,6 +4,8 @@
 package utilities;
 
 import java.io.Serializable;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import implementations.BSTreeNode;
 
@@ -86,11 +88,37 @@ public interface BSTreeADT<E extends Comparable<? super E>> extends	Serializable
 	 */
 	public boolean add( E newEntry ) throws NullPointerException;
 
+	/**
+	 * Looks up the element equal to the one passed in and returns it. If no equal
+	 * element is stored, the element passed in is added to the tree according to
+	 * its natural ordering and returned. Both cases take a single descent from the
+	 * root.
+	 * 
+	 * @param entry the element to find or add
+	 * @return the element already stored in the tree, or <code>entry</code> if it
+	 *         was added
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public E addOrGet( E entry ) throws NullPointerException;
+
+	/**
+	 * Looks up the element that compares equal to a key. The key does not have
+	 * to be an element itself, only comparable to one in a way that agrees with
+	 * the natural ordering of the elements, so callers can search without first
+	 * creating an element to search for.
+	 * 
+	 * @param key the key to compare elements against
+	 * @return the element equal to the key, null if not found
+	 * @throws NullPointerException if the key being passed in is null
+	 */
+	public E find( Comparable<? super E> key ) throws NullPointerException;
+
 	/**
 	 * Removes the smallest element in the tree according to the natural ordering
 	 * established by the Comparable implementation.
 	 * 
-	 * @return the removed element or null if the tree is empty
+	 * @return the node holding the removed element, no longer linked to the tree,
+	 *         or null if the tree is empty
 	 */
 	public BSTreeNode<E> removeMin();
 
@@ -98,10 +126,160 @@ public interface BSTreeADT<E extends Comparable<? super E>> extends	Serializable
 	 * Removes the largest element in the tree according to the natural ordering
 	 * established by the Comparable implementation.
 	 * 
-	 * @return the removed element or null if the tree is empty
+	 * @return the node holding the removed element, no longer linked to the tree,
+	 *         or null if the tree is empty
 	 */
 	public BSTreeNode<E> removeMax();
 
+	/**
+	 * Removes the element equal to the one passed in, if the tree holds one.
+	 * 
+	 * @param entry the element to remove
+	 * @return true if an element was removed, false if none was equal to
+	 *         <code>entry</code>
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public boolean remove( E entry ) throws NullPointerException;
+
+	/**
+	 * Removes every element the filter accepts. The filter is given each element
+	 * in the tree, in natural order, and must not change the tree itself.
+	 * 
+	 * @param filter returns true for the elements to remove
+	 * @return the number of elements removed
+	 * @throws NullPointerException if the filter is null
+	 */
+	public int removeAll( Predicate<? super E> filter ) throws NullPointerException;
+
+	/**
+	 * Removes every element, handing each to the sink in natural order, in a
+	 * single pass over the tree rather than a removeMin per element.
+	 * 
+	 * If the sink throws, or the thread is interrupted, the drain stops there:
+	 * the elements the sink took are removed, the rest stay in the tree,
+	 * including the one the sink threw on, and the tree is left valid. The sink
+	 * must not change the tree.
+	 * 
+	 * An interrupt stops the drain silently, with no exception: the thread
+	 * stays interrupted and the return value is smaller than the tree was, so
+	 * a caller that has to tell the two apart checks the interrupt status.
+	 * 
+	 * @param sink gets the elements, smallest first
+	 * @return the number of elements removed, fewer than were in the tree if
+	 *         the thread was interrupted
+	 * @throws NullPointerException if the sink is null
+	 */
+	public int drainAscending( Consumer<? super E> sink ) throws NullPointerException;
+
+	/**
+	 * Removes the <code>k</code> smallest elements, or all of them if there are
+	 * fewer, handing each to the sink in natural order. Stops early, leaving a
+	 * valid tree, just as {@link #drainAscending(Consumer)} does, also silently
+	 * when the thread is interrupted.
+	 * 
+	 * @param k the most elements to remove
+	 * @param sink gets the elements, smallest first
+	 * @return the number of elements removed, fewer than asked for if the
+	 *         thread was interrupted
+	 * @throws NullPointerException if the sink is null
+	 * @throws IllegalArgumentException if <code>k</code> is negative
+	 */
+	public int drainAscending( int k, Consumer<? super E> sink ) throws NullPointerException, IllegalArgumentException;
+
+	/**
+	 * Removes every element, handing each to the sink largest first. Otherwise
+	 * the same as {@link #drainAscending(Consumer)}, including stopping silently
+	 * when the thread is interrupted.
+	 * 
+	 * @param sink gets the elements, largest first
+	 * @return the number of elements removed, fewer than were in the tree if
+	 *         the thread was interrupted
+	 * @throws NullPointerException if the sink is null
+	 */
+	public int drainDescending( Consumer<? super E> sink ) throws NullPointerException;
+
+	/**
+	 * Removes the <code>k</code> largest elements, or all of them if there are
+	 * fewer, handing each to the sink largest first. Otherwise the same as
+	 * {@link #drainAscending(int, Consumer)}, including stopping silently when
+	 * the thread is interrupted.
+	 * 
+	 * @param k the most elements to remove
+	 * @param sink gets the elements, largest first
+	 * @return the number of elements removed, fewer than asked for if the
+	 *         thread was interrupted
+	 * @throws NullPointerException if the sink is null
+	 * @throws IllegalArgumentException if <code>k</code> is negative
+	 */
+	public int drainDescending( int k, Consumer<? super E> sink ) throws NullPointerException, IllegalArgumentException;
+
+	/**
+	 * Returns the element that would be at the given position of an in-order
+	 * iteration, counting from 0. That is the element with exactly
+	 * <code>k</code> smaller elements in the tree.
+	 * 
+	 * @param k the rank of the element to return, from 0 to size() - 1
+	 * @return the element with rank <code>k</code>
+	 * @throws IndexOutOfBoundsException if <code>k</code> is negative or not less
+	 *                                   than the size of the tree
+	 */
+	public E select( int k ) throws IndexOutOfBoundsException;
+
+	/**
+	 * Counts the elements in the tree that are smaller than the element passed
+	 * in. The element does not have to be stored in the tree.
+	 * 
+	 * @param entry the element to rank
+	 * @return the number of elements in the tree smaller than <code>entry</code>
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public int rank( E entry ) throws NullPointerException;
+
+	/**
+	 * Returns the largest element in the tree that is less than or equal to the
+	 * element passed in.
+	 * 
+	 * @param entry the element to compare against
+	 * @return the greatest element less than or equal to <code>entry</code>, or
+	 *         null if there is no such element
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public E floor( E entry ) throws NullPointerException;
+
+	/**
+	 * Returns the smallest element in the tree that is greater than or equal to
+	 * the element passed in.
+	 * 
+	 * @param entry the element to compare against
+	 * @return the least element greater than or equal to <code>entry</code>, or
+	 *         null if there is no such element
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public E ceiling( E entry ) throws NullPointerException;
+
+	/**
+	 * Counts the elements in the tree between two bounds, both inclusive.
+	 * 
+	 * @param lo the lower bound
+	 * @param hi the upper bound
+	 * @return the number of elements <code>e</code> with lo &lt;= e &lt;= hi, 0 if
+	 *         <code>lo</code> is greater than <code>hi</code>
+	 * @throws NullPointerException if either bound is null
+	 */
+	public int countRange( E lo, E hi ) throws NullPointerException;
+
+	/**
+	 * Generates an in-order iteration over the elements between two bounds, both
+	 * inclusive. Elements are in their natural order.
+	 * 
+	 * @param lo the lower bound
+	 * @param hi the upper bound
+	 * @return an iterator over the elements <code>e</code> with lo &lt;= e &lt;=
+	 *         hi in their natural order
+	 * @throws NullPointerException if either bound is null
+	 */
+	public Iterator<E> rangeIterator( E lo, E hi ) throws NullPointerException;
+
 	/**
 	 * Generates an in-order iteration over the contents of the tree. Elements are
 	 * in their natural order.
@@ -0,0 +1,126 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import implementations.AVLTree;
+import implementations.ConcurrentBSTree;
+import implementations.FileRegistry;
+import implementations.Word;
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: Throughput of a word index shared by several threads,
+ * for 1, 2, 4, ... threads up to a maximum. Each operation looks a word up,
+ * adds it if it is new and adds an occurrence to it, as indexing does; most
+ * words are drawn from a small set of common ones, as in real text.
+ *
+ * Compares ConcurrentBSTree with an AVLTree behind one lock. New words go
+ * into ConcurrentBSTree one at a time, through its single root, so it can
+ * only pull ahead on the operations that find the word already there.
+ *
+ * Usage: java benchmarks.ConcurrentTreeBenchmark [maxThreads] [operations]
+ */
+
+public class ConcurrentTreeBenchmark
+{
+	// Attributes
+	private static final int VOCABULARY = 50000;
+	// share of operations on the most common tenth of the words
+	private static final double COMMON = 0.9;
+
+	public static void main( String[] args ) throws InterruptedException
+	{
+		int maxThreads = args.length > 0 ? Integer.parseInt( args[0] ) : 8;
+		int operations = args.length > 1 ? Integer.parseInt( args[1] ) : 2000000;
+
+		String[] words = new String[VOCABULARY];
+		Random random = new Random( 1 );
+		for( int i = 0; i < VOCABULARY; i++ )
+		{
+			char[] text = new char[3 + random.nextInt( 8 )];
+			for( int c = 0; c < text.length; c++ )
+			{
+				text[c] = (char) ( 'a' + random.nextInt( 26 ) );
+			}
+			words[i] = new String( text );
+		}
+
+		System.out.printf( "%-8s %14s %14s%n", "threads", "concurrent/s", "locked/s" );
+		for( int threads = 1; threads <= maxThreads; threads *= 2 )
+		{
+			// the first round warms up the JIT
+			for( int round = 0; round < 2; round++ )
+			{
+				double concurrent = run( new ConcurrentBSTree<Word>(), false, words, threads, operations );
+				double locked = run( new AVLTree<Word>(), true, words, threads, operations );
+				if( round == 1 )
+				{
+					System.out.printf( "%-8d %14.0f %14.0f%n", threads, concurrent, locked );
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return operations per second over all threads
+	 */
+	private static double run( final BSTreeADT<Word> tree, final boolean lock, final String[] words, int threads,
+			int operations ) throws InterruptedException
+	{
+		final int perThread = operations / threads;
+		final CountDownLatch start = new CountDownLatch( 1 );
+		Thread[] workers = new Thread[threads];
+		for( int t = 0; t < threads; t++ )
+		{
+			final int fileId = FileRegistry.idOf( "benchmark" + t + ".txt" );
+			final Random random = new Random( t );
+			workers[t] = new Thread( () -> {
+				try
+				{
+					start.await();
+				}
+				catch( InterruptedException e )
+				{
+					return;
+				}
+				for( int i = 0; i < perThread; i++ )
+				{
+					int bound = random.nextDouble() < COMMON ? VOCABULARY / 10 : VOCABULARY;
+					String text = words[random.nextInt( bound )];
+					if( lock )
+					{
+						synchronized( tree )
+						{
+							index( tree, text, fileId, i );
+						}
+					}
+					else
+					{
+						index( tree, text, fileId, i );
+					}
+				}
+			} );
+			workers[t].start();
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		for( Thread worker : workers )
+		{
+			worker.join();
+		}
+		return (double) perThread * threads / ( ( System.nanoTime() - begin ) / 1e9 );
+	}
+
+	private static void index( BSTreeADT<Word> tree, String text, int fileId, int line )
+	{
+		Word key = new Word( text );
+		Word word = tree.find( key );
+		if( word == null )
+		{
+			word = tree.addOrGet( key );
+		}
+		word.addOccurrence( fileId, line / 8 + 1 );
+	}
+}
@@ -0,0 +1,122 @@
+package benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import implementations.AVLTree;
+import implementations.ArrayBSTree;
+import utilities.BSTreeADT;
+
+/**
+ * Class Description: What a big word tree costs the garbage collector, for the
+ * AVLTree made of node objects and the ArrayBSTree kept in arrays, which
+ * balance the same way. For each it reports the time to add every word, the
+ * part of it spent in GC, the heap the tree takes on top of the words, the
+ * pause of a full GC with the tree live and the time of a lookup.
+ *
+ * Both trees hold the same String objects, so the difference in heap and GC
+ * time is the tree itself. Give the JVM room, e.g. -Xmx4g.
+ *
+ * Usage: java benchmarks.TreeMemoryBenchmark [words]
+ */
+
+public class TreeMemoryBenchmark
+{
+	// Attributes
+	private static final int FULL_GCS = 5;
+	private static final int LOOKUPS = 1000000;
+
+	private static Object sink;
+
+	public static void main( String[] args )
+	{
+		int n = args.length > 0 ? Integer.parseInt( args[0] ) : 5000000;
+
+		String[] words = new String[n];
+		Random random = new Random( 1 );
+		for( int i = 0; i < n; i++ )
+		{
+			char[] text = new char[3 + random.nextInt( 8 )];
+			for( int c = 0; c < text.length; c++ )
+			{
+				text[c] = (char) ( 'a' + random.nextInt( 26 ) );
+			}
+			words[i] = new String( text );
+		}
+
+		System.out.printf( "%-8s %10s %10s %12s %10s %12s %10s%n", "tree", "size", "build ms", "build gc ms",
+				"heap MB", "full gc ms", "lookup ns" );
+		// the first round warms up the JIT
+		for( int round = 0; round < 2; round++ )
+		{
+			run( "avl", new AVLTree<String>(), words, round == 1 );
+			run( "array", new ArrayBSTree<String>(), words, round == 1 );
+		}
+	}
+
+	private static void run( String name, BSTreeADT<String> tree, String[] words, boolean print )
+	{
+		long before = usedAfterGc();
+
+		long gcTime = gcMillis();
+		long start = System.nanoTime();
+		for( String word : words )
+		{
+			tree.add( word );
+		}
+		long build = System.nanoTime() - start;
+		gcTime = gcMillis() - gcTime;
+
+		long heap = usedAfterGc() - before;
+
+		long pauses = 0;
+		for( int i = 0; i < FULL_GCS; i++ )
+		{
+			start = System.nanoTime();
+			System.gc();
+			pauses += System.nanoTime() - start;
+		}
+
+		Random random = new Random( 2 );
+		int found = 0;
+		start = System.nanoTime();
+		for( int i = 0; i < LOOKUPS; i++ )
+		{
+			if( tree.contains( words[random.nextInt( words.length )] ) )
+			{
+				found++;
+			}
+		}
+		long lookups = System.nanoTime() - start;
+
+		if( print )
+		{
+			System.out.printf( "%-8s %10d %10d %12d %10.1f %12.1f %10.1f%n", name, tree.size(), build / 1000000, gcTime,
+					heap / 1048576.0, pauses / 1e6 / FULL_GCS, (double) lookups / LOOKUPS );
+		}
+		// keeps the tree live until here
+		sink = found + tree.size();
+	}
+
+	private static long usedAfterGc()
+	{
+		System.gc();
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * @return milliseconds spent in every collector so far
+	 */
+	private static long gcMillis()
+	{
+		long total = 0;
+		for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+		{
+			total += Math.max( 0, gc.getCollectionTime() );
+		}
+		return total;
+	}
+}
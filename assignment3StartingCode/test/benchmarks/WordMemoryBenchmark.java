@@ -0,0 +1,202 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.ObjectName;
+
+import appDomain.WordIndexer;
+import implementations.Word;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * Class Description: The heap a word tree keeps per word and per posting (a
+ * line of a word in a file) once a file has been indexed. For each file it
+ * takes a class histogram of the live objects before and after indexing,
+ * with the JVM's own GC.class_histogram command (what jmap -histo:live
+ * prints), so it needs no agent or library; the difference is what the tree
+ * keeps, class by class.
+ *
+ * With no files it indexes a 2 MB file of made-up text, written to a
+ * temporary file with a fixed seed so every run reads the same words.
+ *
+ * Usage: java benchmarks.WordMemoryBenchmark [file...]
+ */
+
+public class WordMemoryBenchmark
+{
+	// Attributes
+	private static final int SYNTHETIC_BYTES = 2 << 20;
+	private static final int VOCABULARY = 100000;
+	// classes of the histogram to show
+	private static final int TOP = 12;
+
+	private static final Pattern HISTOGRAM_ROW = Pattern.compile( "^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)" );
+
+	private static Object sink;
+
+	public static void main( String[] args ) throws Exception
+	{
+		List<String> files = new ArrayList<String>();
+		File synthetic = null;
+		for( String arg : args )
+		{
+			files.add( arg );
+		}
+		if( files.isEmpty() )
+		{
+			synthetic = writeSynthetic();
+			files.add( synthetic.getPath() );
+		}
+
+		try
+		{
+			// the first pass warms up the tokenizer, and loads the classes
+			// the histogram would otherwise count
+			WordIndexer.indexFile( files.get( 0 ) );
+			for( String file : files )
+			{
+				measure( file );
+			}
+		}
+		finally
+		{
+			if( synthetic != null )
+			{
+				synthetic.delete();
+			}
+		}
+	}
+
+	private static void measure( String file ) throws Exception
+	{
+		// the first histogram waits in a file, so none of it is on the heap
+		// to be counted by the second
+		File snapshot = File.createTempFile( "histogram", ".txt" );
+		Files.write( snapshot.toPath(), histogram().getBytes( StandardCharsets.UTF_8 ) );
+		BSTreeADT<Word> tree = WordIndexer.indexFile( file );
+		Map<String, long[]> after = parse( histogram() );
+		Map<String, long[]> before = parse( new String( Files.readAllBytes( snapshot.toPath() ), StandardCharsets.UTF_8 ) );
+		snapshot.delete();
+
+		int words = tree.size();
+		long postings = 0;
+		Iterator<Word> it = tree.inorderIterator();
+		while( it.hasNext() )
+		{
+			Word word = it.next();
+			for( int f = 0; f < word.getFileCount(); f++ )
+			{
+				postings += word.getLines( f ).size();
+			}
+		}
+
+		long heap = 0;
+		List<Map.Entry<String, long[]>> added = new ArrayList<Map.Entry<String, long[]>>();
+		for( Map.Entry<String, long[]> row : after.entrySet() )
+		{
+			long[] old = before.get( row.getKey() );
+			long[] delta = { row.getValue()[0] - ( old == null ? 0 : old[0] ),
+					row.getValue()[1] - ( old == null ? 0 : old[1] ) };
+			if( delta[1] > 0 )
+			{
+				heap += delta[1];
+				added.add( new HashMap.SimpleEntry<String, long[]>( row.getKey(), delta ) );
+			}
+		}
+
+		System.out.printf( "%s: %,d words, %,d postings%n", file, words, postings );
+		System.out.printf( "  retained heap %.1f MB: %.1f B/word, %.1f B/posting%n", heap / 1048576.0,
+				(double) heap / words, (double) heap / postings );
+		added.sort( ( a, b ) -> Long.compare( b.getValue()[1], a.getValue()[1] ) );
+
+		System.out.printf( "  %-40s %12s %12s %10s%n", "class", "instances", "bytes", "B/word" );
+		for( Map.Entry<String, long[]> row : added.subList( 0, Math.min( TOP, added.size() ) ) )
+		{
+			System.out.printf( "  %-40s %12d %12d %10.1f%n", row.getKey(), row.getValue()[0], row.getValue()[1],
+					(double) row.getValue()[1] / words );
+		}
+		// keeps the tree live until here
+		sink = tree;
+	}
+
+	/**
+	 * The live objects on the heap, by class, as GC.class_histogram prints
+	 * them. Taking it runs a full GC.
+	 */
+	private static String histogram() throws Exception
+	{
+		return (String) ManagementFactory.getPlatformMBeanServer().invoke(
+				new ObjectName( "com.sun.management:type=DiagnosticCommand" ), "gcClassHistogram",
+				new Object[] { new String[0] }, new String[] { String[].class.getName() } );
+	}
+
+	/**
+	 * @return instances and bytes of each class in a histogram
+	 */
+	private static Map<String, long[]> parse( String text )
+	{
+		Map<String, long[]> rows = new HashMap<String, long[]>();
+		for( String line : text.split( "\n" ) )
+		{
+			Matcher matcher = HISTOGRAM_ROW.matcher( line );
+			if( matcher.find() )
+			{
+				rows.put( matcher.group( 3 ),
+						new long[] { Long.parseLong( matcher.group( 1 ) ), Long.parseLong( matcher.group( 2 ) ) } );
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Lines of words drawn from a fixed vocabulary, the common ones far more
+	 * often, as in real text.
+	 */
+	private static File writeSynthetic() throws IOException
+	{
+		Random random = new Random( 11 );
+		String[] vocabulary = new String[VOCABULARY];
+		for( int i = 0; i < VOCABULARY; i++ )
+		{
+			char[] text = new char[3 + random.nextInt( 8 )];
+			for( int c = 0; c < text.length; c++ )
+			{
+				text[c] = (char) ( 'a' + random.nextInt( 26 ) );
+			}
+			vocabulary[i] = new String( text );
+		}
+
+		File file = File.createTempFile( "words", ".txt" );
+		try( FileWriter out = new FileWriter( file ) )
+		{
+			long written = 0;
+			while( written < SYNTHETIC_BYTES )
+			{
+				StringBuilder line = new StringBuilder();
+				for( int w = 0; w < 10; w++ )
+				{
+					// squaring skews the picks towards the start of the list
+					double pick = random.nextDouble();
+					line.append( vocabulary[(int) ( pick * pick * VOCABULARY )] ).append( ' ' );
+				}
+				line.append( '\n' );
+				out.write( line.toString() );
+				written += line.length();
+			}
+		}
+		return file;
+	}
+}
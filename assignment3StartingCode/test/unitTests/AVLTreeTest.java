@@ -0,0 +1,193 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.AVLTree;
+import implementations.BSTreeNode;
+
+/**
+ * Class Description: Tests for the self-balancing AVLTree implementation of
+ * the BSTreeADT.
+ */
+
+public class AVLTreeTest
+{
+	// Attributes
+	private AVLTree<Integer> tree;
+
+	/**
+	 * Initializes a new AVLTree instance before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new AVLTree<Integer>();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tree = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.AVLTree#add(java.lang.Comparable)}
+	 * that the height stays under 2*log2(n+1) after ascending inserts.
+	 */
+	@Test
+	public void testHeight_AscendingInserts()
+	{
+		int n = 100000;
+		for( int i = 0; i < n; i++ )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to update size correctly.", n, tree.size() );
+		assertTrue( "Tree is not balanced, height " + tree.getHeight(),
+				tree.getHeight() < 2 * log2( n + 1 ) );
+		assertTrue( "AVL invariant broken.", checkBalanced( tree.getRoot() ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.AVLTree#add(java.lang.Comparable)}
+	 * that the height stays under 2*log2(n+1) after descending inserts.
+	 */
+	@Test
+	public void testHeight_DescendingInserts()
+	{
+		int n = 100000;
+		for( int i = n; i > 0; i-- )
+		{
+			tree.add( i );
+		}
+
+		assertTrue( "Tree is not balanced, height " + tree.getHeight(),
+				tree.getHeight() < 2 * log2( n + 1 ) );
+		assertTrue( "AVL invariant broken.", checkBalanced( tree.getRoot() ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.AVLTree#getHeight()} with the same
+	 * sorted input that makes a plain BSTree reach a height of 7.
+	 */
+	@Test
+	public void testGetHeight_SortedSeven()
+	{
+		for( int i = 11; i <= 77; i += 11 )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to return correct height.", 3, tree.getHeight() );
+		assertEquals( "Failed to return the root element.", 44, (int) tree.getRoot().getElement() );
+	}
+
+	/**
+	 * Test method for {@link implementations.AVLTree#inorderIterator()} that
+	 * rotations keep the elements in their natural order.
+	 */
+	@Test
+	public void testInorderIterator_AfterRotations()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( ( i * 7919 ) % 1000 );
+		}
+
+		Iterator<Integer> it = tree.inorderIterator();
+		int expected = 0;
+		while( it.hasNext() )
+		{
+			assertEquals( "Failed to return the correct in-order iterator.", expected++, (int) it.next() );
+		}
+		assertEquals( "Failed to iterate over every element.", 1000, expected );
+	}
+
+	/**
+	 * Test method for {@link implementations.AVLTree#removeMin()} and
+	 * {@link implementations.AVLTree#removeMax()} that the tree stays balanced
+	 * as it shrinks from both ends.
+	 */
+	@Test
+	public void testRemoveMinMax_StaysBalanced()
+	{
+		for( int i = 0; i < 1024; i++ )
+		{
+			tree.add( i );
+		}
+
+		for( int i = 0; i < 300; i++ )
+		{
+			assertEquals( "Failed to return minimum value.", i, (int) tree.removeMin().getElement() );
+		}
+		for( int i = 1023; i > 900; i-- )
+		{
+			assertEquals( "Failed to return maximum value.", i, (int) tree.removeMax().getElement() );
+		}
+
+		assertEquals( "Failed to update size.", 1024 - 300 - 123, tree.size() );
+		assertTrue( "AVL invariant broken.", checkBalanced( tree.getRoot() ) );
+	}
+
+	private static double log2( int n )
+	{
+		return Math.log( n ) / Math.log( 2 );
+	}
+
+	/**
+	 * Checks the parent links, stored heights and sizes and AVL balance of every
+	 * node.
+	 */
+	private static boolean checkBalanced( BSTreeNode<Integer> root )
+	{
+		java.util.ArrayDeque<BSTreeNode<Integer>> stack = new java.util.ArrayDeque<>();
+		stack.push( root );
+		while( !stack.isEmpty() )
+		{
+			BSTreeNode<Integer> node = stack.pop();
+			int left = node.getLeft() == null ? 0 : node.getLeft().getHeight();
+			int right = node.getRight() == null ? 0 : node.getRight().getHeight();
+			if( node.getHeight() != 1 + Math.max( left, right ) || Math.abs( left - right ) > 1 )
+			{
+				return false;
+			}
+			int leftSize = node.getLeft() == null ? 0 : node.getLeft().getSize();
+			int rightSize = node.getRight() == null ? 0 : node.getRight().getSize();
+			if( node.getSize() != 1 + leftSize + rightSize )
+			{
+				return false;
+			}
+			if( node.getLeft() != null )
+			{
+				if( node.getLeft().getParent() != node )
+				{
+					return false;
+				}
+				stack.push( node.getLeft() );
+			}
+			if( node.getRight() != null )
+			{
+				if( node.getRight().getParent() != node )
+				{
+					return false;
+				}
+				stack.push( node.getRight() );
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,275 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.AVLTree;
+import implementations.ArrayBSTree;
+import implementations.BSTreeNode;
+
+/**
+ * Class Description: Tests for the AVL tree kept in arrays. It balances
+ * exactly like AVLTree, so most tests run both side by side and compare the
+ * shapes through the pre-order and post-order walks.
+ */
+
+public class ArrayBSTreeTest
+{
+	// Attributes
+	private static final int KEYS = 20000;
+
+	private ArrayBSTree<Integer> tree;
+	private AVLTree<Integer> expected;
+
+	/**
+	 * Initializes a new tree, and an AVLTree to compare it with, before each
+	 * test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new ArrayBSTree<Integer>();
+		expected = new AVLTree<Integer>();
+	}
+
+	/**
+	 * Test method for {@link implementations.ArrayBSTree#add} and
+	 * {@link implementations.ArrayBSTree#remove}, mixed at random, so removed
+	 * slots are handed out again, checking the shape after each round.
+	 */
+	@Test
+	public void testAddAndRemove_SameShapeAsAVLTree()
+	{
+		Random random = new Random( 24 );
+		for( int round = 0; round < 10; round++ )
+		{
+			for( int i = 0; i < KEYS / 5; i++ )
+			{
+				int key = random.nextInt( KEYS );
+				if( random.nextInt( 3 ) == 0 )
+				{
+					assertEquals( expected.remove( key ), tree.remove( key ) );
+				}
+				else
+				{
+					assertEquals( expected.add( key ), tree.add( key ) );
+				}
+			}
+			assertSameTree();
+		}
+
+		for( int i = 0; i < 100; i++ )
+		{
+			assertEquals( expected.removeMin().getElement(), tree.removeMin().getElement() );
+			assertEquals( expected.removeMax().getElement(), tree.removeMax().getElement() );
+		}
+		assertSameTree();
+	}
+
+	/**
+	 * Test method for the order queries of
+	 * {@link implementations.ArrayBSTree}, against AVLTree.
+	 */
+	@Test
+	public void testOrderQueries()
+	{
+		Random random = new Random( 7 );
+		for( int i = 0; i < 1000; i++ )
+		{
+			int key = random.nextInt( 5000 ) * 2;
+			expected.add( key );
+			tree.add( key );
+		}
+
+		for( int i = 0; i < tree.size(); i += 37 )
+		{
+			assertEquals( expected.select( i ), tree.select( i ) );
+		}
+		for( int key = -1; key < 10002; key += 13 )
+		{
+			assertEquals( expected.rank( key ), tree.rank( key ) );
+			assertEquals( expected.floor( key ), tree.floor( key ) );
+			assertEquals( expected.ceiling( key ), tree.ceiling( key ) );
+			assertEquals( expected.countRange( key, key + 500 ), tree.countRange( key, key + 500 ) );
+			assertEquals( expected.contains( key ), tree.contains( key ) );
+			assertEquals( expected.find( key ), tree.find( key ) );
+		}
+		assertEquals( toList( expected.rangeIterator( 1001, 2001 ) ), toList( tree.rangeIterator( 1001, 2001 ) ) );
+		assertEquals( Integer.valueOf( 10 ), tree.addOrGet( 10 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ArrayBSTree#removeAll} and the
+	 * drains, both the few taken one at a time and the many cut off by
+	 * rebuilding.
+	 */
+	@Test
+	public void testRemoveAllAndDrain()
+	{
+		for( int i = 0; i < KEYS; i++ )
+		{
+			expected.add( i );
+			tree.add( i );
+		}
+
+		assertEquals( expected.removeAll( e -> e % 3 == 0 ), tree.removeAll( e -> e % 3 == 0 ) );
+		assertSameTree();
+
+		List<Integer> expectedDrained = new ArrayList<Integer>();
+		List<Integer> drained = new ArrayList<Integer>();
+		assertEquals( expected.drainAscending( 10, expectedDrained::add ), tree.drainAscending( 10, drained::add ) );
+		assertSameTree();
+		int most = tree.size() - 10;
+		assertEquals( expected.drainDescending( most, expectedDrained::add ),
+				tree.drainDescending( most, drained::add ) );
+		assertSameTree();
+		assertEquals( expectedDrained, drained );
+
+		// the slots left free by all that are used again
+		for( int i = 0; i < KEYS; i += 2 )
+		{
+			assertEquals( expected.add( i ), tree.add( i ) );
+		}
+		assertSameTree();
+
+		assertEquals( expected.size(), tree.drainAscending( drained::add ) );
+		assertTrue( tree.isEmpty() );
+		assertEquals( 0, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ArrayBSTree#getRoot()}, which
+	 * returns a copy not linked to the tree.
+	 */
+	@Test
+	public void testGetRoot_Detached()
+	{
+		try
+		{
+			tree.getRoot();
+			fail( "Empty tree should have no root." );
+		}
+		catch( NullPointerException e )
+		{
+			// expected
+		}
+
+		tree.add( 2 );
+		tree.add( 1 );
+		tree.add( 3 );
+		BSTreeNode<Integer> root = tree.getRoot();
+		assertEquals( Integer.valueOf( 2 ), root.getElement() );
+		assertEquals( 2, root.getHeight() );
+		assertEquals( 3, root.getSize() );
+		assertNull( root.getLeft() );
+
+		root.setElement( 5 );
+		assertEquals( Integer.valueOf( 2 ), tree.getRoot().getElement() );
+		assertNull( tree.search( 4 ) );
+		assertEquals( Integer.valueOf( 3 ), tree.search( 3 ).getElement() );
+	}
+
+	/**
+	 * Test method for the iterators failing fast when the tree changes.
+	 */
+	@Test(expected = ConcurrentModificationException.class)
+	public void testInorderIterator_FailFast()
+	{
+		tree.add( 1 );
+		tree.add( 2 );
+		Iterator<Integer> it = tree.inorderIterator();
+		it.next();
+		tree.add( 3 );
+		it.next();
+	}
+
+	/**
+	 * Test method for serialization and
+	 * {@link implementations.ArrayBSTree#fromSorted}: both give a balanced tree
+	 * holding the same elements.
+	 *
+	 * @throws Exception if serialization fails
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSerializationAndFromSorted() throws Exception
+	{
+		Random random = new Random( 3 );
+		for( int i = 0; i < KEYS; i++ )
+		{
+			tree.add( random.nextInt( KEYS * 10 ) );
+		}
+		tree.removeAll( e -> e % 2 == 0 );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( tree );
+		}
+		ArrayBSTree<Integer> copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (ArrayBSTree<Integer>) in.readObject();
+		}
+		List<Integer> elements = toList( tree.inorderIterator() );
+		assertEquals( elements, toList( copy.inorderIterator() ) );
+		assertEquals( 32 - Integer.numberOfLeadingZeros( elements.size() ), copy.getHeight() );
+		assertTrue( copy.add( 0 ) );
+
+		ArrayBSTree<Integer> built = ArrayBSTree.fromSorted( elements.toArray( new Integer[0] ) );
+		assertEquals( elements, toList( built.inorderIterator() ) );
+		assertEquals( elements.size(), built.getRoot().getSize() );
+
+		try
+		{
+			ArrayBSTree.fromSorted( new Integer[] { 1, 3, 2 } );
+			fail( "Unsorted input should be rejected." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Same elements in the same shape: the same in-order, pre-order and
+	 * post-order walks, size and height.
+	 */
+	private void assertSameTree()
+	{
+		assertEquals( "Wrong size.", expected.size(), tree.size() );
+		assertEquals( "Wrong height.", expected.getHeight(), tree.getHeight() );
+		assertEquals( "Wrong order.", toList( expected.inorderIterator() ), toList( tree.inorderIterator() ) );
+		assertEquals( "Wrong shape.", toList( expected.preorderIterator() ), toList( tree.preorderIterator() ) );
+		assertEquals( "Wrong shape.", toList( expected.postorderIterator() ), toList( tree.postorderIterator() ) );
+		if( !tree.isEmpty() )
+		{
+			assertEquals( expected.getRoot().getSize(), tree.getRoot().getSize() );
+		}
+	}
+
+	private static List<Integer> toList( Iterator<Integer> it )
+	{
+		List<Integer> list = new ArrayList<Integer>();
+		while( it.hasNext() )
+		{
+			list.add( it.next() );
+		}
+		return list;
+	}
+}
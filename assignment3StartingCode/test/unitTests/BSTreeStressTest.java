@@ -0,0 +1,277 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import implementations.AVLTree;
+import implementations.BSTree;
+import implementations.BSTreeNode;
+
+/**
+ * Class Description: Stress tests that build very deep or very large trees
+ * from sorted keys and then run every operation on them, on the default
+ * thread stack size. Any recursion proportional to the height of the tree
+ * shows up here as a StackOverflowError.
+ */
+
+public class BSTreeStressTest
+{
+	/**
+	 * Sorted keys turn a plain BSTree into a linked list, so the height equals
+	 * the size. 50,000 is the size that used to overflow in production; every
+	 * insert walks the whole spine, so going much higher only makes the test
+	 * slower without making the tree any harder to handle.
+	 */
+	private static final int DEGENERATE_SIZE = 50000;
+
+	/**
+	 * AVLTree stays balanced on sorted input, so it can take a million keys.
+	 */
+	private static final int BALANCED_SIZE = 1000000;
+
+	/**
+	 * Random keys keep even a plain BSTree shallow enough to check every node
+	 * after each batch of removals.
+	 */
+	private static final int RANDOM_SIZE = 100000;
+
+	/**
+	 * Runs every operation on a plain BSTree of height DEGENERATE_SIZE.
+	 *
+	 * @throws Exception if serialization fails
+	 */
+	@Test
+	public void testDegenerateTree_AllOperations() throws Exception
+	{
+		BSTree<Integer> tree = new BSTree<Integer>();
+		for( int i = 0; i < DEGENERATE_SIZE; i++ )
+		{
+			assertTrue( tree.add( i ) );
+		}
+
+		assertEquals( "Height should equal size on sorted input.", DEGENERATE_SIZE, tree.getHeight() );
+		checkAllOperations( tree, DEGENERATE_SIZE );
+	}
+
+	/**
+	 * Runs every operation on an AVLTree built from BALANCED_SIZE sorted keys.
+	 *
+	 * @throws Exception if serialization fails
+	 */
+	@Test
+	public void testBalancedTree_AllOperations() throws Exception
+	{
+		AVLTree<Integer> tree = new AVLTree<Integer>();
+		for( int i = 0; i < BALANCED_SIZE; i++ )
+		{
+			assertTrue( tree.add( i ) );
+		}
+
+		assertTrue( "Tree is not balanced.", tree.getHeight() <= 2 * 20 );
+		checkAllOperations( tree, BALANCED_SIZE );
+	}
+
+	/**
+	 * Removes half of a random tree with remove, then a third of the rest with
+	 * removeAll and most of what is left with bounded drains, checking every
+	 * link, size and height after each step.
+	 */
+	@Test
+	public void testRandomRemove_BSTree()
+	{
+		checkRandomRemove( new BSTree<Integer>(), false );
+	}
+
+	/**
+	 * The same on an AVLTree, which must also stay balanced.
+	 */
+	@Test
+	public void testRandomRemove_AVLTree()
+	{
+		checkRandomRemove( new AVLTree<Integer>(), true );
+	}
+
+	private static void checkRandomRemove( BSTree<Integer> tree, boolean balanced )
+	{
+		Random random = new Random( 304 );
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		while( expected.size() < RANDOM_SIZE )
+		{
+			int key = random.nextInt( RANDOM_SIZE * 4 );
+			assertEquals( expected.add( key ), tree.add( key ) );
+		}
+
+		for( int batch = 0; batch < 10; batch++ )
+		{
+			for( int i = 0; i < RANDOM_SIZE / 20; i++ )
+			{
+				int key = random.nextInt( RANDOM_SIZE * 4 );
+				assertEquals( expected.remove( key ), tree.remove( key ) );
+			}
+			assertEquals( "Failed to keep size.", expected.size(), tree.size() );
+			checkStructure( tree, expected, balanced );
+		}
+
+		int removed = tree.removeAll( e -> e % 3 != 0 );
+		int before = expected.size();
+		expected.removeIf( e -> e % 3 != 0 );
+		assertEquals( before - expected.size(), removed );
+		assertEquals( "Failed to keep size.", expected.size(), tree.size() );
+		checkStructure( tree, expected, balanced );
+
+		// a few from the bottom, unlinked one at a time, then most of the rest
+		// from the top, cut off by rebuilding what is left
+		int[] previous = { -1 };
+		assertEquals( 100, tree.drainAscending( 100, e ->
+		{
+			assertTrue( e > previous[0] );
+			assertEquals( expected.pollFirst(), e );
+			previous[0] = e;
+		} ) );
+		checkStructure( tree, expected, balanced );
+		int most = expected.size() - 100;
+		assertEquals( most, tree.drainDescending( most, e -> assertEquals( expected.pollLast(), e ) ) );
+		checkStructure( tree, expected, balanced );
+
+		while( !tree.isEmpty() )
+		{
+			BSTreeNode<Integer> node = random.nextBoolean() ? tree.removeMin() : tree.removeMax();
+			assertTrue( expected.remove( node.getElement() ) );
+			assertNull( "Removed node should be unlinked.", node.getParent() );
+			assertTrue( node.isLeaf() );
+		}
+		assertTrue( expected.isEmpty() );
+		assertEquals( 0, tree.size() );
+	}
+
+	/**
+	 * Walks every node checking that its children point back to it, that the
+	 * stored sizes and heights are right, and that the elements are the
+	 * expected ones in order.
+	 */
+	private static void checkStructure( BSTree<Integer> tree, TreeSet<Integer> expected, boolean balanced )
+	{
+		if( expected.isEmpty() )
+		{
+			assertTrue( tree.isEmpty() );
+			return;
+		}
+		BSTreeNode<Integer> root = tree.getRoot();
+		assertNull( "Root should have no parent.", root.getParent() );
+		assertEquals( expected.size(), root.getSize() );
+
+		// post-order, so children are checked before their parents
+		ArrayDeque<BSTreeNode<Integer>> stack = new ArrayDeque<BSTreeNode<Integer>>();
+		ArrayDeque<BSTreeNode<Integer>> reversed = new ArrayDeque<BSTreeNode<Integer>>();
+		stack.push( root );
+		while( !stack.isEmpty() )
+		{
+			BSTreeNode<Integer> node = stack.pop();
+			reversed.push( node );
+			if( node.hasLeft() )
+			{
+				assertSame( "Broken parent link.", node, node.getLeft().getParent() );
+				stack.push( node.getLeft() );
+			}
+			if( node.hasRight() )
+			{
+				assertSame( "Broken parent link.", node, node.getRight().getParent() );
+				stack.push( node.getRight() );
+			}
+		}
+		while( !reversed.isEmpty() )
+		{
+			BSTreeNode<Integer> node = reversed.pop();
+			int leftHeight = node.hasLeft() ? node.getLeft().getHeight() : 0;
+			int rightHeight = node.hasRight() ? node.getRight().getHeight() : 0;
+			int leftSize = node.hasLeft() ? node.getLeft().getSize() : 0;
+			int rightSize = node.hasRight() ? node.getRight().getSize() : 0;
+			assertEquals( "Wrong height.", 1 + Math.max( leftHeight, rightHeight ), node.getHeight() );
+			assertEquals( "Wrong size.", 1 + leftSize + rightSize, node.getSize() );
+			if( balanced )
+			{
+				assertTrue( "Tree is not balanced.", Math.abs( leftHeight - rightHeight ) <= 1 );
+			}
+		}
+
+		Iterator<Integer> it = tree.inorderIterator();
+		for( Integer e : expected )
+		{
+			assertEquals( e, it.next() );
+		}
+		assertFalse( it.hasNext() );
+	}
+
+	/**
+	 * Calls every BSTreeADT operation on a tree holding 0..n-1.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void checkAllOperations( BSTreeADT<Integer> tree, int n ) throws Exception
+	{
+		assertEquals( "Failed to return correct size.", n, tree.size() );
+		assertFalse( tree.isEmpty() );
+		assertNotNull( tree.getRoot() );
+
+		// search from both ends of the tree
+		assertTrue( tree.contains( 0 ) );
+		assertTrue( tree.contains( n - 1 ) );
+		assertFalse( tree.contains( n ) );
+		assertEquals( n - 1, (int) tree.search( n - 1 ).getElement() );
+		assertNull( tree.search( -1 ) );
+		assertFalse( tree.add( n - 1 ) );
+		assertEquals( n - 1, (int) tree.addOrGet( n - 1 ) );
+
+		assertEquals( n, count( tree.inorderIterator() ) );
+		assertEquals( n, count( tree.preorderIterator() ) );
+		assertEquals( n, count( tree.postorderIterator() ) );
+
+		// a round trip through serialization keeps every element
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( tree );
+		}
+		BSTreeADT<Integer> copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (BSTreeADT<Integer>) in.readObject();
+		}
+		assertEquals( n, copy.size() );
+		assertEquals( tree.getHeight(), copy.getHeight() );
+		assertTrue( copy.contains( n - 1 ) );
+
+		assertEquals( 0, (int) tree.removeMin().getElement() );
+		assertEquals( n - 1, (int) tree.removeMax().getElement() );
+		assertEquals( n - 2, tree.size() );
+
+		tree.clear();
+		assertTrue( tree.isEmpty() );
+		assertEquals( 0, tree.getHeight() );
+	}
+
+	private static int count( Iterator<Integer> it )
+	{
+		int count = 0;
+		int previous = -1;
+		while( it.hasNext() )
+		{
+			int next = it.next();
+			assertTrue( next >= 0 && next != previous );
+			previous = next;
+			count++;
+		}
+		return count;
+	}
+}
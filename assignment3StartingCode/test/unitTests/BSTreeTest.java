@@ -2,6 +2,11 @@ package unitTests;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -190,6 +195,154 @@ public class BSTreeTest
 		}
 	}
 
+	/**
+	 * Test method for {@link implementations.BSTree#addOrGet(java.lang.Comparable)}
+	 * to add an element that is not yet in the tree and return it.
+	 */
+	@Test
+	public void testAddOrGet_NewElement()
+	{
+		tree.add( four );
+		tree.add( two );
+
+		Integer actual = tree.addOrGet( six );
+
+		assertSame( "Failed to return the added element.", six, actual );
+		assertTrue( "Failed to add the element.", tree.contains( six ) );
+		assertEquals( "Failed to update size correctly.", 3, tree.size() );
+		assertEquals( "Failed to update height correctly.", 2, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#addOrGet(java.lang.Comparable)}
+	 * to return the stored element when an equal element is already in the tree.
+	 */
+	@Test
+	public void testAddOrGet_ExistingElement()
+	{
+		// two equal keys that are not the same object
+		BSTree<String> strings = new BSTree<String>();
+		String stored = new String( "four" );
+		String equal = new String( "four" );
+		strings.add( "two" );
+		strings.add( stored );
+
+		String actual = strings.addOrGet( equal );
+
+		assertSame( "Failed to return the stored element.", stored, actual );
+		assertEquals( "Size should not change.", 2, strings.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#find(java.lang.Comparable)}
+	 * to find the stored element with a key that is not an element itself.
+	 */
+	@Test
+	public void testFind()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		// a key that compares like the Integer 66 but is not one
+		Comparable<Integer> key = new Comparable<Integer>()
+		{
+			@Override
+			public int compareTo( Integer element )
+			{
+				return Integer.compare( 66, element );
+			}
+		};
+
+		assertSame( "Failed to find the stored element.", six, tree.find( key ) );
+		tree.removeMax();
+		assertNull( "Should not find a removed element.", tree.find( key ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#addOrGet(java.lang.Comparable)}
+	 * to throw a NullPointerException when passing a null.
+	 */
+	@Test
+	public void testAddOrGetForNullPointerException()
+	{
+		try
+		{
+			tree.addOrGet( null );
+			fail( "AddOrGet method failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Comparable[])} to
+	 * build a balanced tree with correct parent links from a sorted array.
+	 */
+	@Test
+	public void testFromSorted_Array()
+	{
+		Integer[] sorted = { one, two, three, four, five, six, seven };
+		tree = BSTree.fromSorted( sorted );
+
+		assertEquals( "Failed to update size correctly.", 7, tree.size() );
+		assertEquals( "Failed to build a balanced tree.", 3, tree.getHeight() );
+		assertEquals( "Failed to return the root element.", four, tree.getRoot().getElement() );
+
+		BSTreeNode<Integer> node = tree.search( one );
+		assertEquals( "Failed to link parent.", two, node.getParent().getElement() );
+		assertEquals( "Failed to link parent.", four, node.getParent().getParent().getElement() );
+		assertNull( "Root should have no parent.", tree.getRoot().getParent() );
+
+		Iterator<Integer> it = tree.inorderIterator();
+		for( Integer expected : sorted )
+		{
+			assertEquals( "Failed to return the correct in-order iterator.", expected, it.next() );
+		}
+		assertTrue( "Tree should still accept new elements.", tree.add( 99 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(utilities.Iterator)}
+	 * to rebuild a degenerate tree as a balanced one.
+	 */
+	@Test
+	public void testFromSorted_Iterator()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( i );
+		}
+
+		BSTree<Integer> balanced = BSTree.fromSorted( tree.inorderIterator() );
+
+		assertEquals( "Failed to update size correctly.", 1000, balanced.size() );
+		assertEquals( "Failed to build a balanced tree.", 10, balanced.getHeight() );
+		assertEquals( "Failed to select the middle element.", 500, (int) balanced.select( 500 ) );
+		assertEquals( "Failed to return empty tree.", 0, BSTree.fromSorted( new Integer[0] ).size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Comparable[])} to
+	 * throw an IllegalArgumentException when the elements are not sorted.
+	 */
+	@Test
+	public void testFromSorted_NotSorted()
+	{
+		Integer[] unsorted = { one, three, two };
+		try
+		{
+			BSTree.fromSorted( unsorted );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
 	/**
 	 * Test method for {@link implementations.BSTree#clear()} to clear the tree.
 	 */
@@ -381,6 +534,145 @@ public class BSTreeTest
 		assertEquals( "Failed to return correct height.", expected, actual );
 	}
 
+	/**
+	 * Test method for {@link implementations.BSTree#getHeight()} to return the
+	 * updated height after removing elements.
+	 */
+	@Test
+	public void testGetHeight_AfterRemove()
+	{
+		tree.add( one );
+		tree.add( two );
+		tree.add( three );
+		tree.add( four );
+		tree.removeMax();
+		tree.removeMin();
+		assertEquals( "Failed to return correct height.", 2, tree.getHeight() );
+		assertEquals( "Failed to update root subtree size.", 2, tree.getRoot().getSize() );
+		tree.removeMin();
+		tree.removeMin();
+		assertEquals( "Failed to return correct height.", 0, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#select(int)} to return the
+	 * element at each position of the in-order traversal.
+	 */
+	@Test
+	public void testSelect()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( three );
+		tree.add( seven );
+
+		Integer[] shouldBe = { one, two, three, four, five, six, seven };
+		for( int k = 0; k < shouldBe.length; k++ )
+		{
+			assertEquals( "Failed to select element " + k, shouldBe[k], tree.select( k ) );
+		}
+		try
+		{
+			tree.select( 7 );
+			fail( "Failed to throw IndexOutOfBoundsException." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#rank(java.lang.Comparable)}
+	 * to count the elements smaller than stored and missing elements.
+	 */
+	@Test
+	public void testRank()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		assertEquals( "Failed to rank the minimum.", 0, tree.rank( one ) );
+		assertEquals( "Failed to rank the root.", 2, tree.rank( four ) );
+		assertEquals( "Failed to rank a missing element.", 2, tree.rank( three ) );
+		assertEquals( "Failed to rank the maximum.", 4, tree.rank( six ) );
+		assertEquals( "Failed to rank past the maximum.", 5, tree.rank( seven ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#floor(java.lang.Comparable)}
+	 * and {@link implementations.BSTree#ceiling(java.lang.Comparable)} for stored,
+	 * missing and out of range elements.
+	 */
+	@Test
+	public void testFloorAndCeiling()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		assertEquals( "Failed to return the floor.", four, tree.floor( four ) );
+		assertEquals( "Failed to return the floor.", two, tree.floor( three ) );
+		assertNull( "Failed to return null floor.", tree.floor( one ) );
+		assertEquals( "Failed to return the ceiling.", four, tree.ceiling( four ) );
+		assertEquals( "Failed to return the ceiling.", six, tree.ceiling( five ) );
+		assertNull( "Failed to return null ceiling.", tree.ceiling( seven ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#countRange(java.lang.Comparable, java.lang.Comparable)}
+	 * to count the elements between two bounds.
+	 */
+	@Test
+	public void testCountRange()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( seven );
+
+		assertEquals( "Failed to count stored bounds.", 4, tree.countRange( two, six ) );
+		assertEquals( "Failed to count missing bounds.", 2, tree.countRange( 30, 60 ) );
+		assertEquals( "Failed to count the whole tree.", 6, tree.countRange( 0, 100 ) );
+		assertEquals( "Failed to count an empty range.", 0, tree.countRange( six, two ) );
+	}
+
+	/**
+	 * Test method for
+	 * {@link implementations.BSTree#rangeIterator(java.lang.Comparable, java.lang.Comparable)}
+	 * to iterate over the elements between two bounds in order.
+	 */
+	@Test
+	public void testRangeIterator()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+		tree.add( three );
+		tree.add( seven );
+
+		Integer[] shouldBe = { two, three, four, five };
+		Iterator<Integer> it = tree.rangeIterator( 20, 55 );
+		int i = 0;
+		while( it.hasNext() )
+		{
+			assertEquals( "Range iterator is out of order ", shouldBe[i++], it.next() );
+		}
+		assertEquals( "Failed to return every element in range.", shouldBe.length, i );
+		assertFalse( "Range past the maximum should be empty.", tree.rangeIterator( 80, 90 ).hasNext() );
+	}
+
 	/**
 	 * Test method for {@link implementations.BSTree#getRoot()} to return the root
 	 * node of the tree.
@@ -526,6 +818,109 @@ public class BSTreeTest
 		assertEquals( "Preorder iterator is out of order ", true, actual );
 	}
 
+	/**
+	 * Test method for {@link implementations.BSTree#inorderIterator()},
+	 * {@link implementations.BSTree#preorderIterator()} and
+	 * {@link implementations.BSTree#postorderIterator()} to have no elements for
+	 * an empty tree.
+	 */
+	@Test
+	public void testIterators_EmptyTree()
+	{
+		assertFalse( "In-order iterator should be empty.", tree.inorderIterator().hasNext() );
+		assertFalse( "Pre-order iterator should be empty.", tree.preorderIterator().hasNext() );
+		assertFalse( "Post-order iterator should be empty.", tree.postorderIterator().hasNext() );
+		try
+		{
+			tree.inorderIterator().next();
+			fail( "Failed to throw NoSuchElementException." );
+		}
+		catch( NoSuchElementException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#postorderIterator()} on
+	 * trees that lean only to the left and only to the right.
+	 */
+	@Test
+	public void testPostorderIterator_Degenerate()
+	{
+		tree.add( three );
+		tree.add( two );
+		tree.add( one );
+
+		Iterator<Integer> it = tree.postorderIterator();
+		assertEquals( one, it.next() );
+		assertEquals( two, it.next() );
+		assertEquals( three, it.next() );
+		assertFalse( it.hasNext() );
+
+		tree.clear();
+		tree.add( one );
+		tree.add( two );
+		tree.add( three );
+
+		it = tree.postorderIterator();
+		assertEquals( three, it.next() );
+		assertEquals( two, it.next() );
+		assertEquals( one, it.next() );
+		assertFalse( it.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#inorderIterator()} to throw
+	 * ConcurrentModificationException when the tree changes during iteration.
+	 */
+	@Test
+	public void testInorderIterator_FailFast()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		Iterator<Integer> it = tree.inorderIterator();
+		it.next();
+		tree.add( one );
+		try
+		{
+			it.next();
+			fail( "Failed to throw ConcurrentModificationException." );
+		}
+		catch( ConcurrentModificationException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#preorderIterator()} to throw
+	 * ConcurrentModificationException when an element is removed during
+	 * iteration.
+	 */
+	@Test
+	public void testPreorderIterator_FailFast()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		Iterator<Integer> it = tree.preorderIterator();
+		it.next();
+		tree.removeMax();
+		try
+		{
+			it.next();
+			fail( "Failed to throw ConcurrentModificationException." );
+		}
+		catch( ConcurrentModificationException e )
+		{
+			assertTrue( true );
+		}
+	}
+
 	/**
 	 * Test method for {@link implementations.BSTree#size()} to return the size of a
 	 * non-empty tree.
@@ -607,4 +1002,151 @@ public class BSTreeTest
 	{
 		assertNull( "Failed to return maximum value.", tree.removeMax() );
 	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#remove(Comparable)} to
+	 * remove a node with two children, which its successor replaces.
+	 */
+	@Test
+	public void testRemove()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( three );
+		tree.add( five );
+		tree.add( seven );
+
+		assertTrue( "Failed to remove the root.", tree.remove( four ) );
+		assertEquals( "Failed to update size.", 6, tree.size() );
+		assertFalse( tree.contains( four ) );
+
+		BSTreeNode<Integer> root = tree.getRoot();
+		assertEquals( "Successor should take the root's place.", five, root.getElement() );
+		assertNull( root.getParent() );
+		assertSame( root, root.getLeft().getParent() );
+		assertSame( root, root.getRight().getParent() );
+		assertFalse( "Successor should be gone from its old place.", root.getRight().hasLeft() );
+		assertEquals( 6, root.getSize() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#remove(Comparable)} to
+	 * return false when the element is not in the tree.
+	 */
+	@Test
+	public void testRemove_NotFound()
+	{
+		tree.add( four );
+		tree.add( two );
+
+		assertFalse( "Failed to return false.", tree.remove( five ) );
+		assertEquals( "Size should not change.", 2, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#removeAll(java.util.function.Predicate)}
+	 * to remove every matching element and keep the rest in order.
+	 */
+	@Test
+	public void testRemoveAll()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( three );
+		tree.add( five );
+		tree.add( seven );
+
+		assertEquals( "Failed to return the number removed.", 3, tree.removeAll( e -> e % 2 == 0 ) );
+		assertEquals( "Failed to update size.", 4, tree.size() );
+
+		Iterator<Integer> it = tree.inorderIterator();
+		assertEquals( one, it.next() );
+		assertEquals( three, it.next() );
+		assertEquals( five, it.next() );
+		assertEquals( seven, it.next() );
+		assertFalse( it.hasNext() );
+		assertEquals( 0, tree.removeAll( e -> e > 100 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#drainAscending(java.util.function.Consumer)}
+	 * to hand over every element in order and leave the tree empty.
+	 */
+	@Test
+	public void testDrainAscending()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		ArrayList<Integer> drained = new ArrayList<Integer>();
+		assertEquals( "Failed to return the number drained.", 5, tree.drainAscending( drained::add ) );
+		assertEquals( Arrays.asList( one, two, four, five, six ), drained );
+		assertTrue( "Tree should be empty.", tree.isEmpty() );
+		assertEquals( 0, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#drainDescending(int, java.util.function.Consumer)}
+	 * to pop only the k largest.
+	 */
+	@Test
+	public void testDrainDescending_Bounded()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		ArrayList<Integer> drained = new ArrayList<Integer>();
+		assertEquals( "Failed to return the number drained.", 2, tree.drainDescending( 2, drained::add ) );
+		assertEquals( Arrays.asList( six, five ), drained );
+		assertEquals( "Failed to update size.", 3, tree.size() );
+		assertEquals( four, tree.removeMax().getElement() );
+		assertEquals( 0, tree.drainDescending( 0, drained::add ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#drainAscending(java.util.function.Consumer)}
+	 * to remove only what the sink took when it throws part way.
+	 */
+	@Test
+	public void testDrainAscending_SinkThrows()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		ArrayList<Integer> drained = new ArrayList<Integer>();
+		try
+		{
+			tree.drainAscending( e ->
+			{
+				if( e.equals( four ) )
+				{
+					throw new IllegalStateException( "full" );
+				}
+				drained.add( e );
+			} );
+			fail( "Failed to pass on the exception." );
+		}
+		catch( IllegalStateException e )
+		{
+			assertEquals( Arrays.asList( one, two ), drained );
+		}
+		assertEquals( "Failed to update size.", 3, tree.size() );
+		Iterator<Integer> it = tree.inorderIterator();
+		assertEquals( four, it.next() );
+		assertEquals( five, it.next() );
+		assertEquals( six, it.next() );
+	}
 }
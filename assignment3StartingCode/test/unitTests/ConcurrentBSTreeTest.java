@@ -0,0 +1,386 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.BSTreeNode;
+import implementations.ConcurrentBSTree;
+import implementations.FileRegistry;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for the BST that many threads can update and read
+ * at the same time.
+ */
+
+public class ConcurrentBSTreeTest
+{
+	// Attributes
+	private static final int WORDS = 2000;
+	private static final int WRITERS = 8;
+	private static final int READERS = 2;
+
+	private ConcurrentBSTree<Integer> tree;
+
+	/**
+	 * Initializes a new tree before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new ConcurrentBSTree<Integer>();
+	}
+
+	/**
+	 * Checks that every node is in order, has the right height and size and
+	 * is balanced as an AVL tree.
+	 *
+	 * @return the height of the subtree
+	 */
+	private static <E extends Comparable<? super E>> int checkSubtree( BSTreeNode<E> node, E lo, E hi )
+	{
+		if( node == null )
+		{
+			return 0;
+		}
+		E element = node.getElement();
+		assertTrue( "Out of order.", lo == null || lo.compareTo( element ) < 0 );
+		assertTrue( "Out of order.", hi == null || hi.compareTo( element ) > 0 );
+		int left = checkSubtree( node.getLeft(), lo, element );
+		int right = checkSubtree( node.getRight(), element, hi );
+		assertTrue( "Not balanced.", Math.abs( left - right ) <= 1 );
+		assertEquals( "Wrong height.", 1 + Math.max( left, right ), node.getHeight() );
+		int size = 1 + ( node.getLeft() == null ? 0 : node.getLeft().getSize() )
+				+ ( node.getRight() == null ? 0 : node.getRight().getSize() );
+		assertEquals( "Wrong size.", size, node.getSize() );
+		return node.getHeight();
+	}
+
+	/**
+	 * Test method for {@link implementations.ConcurrentBSTree#add} and the
+	 * order queries, with the elements added in random order and then
+	 * removed from both ends, by value, by a filter and by draining.
+	 */
+	@Test
+	public void testAddAndRemove()
+	{
+		List<Integer> values = new ArrayList<Integer>();
+		for( int i = 0; i < 500; i++ )
+		{
+			values.add( i * 2 );
+		}
+		Collections.shuffle( values, new Random( 7 ) );
+		for( Integer value : values )
+		{
+			assertTrue( tree.add( value ) );
+		}
+		assertFalse( "Added a duplicate.", tree.add( 10 ) );
+
+		assertEquals( 500, tree.size() );
+		checkSubtree( tree.getRoot(), null, null );
+		assertEquals( Integer.valueOf( 20 ), tree.select( 10 ) );
+		assertEquals( 10, tree.rank( 20 ) );
+		assertEquals( Integer.valueOf( 20 ), tree.floor( 21 ) );
+		assertEquals( Integer.valueOf( 22 ), tree.ceiling( 21 ) );
+		assertEquals( 6, tree.countRange( 9, 20 ) );
+
+		for( int i = 0; i < 100; i++ )
+		{
+			assertEquals( Integer.valueOf( i * 2 ), tree.removeMin().getElement() );
+			assertEquals( Integer.valueOf( 998 - i * 2 ), tree.removeMax().getElement() );
+		}
+		assertEquals( 300, tree.size() );
+		checkSubtree( tree.getRoot(), null, null );
+
+		assertTrue( tree.remove( 500 ) );
+		assertFalse( "Removed a missing element.", tree.remove( 500 ) );
+		assertEquals( 149, tree.removeAll( e -> e % 4 == 0 ) );
+		assertEquals( 150, tree.size() );
+		assertEquals( Integer.valueOf( 202 ), tree.select( 0 ) );
+		checkSubtree( tree.getRoot(), null, null );
+
+		ArrayList<Integer> drained = new ArrayList<Integer>();
+		assertEquals( 3, tree.drainAscending( 3, drained::add ) );
+		assertEquals( 100, tree.drainDescending( 100, drained::add ) );
+		assertEquals( Arrays.asList( 202, 206, 210, 798, 794 ), drained.subList( 0, 5 ) );
+		assertEquals( 47, tree.size() );
+		checkSubtree( tree.getRoot(), null, null );
+		assertEquals( 47, tree.drainAscending( drained::add ) );
+		assertTrue( tree.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ConcurrentBSTree#inorderIterator()}
+	 * to go on over the tree as it was when the iterator was made.
+	 */
+	@Test
+	public void testInorderIterator_Snapshot()
+	{
+		tree.add( 2 );
+		tree.add( 4 );
+		Iterator<Integer> it = tree.inorderIterator();
+		tree.add( 3 );
+		tree.add( 1 );
+
+		assertEquals( Integer.valueOf( 2 ), it.next() );
+		assertEquals( Integer.valueOf( 4 ), it.next() );
+		assertFalse( "Saw a later update.", it.hasNext() );
+		assertEquals( 4, tree.size() );
+	}
+
+	/**
+	 * Many threads add the same words, each with its own file, while others
+	 * search and iterate. Every word must end up in the tree once, with every
+	 * line every thread added to it, and readers must only ever see a sorted,
+	 * consistent tree.
+	 *
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testConcurrentAddOrGet() throws InterruptedException
+	{
+		final ConcurrentBSTree<Word> words = new ConcurrentBSTree<Word>();
+		final int[] fileIds = new int[WRITERS];
+		for( int t = 0; t < WRITERS; t++ )
+		{
+			fileIds[t] = FileRegistry.idOf( "stress" + t + "-" + System.nanoTime() + ".txt" );
+		}
+		// registered last, so it is the last file of every word
+		final int shared = FileRegistry.idOf( "stress-shared-" + System.nanoTime() + ".txt" );
+		final CountDownLatch start = new CountDownLatch( 1 );
+		final AtomicBoolean writing = new AtomicBoolean( true );
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		List<Thread> writers = new ArrayList<Thread>();
+		List<Thread> readers = new ArrayList<Thread>();
+
+		for( int t = 0; t < WRITERS; t++ )
+		{
+			final int thread = t;
+			writers.add( new Thread( () -> {
+				List<Integer> order = new ArrayList<Integer>();
+				for( int i = 0; i < WORDS; i++ )
+				{
+					order.add( i );
+				}
+				Collections.shuffle( order, new Random( thread ) );
+				await( start );
+				try
+				{
+					for( int i : order )
+					{
+						// every thread adds every word to its own file, and the
+						// same lines to one file they all share
+						Word word = words.addOrGet( new Word( "w" + i ) );
+						word.addOccurrence( fileIds[thread], i + 1 );
+						word.addOccurrence( shared, thread + 1 );
+					}
+				}
+				catch( Throwable e )
+				{
+					failure.compareAndSet( null, e );
+				}
+			} ) );
+		}
+		for( int t = 0; t < READERS; t++ )
+		{
+			readers.add( new Thread( () -> {
+				await( start );
+				try
+				{
+					while( writing.get() )
+					{
+						Iterator<Word> it = words.inorderIterator();
+						Word previous = null;
+						int count = 0;
+						while( it.hasNext() )
+						{
+							Word word = it.next();
+							assertTrue( "Out of order.", previous == null || previous.compareTo( word ) < 0 );
+							previous = word;
+							count++;
+						}
+						assertTrue( "Iterator and size disagree.", count <= words.size() );
+						words.find( new Word( "w" + count ) );
+					}
+				}
+				catch( Throwable e )
+				{
+					failure.compareAndSet( null, e );
+				}
+			} ) );
+		}
+
+		for( Thread thread : readers )
+		{
+			thread.start();
+		}
+		for( Thread thread : writers )
+		{
+			thread.start();
+		}
+		start.countDown();
+		for( Thread thread : writers )
+		{
+			thread.join();
+		}
+		writing.set( false );
+		for( Thread thread : readers )
+		{
+			thread.join();
+		}
+
+		if( failure.get() != null )
+		{
+			throw new AssertionError( failure.get() );
+		}
+		assertEquals( "Lost or doubled a word.", WORDS, words.size() );
+		checkSubtree( words.getRoot(), null, null );
+		Iterator<Word> it = words.inorderIterator();
+		while( it.hasNext() )
+		{
+			Word word = it.next();
+			int i = Integer.parseInt( word.getText().substring( 1 ) );
+			assertEquals( "Lost a file.", WRITERS + 1, word.getFileCount() );
+			assertEquals( "Lost a line.", WRITERS, word.getLines( WRITERS ).size() );
+			for( int f = 0; f < WRITERS; f++ )
+			{
+				assertArrayEquals( new int[] { i + 1 }, word.getLines( f ).toArray() );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.ConcurrentBSTree#drainAscending(int, java.util.function.Consumer)}
+	 * with many threads popping a few of the smallest elements at a time from
+	 * one tree: every element must reach exactly one of them, and each pop
+	 * must hand over its elements in order.
+	 *
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testConcurrentDrain() throws InterruptedException
+	{
+		for( int i = 0; i < WORDS * 10; i++ )
+		{
+			tree.add( i );
+		}
+		final CountDownLatch start = new CountDownLatch( 1 );
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final List<List<Integer>> sinks = new ArrayList<List<Integer>>();
+		List<Thread> drainers = new ArrayList<Thread>();
+
+		for( int t = 0; t < WRITERS; t++ )
+		{
+			final List<Integer> sink = new ArrayList<Integer>();
+			sinks.add( sink );
+			drainers.add( new Thread( () -> {
+				await( start );
+				try
+				{
+					List<Integer> pop = new ArrayList<Integer>();
+					while( tree.drainAscending( 7, pop::add ) > 0 )
+					{
+						for( int i = 1; i < pop.size(); i++ )
+						{
+							assertTrue( "Out of order.", pop.get( i - 1 ) < pop.get( i ) );
+						}
+						sink.addAll( pop );
+						pop.clear();
+					}
+				}
+				catch( Throwable e )
+				{
+					failure.compareAndSet( null, e );
+				}
+			} ) );
+		}
+
+		for( Thread thread : drainers )
+		{
+			thread.start();
+		}
+		start.countDown();
+		for( Thread thread : drainers )
+		{
+			thread.join();
+		}
+
+		if( failure.get() != null )
+		{
+			throw new AssertionError( failure.get() );
+		}
+		assertTrue( tree.isEmpty() );
+		int[] seen = new int[WORDS * 10];
+		for( List<Integer> sink : sinks )
+		{
+			for( int element : sink )
+			{
+				seen[element]++;
+			}
+		}
+		for( int i = 0; i < seen.length; i++ )
+		{
+			assertEquals( "Element " + i + " reached " + seen[i] + " sinks.", 1, seen[i] );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.ConcurrentBSTree#drainAscending(int, java.util.function.Consumer)}
+	 * that the elements a failing sink did not take are back in the tree.
+	 */
+	@Test
+	public void testDrain_SinkThrows()
+	{
+		for( int i = 0; i < 10; i++ )
+		{
+			tree.add( i );
+		}
+		final List<Integer> taken = new ArrayList<Integer>();
+		try
+		{
+			tree.drainAscending( 5, e -> {
+				if( e == 3 )
+				{
+					throw new IllegalStateException( "full" );
+				}
+				taken.add( e );
+			} );
+			fail( "Sink did not throw." );
+		}
+		catch( IllegalStateException e )
+		{
+			// expected
+		}
+		assertEquals( Arrays.asList( 0, 1, 2 ), taken );
+		assertEquals( 7, tree.size() );
+		assertEquals( Integer.valueOf( 3 ), tree.select( 0 ) );
+		checkSubtree( tree.getRoot(), null, null );
+	}
+
+	private static void await( CountDownLatch latch )
+	{
+		try
+		{
+			latch.await();
+		}
+		catch( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
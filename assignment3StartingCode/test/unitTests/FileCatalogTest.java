@@ -0,0 +1,163 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.FileCatalog;
+import appDomain.WordRepository;
+import implementations.BSTree;
+import implementations.FileRegistry;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for deciding which files have to be read again.
+ */
+
+public class FileCatalogTest
+{
+	// Attributes
+	private File text;
+	private File repository;
+	private FileCatalog catalog;
+
+	/**
+	 * Writes a small text file before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		text = File.createTempFile( "catalog", ".txt" );
+		repository = File.createTempFile( "catalog", ".dat" );
+		write( "one two three" );
+		catalog = new FileCatalog();
+	}
+
+	/**
+	 * Deletes the files after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		text.delete();
+		repository.delete();
+		new File( repository.getPath() + ".log" ).delete();
+	}
+
+	private void write( String contents ) throws IOException
+	{
+		try( FileWriter out = new FileWriter( text ) )
+		{
+			out.write( contents );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.FileCatalog#check(String)} that a file
+	 * is new the first time, unchanged when it is checked again or only
+	 * touched, and changed when its contents change.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test
+	public void testCheck() throws IOException
+	{
+		assertEquals( FileCatalog.Status.NEW, catalog.check( text.getPath() ) );
+		catalog.markRead( text.getPath() );
+		assertEquals( FileCatalog.Status.UNCHANGED, catalog.check( text.getPath() ) );
+
+		assertTrue( text.setLastModified( text.lastModified() - 60000 ) );
+		assertEquals( "A touched file should count as unchanged.", FileCatalog.Status.UNCHANGED,
+				catalog.check( text.getPath() ) );
+
+		write( "one two four" );
+		assertTrue( text.setLastModified( text.lastModified() - 120000 ) );
+		assertEquals( "Failed to see the new contents.", FileCatalog.Status.CHANGED, catalog.check( text.getPath() ) );
+		catalog.markRead( text.getPath() );
+		assertEquals( FileCatalog.Status.UNCHANGED, catalog.check( text.getPath() ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.FileCatalog#markRead(String)} and
+	 * {@link appDomain.FileCatalog#markFailed(String)} that a file is only
+	 * taken for read once it has been, and that one changed between the check
+	 * and the read is read again.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test
+	public void testMarkReadAndFailed() throws IOException
+	{
+		assertEquals( FileCatalog.Status.NEW, catalog.check( text.getPath() ) );
+		catalog.markFailed( text.getPath() );
+		assertEquals( "A file that was not read is new.", FileCatalog.Status.NEW, catalog.check( text.getPath() ) );
+		catalog.markRead( text.getPath() );
+
+		write( "one two four" );
+		assertTrue( text.setLastModified( text.lastModified() - 120000 ) );
+		assertEquals( FileCatalog.Status.CHANGED, catalog.check( text.getPath() ) );
+		write( "one two four five" );
+		catalog.markRead( text.getPath() );
+		assertEquals( "Edited after the check.", FileCatalog.Status.CHANGED, catalog.check( text.getPath() ) );
+		catalog.markFailed( text.getPath() );
+		assertTrue( text.setLastModified( text.lastModified() - 240000 ) );
+		assertEquals( "Its old lines are gone.", FileCatalog.Status.CHANGED, catalog.check( text.getPath() ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.FileCatalog#check(String)} that a file
+	 * read by an older version, with no size, time or hash, counts as changed.
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	@Test
+	public void testCheck_Unknown() throws IOException
+	{
+		catalog.addUnknown( FileRegistry.idOf( text.getPath() ) );
+		assertEquals( FileCatalog.Status.CHANGED, catalog.check( text.getPath() ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#save} and
+	 * {@link appDomain.WordRepository#load} that what is known about the files
+	 * is kept, both in the snapshot and in the log.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testSaveAndLoad() throws IOException
+	{
+		catalog.check( text.getPath() );
+		catalog.markRead( text.getPath() );
+		WordRepository.save( new BSTree<Word>(), catalog, repository );
+
+		FileCatalog loaded = new FileCatalog();
+		WordRepository.load( repository, loaded );
+		assertEquals( "Failed to keep the file in the snapshot.", FileCatalog.Status.UNCHANGED,
+				loaded.check( text.getPath() ) );
+
+		write( "five" );
+		assertTrue( text.setLastModified( text.lastModified() - 60000 ) );
+		assertEquals( FileCatalog.Status.CHANGED, loaded.check( text.getPath() ) );
+		loaded.markRead( text.getPath() );
+		try( WordRepository.Log log = WordRepository.openLog( repository ) )
+		{
+			log.filesChecked( loaded );
+		}
+
+		FileCatalog replayed = new FileCatalog();
+		WordRepository.load( repository, replayed );
+		assertEquals( "Failed to keep the file in the log.", FileCatalog.Status.UNCHANGED,
+				replayed.check( text.getPath() ) );
+	}
+}
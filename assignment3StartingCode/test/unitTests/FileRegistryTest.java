@@ -0,0 +1,55 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import implementations.FileRegistry;
+
+/**
+ * Class Description: Tests for the ids file names are given.
+ */
+
+public class FileRegistryTest
+{
+	/**
+	 * Test method for {@link implementations.FileRegistry#retainAll(Set)} that
+	 * only the names left out are forgotten, and that a forgotten name seen
+	 * again gets a new, later id. The registry is shared with the other tests,
+	 * so every id but the ones made here is kept.
+	 */
+	@Test
+	public void testRetainAll()
+	{
+		String kept = "kept" + System.nanoTime() + ".txt";
+		String dropped = "dropped" + System.nanoTime() + ".txt";
+		int keptId = FileRegistry.idOf( kept );
+		int droppedId = FileRegistry.idOf( dropped );
+		int names = FileRegistry.nameCount();
+
+		Set<Integer> inUse = new HashSet<Integer>();
+		for( int id = 0; id < FileRegistry.size(); id++ )
+		{
+			inUse.add( id );
+		}
+		inUse.remove( droppedId );
+		assertEquals( 1, FileRegistry.retainAll( inUse ) );
+
+		assertEquals( names - 1, FileRegistry.nameCount() );
+		assertEquals( kept, FileRegistry.nameOf( keptId ) );
+		assertEquals( keptId, FileRegistry.idOf( kept ) );
+		try
+		{
+			FileRegistry.nameOf( droppedId );
+			fail( "Failed to forget the name." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+		assertTrue( "Handed out an old id again.", FileRegistry.idOf( dropped ) > keptId );
+	}
+}
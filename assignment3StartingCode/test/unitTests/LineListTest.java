@@ -0,0 +1,87 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.LineList;
+
+/**
+ * Class Description: Tests for the primitive list of line numbers a word
+ * keeps per file.
+ */
+
+public class LineListTest
+{
+	// Attributes
+	private LineList lines;
+
+	/**
+	 * Creates an empty list with room for one line before each test, so adding
+	 * has to grow the array.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		lines = new LineList( 1 );
+	}
+
+	/**
+	 * Test method for {@link implementations.LineList#add(int)} to append lines
+	 * in order and drop a repeat of the last line.
+	 */
+	@Test
+	public void testAdd_InOrder()
+	{
+		for( int line = 1; line <= 100; line++ )
+		{
+			assertTrue( "Failed to add a new line.", lines.add( line ) );
+			assertFalse( "Should not add the same line twice.", lines.add( line ) );
+		}
+
+		assertEquals( "Failed to update size correctly.", 100, lines.size() );
+		assertEquals( 1, lines.get( 0 ) );
+		assertEquals( 100, lines.get( 99 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.LineList#add(int)} to keep the
+	 * lines sorted without duplicates when a file is read again.
+	 */
+	@Test
+	public void testAdd_OutOfOrder()
+	{
+		int[] added = { 5, 9, 12, 1, 9, 7, 12, 20 };
+		for( int line : added )
+		{
+			lines.add( line );
+		}
+
+		assertArrayEquals( "Failed to keep the lines sorted.", new int[] { 1, 5, 7, 9, 12, 20 }, lines.toArray() );
+		assertEquals( "[1, 5, 7, 9, 12, 20]", lines.toString() );
+	}
+
+	/**
+	 * Test method for {@link implementations.LineList#get(int)} to throw an
+	 * IndexOutOfBoundsException past the end, even when the array has room.
+	 */
+	@Test
+	public void testGetForIndexOutOfBoundsException()
+	{
+		lines.add( 3 );
+		lines.add( 4 );
+		lines.add( 5 );
+		try
+		{
+			lines.get( 3 );
+			fail( "Get method failed to throw IndexOutOfBoundsException." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+			assertTrue( true );
+		}
+	}
+}
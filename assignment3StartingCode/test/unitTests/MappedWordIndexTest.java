@@ -0,0 +1,281 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import appDomain.FileCatalog;
+import appDomain.MappedWordIndex;
+import implementations.AVLTree;
+import implementations.FileRegistry;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for the memory-mapped word index used by
+ * -offheap runs.
+ */
+
+public class MappedWordIndexTest
+{
+	// Attributes
+	private File file;
+	private MappedWordIndex index;
+
+	/**
+	 * Picks a temporary file for the index before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "repository", ".idx" );
+		file.delete();
+	}
+
+	/**
+	 * Closes the index and deletes its file after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		if( index != null )
+		{
+			index.close();
+		}
+		// and the later generations of it
+		for( File generation : file.getParentFile().listFiles() )
+		{
+			if( generation.getName().startsWith( file.getName() ) )
+			{
+				generation.delete();
+			}
+		}
+		file = null;
+	}
+
+	private static Word word( String text, String filename, int... lines )
+	{
+		Word word = new Word( text );
+		for( int line : lines )
+		{
+			word.addOccurrence( filename, line );
+		}
+		return word;
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#save} and
+	 * {@link appDomain.MappedWordIndex#open} that words, files and lines come
+	 * back, in order, including non-ASCII text.
+	 *
+	 * @throws IOException if the index cannot be written or read
+	 */
+	@Test
+	public void testSaveAndOpen() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		String[] texts = { "mango", "apple", "zebra", "café" };
+		for( String text : texts )
+		{
+			Word word = word( text, "a.txt", 3, 700 );
+			word.addOccurrence( "dir/b.txt", 1 );
+			tree.add( word );
+		}
+
+		MappedWordIndex.save( tree, new FileCatalog(), file );
+		index = MappedWordIndex.open( file, new FileCatalog() );
+
+		assertEquals( 4, index.size() );
+		String[] expected = { "apple", "café", "mango", "zebra" };
+		Iterator<Word> words = index.words( null );
+		for( int i = 0; i < expected.length; i++ )
+		{
+			Word word = words.next();
+			assertEquals( expected[i], word.getText() );
+			assertEquals( expected[i], index.get( i ).getText() );
+			assertEquals( 2, word.getFileCount() );
+			assertArrayEquals( new int[] { 3, 700 }, word.getLines( "a.txt" ).toArray() );
+			assertArrayEquals( new int[] { 1 }, word.getLines( "dir/b.txt" ).toArray() );
+		}
+		assertFalse( words.hasNext() );
+
+		assertEquals( 3, index.find( "café" ).getTotalFrequency() );
+		assertNull( "Found a missing word.", index.find( "banana" ) );
+		assertNull( "Found a missing word.", index.find( "zzz" ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#update} that new words
+	 * are merged in, new lines are added to old words, the lines of a dropped
+	 * file go and words left with no lines go with them.
+	 *
+	 * @throws IOException if the index cannot be written or read
+	 */
+	@Test
+	public void testUpdate() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		tree.add( word( "alpha", "a.txt", 1 ) );
+		tree.add( word( "beta", "b.txt", 2 ) );
+		Word gamma = word( "gamma", "a.txt", 3 );
+		gamma.addOccurrence( "b.txt", 4 );
+		tree.add( gamma );
+		tree.add( word( "omega", "a.txt", 9 ) );
+		MappedWordIndex.save( tree, new FileCatalog(), file );
+		index = MappedWordIndex.open( file, new FileCatalog() );
+
+		AVLTree<Word> added = new AVLTree<Word>();
+		added.add( word( "delta", "c.txt", 5 ) );
+		added.add( word( "gamma", "c.txt", 6 ) );
+		added.add( word( "zeta", "c.txt", 7 ) );
+		index = index.update( file, added, Collections.singleton( FileRegistry.idOf( "b.txt" ) ), new FileCatalog() );
+
+		assertEquals( 5, index.size() );
+		String[] expected = { "alpha", "delta", "gamma", "omega", "zeta" };
+		Iterator<Word> words = index.words( null );
+		for( String text : expected )
+		{
+			assertEquals( text, words.next().getText() );
+		}
+		Word merged = index.find( "gamma" );
+		assertNull( "Dropped file is still there.", merged.getLines( "b.txt" ) );
+		assertArrayEquals( new int[] { 3 }, merged.getLines( "a.txt" ).toArray() );
+		assertArrayEquals( new int[] { 6 }, merged.getLines( "c.txt" ).toArray() );
+		assertArrayEquals( new int[] { 9 }, index.find( "omega" ).getLines( "a.txt" ).toArray() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#update} that a word
+	 * left with no lines is not copied along with the unchanged words right
+	 * after it, so the words read one after another are those of the
+	 * directory.
+	 *
+	 * @throws IOException if the index cannot be written or read
+	 */
+	@Test
+	public void testUpdate_DroppedWordBeforeUnchanged() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		tree.add( word( "alpha", "a.txt", 1 ) );
+		tree.add( word( "beta", "b.txt", 2 ) );
+		tree.add( word( "omega", "a.txt", 3 ) );
+		tree.add( word( "psi", "a.txt", 4 ) );
+		MappedWordIndex.save( tree, new FileCatalog(), file );
+		index = MappedWordIndex.open( file, new FileCatalog() );
+
+		index = index.update( file, new AVLTree<Word>(), Collections.singleton( FileRegistry.idOf( "b.txt" ) ),
+				new FileCatalog() );
+
+		String[] expected = { "alpha", "omega", "psi" };
+		assertEquals( expected.length, index.size() );
+		Iterator<Word> words = index.words( null );
+		for( int i = 0; i < expected.length; i++ )
+		{
+			assertEquals( expected[i], words.next().getText() );
+			assertEquals( expected[i], index.get( i ).getText() );
+		}
+		assertFalse( words.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#update} that each update
+	 * is written as a new generation of the file, never over the one that is
+	 * mapped, and that the older ones are deleted once closed.
+	 *
+	 * @throws IOException if the index cannot be written or read
+	 */
+	@Test
+	public void testUpdate_NewGeneration() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		tree.add( word( "alpha", "a.txt", 1 ) );
+		MappedWordIndex.save( tree, new FileCatalog(), file );
+		assertTrue( file.exists() );
+		index = MappedWordIndex.open( file, new FileCatalog() );
+
+		for( int generation = 1; generation <= 2; generation++ )
+		{
+			AVLTree<Word> added = new AVLTree<Word>();
+			added.add( word( "word" + generation, "b.txt", generation ) );
+			index = index.update( file, added, Collections.<Integer>emptySet(), new FileCatalog() );
+			assertTrue( "No new generation.", new File( file.getPath() + "." + generation ).exists() );
+		}
+		assertEquals( 3, index.size() );
+		assertTrue( MappedWordIndex.exists( file ) );
+
+		index.close();
+		index = MappedWordIndex.open( file, new FileCatalog() );
+		assertEquals( 3, index.size() );
+		assertEquals( "word2", index.get( 2 ).getText() );
+		assertFalse( "Old generation left.", new File( file.getPath() + ".1" ).exists() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#words(String)} and
+	 * {@link appDomain.MappedWordIndex#count(String)} with a prefix.
+	 *
+	 * @throws IOException if the index cannot be written or read
+	 */
+	@Test
+	public void testPrefix() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		String[] texts = { "the", "then", "there", "this", "tea", "a", "zoo" };
+		for( String text : texts )
+		{
+			tree.add( word( text, "a.txt", 1 ) );
+		}
+		MappedWordIndex.save( tree, new FileCatalog(), file );
+		index = MappedWordIndex.open( file, new FileCatalog() );
+
+		assertEquals( 3, index.count( "the" ) );
+		Iterator<Word> words = index.words( "the" );
+		assertEquals( "the", words.next().getText() );
+		assertEquals( "then", words.next().getText() );
+		assertEquals( "there", words.next().getText() );
+		assertFalse( words.hasNext() );
+		assertEquals( 0, index.count( "x" ) );
+		assertFalse( index.words( "x" ).hasNext() );
+		assertEquals( 7, index.count( "" ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.MappedWordIndex#open} on a file that is
+	 * not an index, and on no file at all.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testOpen_NotAnIndex() throws IOException
+	{
+		index = MappedWordIndex.open( file, new FileCatalog() );
+		assertEquals( 0, index.size() );
+		assertFalse( index.words( null ).hasNext() );
+
+		try( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( new byte[64] );
+		}
+		try
+		{
+			MappedWordIndex.open( file, new FileCatalog() );
+			fail( "Should not open a file that is not an index." );
+		}
+		catch( IOException e )
+		{
+			// expected
+		}
+	}
+}
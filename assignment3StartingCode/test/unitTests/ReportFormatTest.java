@@ -0,0 +1,125 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.ReportFormat;
+import appDomain.ReportWriter;
+import implementations.BSTree;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for the reports written as JSON Lines, CSV and
+ * binary.
+ */
+
+public class ReportFormatTest
+{
+	// Attributes
+	private String plain;
+	private String odd;
+	private BSTree<Word> tree;
+
+	/**
+	 * Builds two words in two files, one with a name that has to be quoted,
+	 * before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		plain = "plain" + System.nanoTime() + ".txt";
+		odd = "a,\"b\"" + System.nanoTime() + ".txt";
+		Word fox = new Word( "fox" );
+		fox.addOccurrence( plain, 1 );
+		fox.addOccurrence( plain, 4 );
+		fox.addOccurrence( odd, 2 );
+		Word dog = new Word( "dog" );
+		dog.addOccurrence( odd, 3 );
+		tree = new BSTree<Word>();
+		tree.add( fox );
+		tree.add( dog );
+	}
+
+	private byte[] write( String format, String reportType ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ReportWriter writer = new ReportWriter( bytes, ReportFormat.CHARSET ) )
+		{
+			ReportFormat.forName( format, reportType, writer ).write( tree.inorderIterator() );
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Test method for {@link appDomain.ReportFormat#write} to write one JSON
+	 * object per word, escaping the quotes in file names.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testWrite_JsonLines() throws IOException
+	{
+		String oddJson = "\"" + odd.replace( "\"", "\\\"" ) + "\"";
+		String expected = "{\"word\":\"dog\",\"occurrences\":1,\"files\":[{\"file\":" + oddJson
+				+ ",\"occurrences\":1,\"lines\":[3]}]}\n"
+				+ "{\"word\":\"fox\",\"occurrences\":3,\"files\":[{\"file\":\"" + plain
+				+ "\",\"occurrences\":2,\"lines\":[1,4]},{\"file\":" + oddJson
+				+ ",\"occurrences\":1,\"lines\":[2]}]}\n";
+		assertEquals( expected, new String( write( ReportFormat.JSON_LINES, "-po" ), ReportFormat.CHARSET ) );
+
+		assertEquals( "{\"word\":\"dog\",\"files\":[" + oddJson + "]}\n"
+				+ "{\"word\":\"fox\",\"files\":[\"" + plain + "\"," + oddJson + "]}\n",
+				new String( write( ReportFormat.JSON_LINES, "-pf" ), ReportFormat.CHARSET ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ReportFormat#write} to write one CSV
+	 * row per word and file, quoting names with commas or quotes.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testWrite_Csv() throws IOException
+	{
+		String oddCsv = "\"" + odd.replace( "\"", "\"\"" ) + "\"";
+		String expected = "word,file,lines\r\n"
+				+ "dog," + oddCsv + ",3\r\n"
+				+ "fox," + plain + ",1 4\r\n"
+				+ "fox," + oddCsv + ",2\r\n";
+		assertEquals( expected, new String( write( ReportFormat.CSV, "-pl" ), ReportFormat.CHARSET ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ReportFormat#write} to write each file
+	 * name once, where it first comes up, and lines as deltas.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testWrite_Binary() throws IOException
+	{
+		byte[] report = write( ReportFormat.BINARY, "-pl" );
+		int oddLength = odd.length();
+		int plainLength = plain.length();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write( new byte[] { 'W', 'T', 'R', 'P', 1, 1 } );
+		// dog: one file, the first one seen, with line 3
+		expected.write( new byte[] { 3, 'd', 'o', 'g', 1, 0, (byte) oddLength } );
+		expected.write( odd.getBytes( ReportFormat.CHARSET ) );
+		expected.write( new byte[] { 1, 3 } );
+		// fox: a new file with lines 1 and 4, then the first file again
+		expected.write( new byte[] { 3, 'f', 'o', 'x', 2, 1, (byte) plainLength } );
+		expected.write( plain.getBytes( ReportFormat.CHARSET ) );
+		expected.write( new byte[] { 2, 1, 3, 0, 1, 2, 0 } );
+
+		assertArrayEquals( expected.toByteArray(), report );
+	}
+}
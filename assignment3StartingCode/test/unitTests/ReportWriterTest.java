@@ -0,0 +1,85 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import appDomain.ReportWriter;
+
+/**
+ * Class Description: Tests that reports come out the same as they did through
+ * a PrintWriter.
+ */
+
+public class ReportWriterTest
+{
+	// Attributes
+	private static final int[] NUMBERS = { 0, 7, 10, 99, 100, 123456789, -42, Integer.MAX_VALUE,
+			Integer.MIN_VALUE };
+
+	/**
+	 * Test method for {@link appDomain.ReportWriter#print(int)} to write
+	 * numbers as PrintWriter does, with a buffer small enough that they are
+	 * split across flushes.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testPrint_Numbers() throws IOException
+	{
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintWriter printWriter = new PrintWriter( new OutputStreamWriter( expected ) );
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		ReportWriter writer = new ReportWriter( actual, Charset.defaultCharset(), 16 );
+
+		for( int i = 0; i < 20; i++ )
+		{
+			for( int n : NUMBERS )
+			{
+				printWriter.print( n );
+				printWriter.print( ", " );
+				writer.print( n ).print( ", " );
+			}
+			printWriter.println();
+			writer.println();
+		}
+		printWriter.flush();
+		writer.flush();
+
+		assertEquals( "Numbers differ from PrintWriter.", expected.toString(), actual.toString() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.ReportWriter#println(String)} to write
+	 * strings longer than the buffer, and strings that are not plain ASCII,
+	 * with the same bytes as PrintWriter.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testPrintln_Strings() throws IOException
+	{
+		String[] lines = { "Word: hello", "  - res/café.txt (", "a much longer line than the buffer holds", "" };
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintWriter printWriter = new PrintWriter( new OutputStreamWriter( expected ) );
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+		try( ReportWriter writer = new ReportWriter( actual, Charset.defaultCharset(), 16 ) )
+		{
+			for( String line : lines )
+			{
+				printWriter.println( line );
+				writer.println( line );
+			}
+		}
+		printWriter.flush();
+
+		assertArrayEquals( "Text differs from PrintWriter.", expected.toByteArray(), actual.toByteArray() );
+	}
+}
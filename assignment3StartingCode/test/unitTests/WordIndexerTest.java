@@ -0,0 +1,315 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import appDomain.WordIndexer;
+import implementations.AVLTree;
+import implementations.BSTree;
+import implementations.ConcurrentBSTree;
+import implementations.FileRegistry;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for reading files into the word tree, one at a
+ * time and in parallel.
+ */
+
+public class WordIndexerTest
+{
+	// Attributes
+	private File dir;
+	private List<String> files;
+
+	/**
+	 * Writes a directory of small text files before each test. The same words
+	 * show up in several files and on several lines of the same file.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = File.createTempFile( "indexer", "" );
+		dir.delete();
+		dir.mkdir();
+		files = new ArrayList<String>();
+		for( int f = 0; f < 12; f++ )
+		{
+			File file = new File( dir, "file" + ( f < 10 ? "0" : "" ) + f + ".txt" );
+			try( FileWriter out = new FileWriter( file ) )
+			{
+				for( int line = 0; line < 50; line++ )
+				{
+					out.write( "Word" + ( line % 7 ) + "x alpha, beta! " + (char) ( 'a' + ( f + line ) % 26 ) + "zz\n" );
+				}
+			}
+			files.add( file.getPath() );
+		}
+	}
+
+	/**
+	 * Deletes the files after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		for( String file : files )
+		{
+			new File( file ).delete();
+		}
+		dir.delete();
+		dir = null;
+		files = null;
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#indexFiles(java.util.List)}
+	 * that reading the files on several threads gives the same words, files and
+	 * lines, in the same order, as reading them on one.
+	 */
+	@Test
+	public void testIndexFiles_ParallelMatchesSequential()
+	{
+		BSTreeADT<Word> sequential = new WordIndexer( new BSTree<Word>(), 1 ).indexFiles( files );
+		BSTreeADT<Word> parallel = new WordIndexer( new BSTree<Word>(), 4 ).indexFiles( files );
+
+		assertEquals( "Failed to read every word.", sequential.size(), parallel.size() );
+		Iterator<Word> expected = sequential.inorderIterator();
+		Iterator<Word> actual = parallel.inorderIterator();
+		while( expected.hasNext() )
+		{
+			Word e = expected.next();
+			Word a = actual.next();
+			assertEquals( "Words are out of order.", e.getText(), a.getText() );
+			assertEquals( "Files are out of order.", new ArrayList<String>( e.getFileOccurrences().keySet() ),
+					new ArrayList<String>( a.getFileOccurrences().keySet() ) );
+			assertEquals( "Failed to read the same lines.", e.getFileOccurrences(), a.getFileOccurrences() );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#indexFiles(java.util.List)}
+	 * that words already in the tree get the new files added to them.
+	 */
+	@Test
+	public void testIndexFiles_IntoExistingTree()
+	{
+		BSTreeADT<Word> tree = new WordIndexer( new BSTree<Word>(), 2 ).indexFiles( files.subList( 0, 6 ) );
+		tree = new WordIndexer( tree, 2 ).indexFiles( files.subList( 6, 12 ) );
+
+		Word alpha = tree.search( new Word( "alpha" ) ).getElement();
+		assertEquals( "Failed to add every file.", 12, alpha.getFileOccurrences().size() );
+		assertEquals( "Failed to add every line.", 50, alpha.getFileOccurrences().get( files.get( 11 ) ).size() );
+		assertFalse( "Digits should split words.", tree.contains( new Word( "word1x" ) ) );
+		assertTrue( tree.contains( new Word( "word" ) ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#indexFiles(java.util.List)}
+	 * that a shared ConcurrentBSTree is added to as it is, not replaced by a
+	 * rebuilt tree the threads holding it would not see.
+	 */
+	@Test
+	public void testIndexFiles_SharedConcurrentTree()
+	{
+		ConcurrentBSTree<Word> shared = new ConcurrentBSTree<Word>();
+		BSTreeADT<Word> tree = new WordIndexer( shared, 4 ).indexFiles( files );
+
+		assertSame( "Replaced the shared tree.", shared, tree );
+		assertEquals( new WordIndexer( new BSTree<Word>(), 1 ).indexFiles( files ).size(), shared.size() );
+		assertEquals( 12, shared.search( new Word( "alpha" ) ).getElement().getFileOccurrences().size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#indexFiles(java.util.List)}
+	 * that memory-mapped files cut into small pieces give the same words and
+	 * lines as reading them through a Reader, with any kind of line break.
+	 *
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testIndexFiles_MappedMatchesReader() throws IOException
+	{
+		File mixed = new File( dir, "mixed.txt" );
+		try( FileWriter out = new FileWriter( mixed ) )
+		{
+			for( int line = 0; line < 200; line++ )
+			{
+				String end = line % 3 == 0 ? "\r\n" : line % 3 == 1 ? "\r" : "\n";
+				out.write( "Line" + ( line % 11 ) + " some-words here" + end + ( line % 5 == 0 ? end : "" ) );
+			}
+			out.write( "last words" );
+		}
+		files.add( mixed.getPath() );
+
+		BSTreeADT<Word> expected = new WordIndexer( new BSTree<Word>(), 1 ).indexFiles( files );
+		WordIndexer indexer = new WordIndexer( new BSTree<Word>(), 3, true );
+		indexer.setChunkSize( 100 );
+		BSTreeADT<Word> actual = indexer.indexFiles( files );
+
+		assertEquals( "Failed to read every word.", expected.size(), actual.size() );
+		Iterator<Word> e = expected.inorderIterator();
+		Iterator<Word> a = actual.inorderIterator();
+		while( e.hasNext() )
+		{
+			assertEquals( "Failed to read the same lines.", e.next().getFileOccurrences(), a.next().getFileOccurrences() );
+		}
+		assertEquals( 241, actual.search( new Word( "last" ) ).getElement().getLines( mixed.getPath() ).get( 0 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#setMaxPieceSize(long)} that
+	 * a mapped file with no \n to cut at is cut between words instead, with
+	 * the same words and lines as reading it through a Reader.
+	 *
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testIndexFiles_MappedNoLineFeed() throws IOException
+	{
+		File old = new File( dir, "old.txt" );
+		try( FileWriter out = new FileWriter( old ) )
+		{
+			for( int line = 0; line < 200; line++ )
+			{
+				out.write( "Line" + ( line % 11 ) + " some-words here, and there" + ( line % 4 == 0 ? "\r" : " " ) );
+			}
+		}
+		files.add( old.getPath() );
+		List<String> one = Arrays.asList( old.getPath() );
+
+		BSTreeADT<Word> expected = new WordIndexer( new BSTree<Word>(), 1 ).indexFiles( one );
+		WordIndexer indexer = new WordIndexer( new BSTree<Word>(), 2, true );
+		indexer.setChunkSize( 40 );
+		indexer.setMaxPieceSize( 90 );
+		BSTreeADT<Word> actual = indexer.indexFiles( one );
+
+		assertEquals( "Failed to read every word.", expected.size(), actual.size() );
+		Iterator<Word> e = expected.inorderIterator();
+		Iterator<Word> a = actual.inorderIterator();
+		while( e.hasNext() )
+		{
+			assertEquals( "Failed to read the same lines.", e.next().getFileOccurrences(), a.next().getFileOccurrences() );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#indexFiles(java.util.List)}
+	 * that when a piece of a mapped file fails after others were merged, those
+	 * are taken out again and the listener is told.
+	 *
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testIndexFiles_MappedPieceFails() throws IOException
+	{
+		final File big = new File( dir, "big.txt" );
+		try( FileWriter out = new FileWriter( big ) )
+		{
+			for( int line = 0; line < 100; line++ )
+			{
+				out.write( "alpha gone" + line % 3 + "x\n" );
+			}
+		}
+		files.add( big.getPath() );
+
+		BSTreeADT<Word> tree = new WordIndexer( new AVLTree<Word>(), 1 ).indexFiles( files.subList( 0, 1 ) );
+		int before = tree.size();
+		WordIndexer indexer = new WordIndexer( tree, 1, true );
+		indexer.setChunkSize( 100 );
+		final List<Integer> dropped = new ArrayList<Integer>();
+		indexer.setPieceListener( new WordIndexer.PieceListener()
+		{
+			@Override
+			public void indexed( BSTreeADT<Word> words )
+			{
+				// the pieces after the first can no longer be read
+				big.delete();
+			}
+
+			@Override
+			public void dropped( int fileId )
+			{
+				dropped.add( fileId );
+			}
+		} );
+		tree = indexer.indexFiles( Arrays.asList( big.getPath() ) );
+
+		int id = FileRegistry.idOf( big.getPath() );
+		assertEquals( Collections.singleton( id ), indexer.getFailedFiles() );
+		assertEquals( Arrays.asList( id ), dropped );
+		assertEquals( "Failed to take the pieces out.", before, tree.size() );
+		assertNull( tree.search( new Word( "alpha" ) ).getElement().getLines( big.getPath() ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#getFailedFiles()} that a
+	 * file that cannot be read is skipped and named, and the others are read.
+	 */
+	@Test
+	public void testIndexFiles_FailedFile()
+	{
+		String missing = new File( dir, "missing.txt" ).getPath();
+		WordIndexer indexer = new WordIndexer( new AVLTree<Word>(), 2 );
+		BSTreeADT<Word> tree = indexer.indexFiles( Arrays.asList( files.get( 0 ), missing, files.get( 1 ) ) );
+
+		assertEquals( Collections.singleton( FileRegistry.idOf( missing ) ), indexer.getFailedFiles() );
+		assertNotNull( tree.search( new Word( "alpha" ) ).getElement().getLines( files.get( 1 ) ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#removeFiles} to drop the
+	 * lines of a file, and the words that were only in that file.
+	 */
+	@Test
+	public void testRemoveFiles()
+	{
+		BSTreeADT<Word> tree = new WordIndexer( new AVLTree<Word>(), 1 ).indexFiles( files );
+		Word zz = tree.search( new Word( "azz" ) ).getElement();
+		int before = zz.getFileCount();
+
+		BSTreeADT<Word> removed = WordIndexer.removeFiles( tree,
+				new HashSet<Integer>( Arrays.asList( FileRegistry.idOf( files.get( 0 ) ) ) ) );
+
+		assertTrue( "Failed to keep the tree kind.", removed instanceof AVLTree );
+		assertEquals( "Failed to drop the file.", before - 1, zz.getFileCount() );
+		assertNull( removed.search( new Word( "alpha" ) ).getElement().getLines( files.get( 0 ) ) );
+		assertEquals( "Failed to keep the other words.", tree.size(), removed.size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordIndexer#expandInputs(java.util.List)}
+	 * to list a directory and a glob in sorted order without repeating files.
+	 *
+	 * @throws IOException if the directory cannot be listed
+	 */
+	@Test
+	public void testExpandInputs() throws IOException
+	{
+		List<String> expanded = WordIndexer.expandInputs( Arrays.asList( files.get( 3 ), dir.getPath() ) );
+		assertEquals( "Failed to list every file once.", 12, expanded.size() );
+		assertEquals( "Explicit file should come first.", files.get( 3 ), expanded.get( 0 ) );
+		assertEquals( "Directory should be listed in order.", files.get( 0 ), expanded.get( 1 ) );
+
+		List<String> globbed = WordIndexer.expandInputs( Arrays.asList( dir.getPath() + "/file1*.txt" ) );
+		assertEquals( "Failed to match the glob.", Arrays.asList( files.get( 10 ), files.get( 11 ) ), globbed );
+	}
+}
@@ -0,0 +1,281 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+import appDomain.WordRepository;
+import implementations.AVLTree;
+import implementations.BSTree;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for saving and loading the word repository in its
+ * binary format.
+ */
+
+public class WordRepositoryTest
+{
+	// Attributes
+	private File file;
+
+	/**
+	 * Creates a temporary file for the repository before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "repository", ".dat" );
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		new File( file.getPath() + ".log" ).delete();
+		file = null;
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#save} and
+	 * {@link appDomain.WordRepository#load} that words, files and line numbers
+	 * survive a round trip, including non-ASCII text and lines that are not in
+	 * increasing order.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		BSTree<Word> tree = new BSTree<Word>();
+		String[] texts = { "mango", "apple", "zebra", "café" };
+		for( String text : texts )
+		{
+			Word word = new Word( text );
+			word.addOccurrence( "a.txt", 3 );
+			word.addOccurrence( "a.txt", 700 );
+			word.addOccurrence( "a.txt", 2 );
+			word.addOccurrence( "dir/b.txt", 1 );
+			tree.add( word );
+		}
+
+		WordRepository.save( tree, file );
+		BSTreeADT<Word> loaded = WordRepository.load( file );
+
+		assertEquals( "Failed to load every word.", tree.size(), loaded.size() );
+		assertEquals( "Failed to load a balanced tree.", 3, loaded.getHeight() );
+		assertEquals( "Failed to keep the tree kind.", BSTree.class, loaded.getClass() );
+
+		Iterator<Word> expected = tree.inorderIterator();
+		Iterator<Word> actual = loaded.inorderIterator();
+		while( expected.hasNext() )
+		{
+			Word e = expected.next();
+			Word a = actual.next();
+			assertEquals( "Failed to load the word text.", e.getText(), a.getText() );
+			assertEquals( "Failed to load the occurrences.", e.getFileOccurrences(), a.getFileOccurrences() );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#load} that a balanced tree
+	 * is loaded back as a balanced tree.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testRoundTrip_AVLTree() throws IOException
+	{
+		AVLTree<Word> tree = new AVLTree<Word>();
+		for( char c = 'a'; c <= 'z'; c++ )
+		{
+			Word word = new Word( String.valueOf( c ) );
+			word.addOccurrence( "a.txt", c );
+			tree.add( word );
+		}
+
+		WordRepository.save( tree, file );
+		BSTreeADT<Word> loaded = WordRepository.load( file );
+
+		assertTrue( "Failed to keep the tree kind.", loaded instanceof AVLTree );
+		assertEquals( "Failed to load every word.", 26, loaded.size() );
+		assertEquals( "Failed to load a balanced tree.", 5, loaded.getHeight() );
+	}
+
+	/**
+	 * Makes a tree of words that each appear on one line of one file.
+	 */
+	private static BSTree<Word> words( String filename, int line, String... texts )
+	{
+		BSTree<Word> tree = new BSTree<Word>();
+		for( String text : texts )
+		{
+			Word word = new Word( text );
+			word.addOccurrence( filename, line );
+			tree.add( word );
+		}
+		return tree;
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#openLog} and
+	 * {@link appDomain.WordRepository#load} that records appended to the log
+	 * are replayed on top of the snapshot, and that save folds them in.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testLog_Replay() throws IOException
+	{
+		WordRepository.save( words( "a.txt", 1, "apple", "mango" ), file );
+		try( WordRepository.Log log = WordRepository.openLog( file ) )
+		{
+			log.indexed( words( "b.txt", 2, "mango", "zebra" ) );
+		}
+		try( WordRepository.Log log = WordRepository.openLog( file ) )
+		{
+			log.indexed( words( "b.txt", 5, "apple" ) );
+			assertFalse( "Failed to write the log.", log.hasFailed() );
+		}
+
+		BSTreeADT<Word> loaded = WordRepository.load( file );
+		assertEquals( "Failed to replay the log.", 3, loaded.size() );
+		Word mango = loaded.search( new Word( "mango" ) ).getElement();
+		assertEquals( "Failed to merge the files.", 2, mango.getFileCount() );
+		assertArrayEquals( new int[] { 5 }, loaded.search( new Word( "apple" ) ).getElement().getLines( "b.txt" ).toArray() );
+
+		WordRepository.save( loaded, file );
+		assertFalse( "Save should remove the log.", new File( file.getPath() + ".log" ).exists() );
+		assertEquals( "Failed to keep the replayed words.", 3, WordRepository.load( file ).size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#load} that a record cut
+	 * short at the end of the log is dropped, and that the log can be added to
+	 * again afterwards.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testLog_TornRecord() throws IOException
+	{
+		WordRepository.save( words( "a.txt", 1, "apple" ), file );
+		try( WordRepository.Log log = WordRepository.openLog( file ) )
+		{
+			log.indexed( words( "a.txt", 2, "banana" ) );
+			log.indexed( words( "a.txt", 3, "cherry" ) );
+		}
+		File logFile = new File( file.getPath() + ".log" );
+		try( RandomAccessFile raf = new RandomAccessFile( logFile, "rw" ) )
+		{
+			raf.setLength( raf.length() - 3 );
+		}
+
+		BSTreeADT<Word> loaded = WordRepository.load( file );
+		assertTrue( "Failed to replay the intact record.", loaded.contains( new Word( "banana" ) ) );
+		assertFalse( "Should drop the torn record.", loaded.contains( new Word( "cherry" ) ) );
+
+		try( WordRepository.Log log = WordRepository.openLog( file ) )
+		{
+			log.indexed( words( "a.txt", 4, "date" ) );
+		}
+		loaded = WordRepository.load( file );
+		assertEquals( "Failed to append after the torn record.", 3, loaded.size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#load} that a log left
+	 * over from an older snapshot is not replayed.
+	 *
+	 * @throws IOException if the repository cannot be written or read
+	 */
+	@Test
+	public void testLog_OlderSnapshot() throws IOException
+	{
+		WordRepository.save( words( "a.txt", 1, "apple" ), file );
+		File logFile = new File( file.getPath() + ".log" );
+		File stale = new File( file.getPath() + ".stale" );
+		try( WordRepository.Log log = WordRepository.openLog( file ) )
+		{
+			log.indexed( words( "a.txt", 2, "banana" ) );
+		}
+		assertTrue( logFile.renameTo( stale ) );
+
+		WordRepository.save( words( "a.txt", 1, "apple" ), file );
+		assertTrue( stale.renameTo( logFile ) );
+
+		assertEquals( "Should not replay a log of another snapshot.", 1, WordRepository.load( file ).size() );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#load} to throw an
+	 * IOException for a file that is not a repository.
+	 *
+	 * @throws IOException if the test file cannot be written
+	 */
+	@Test
+	public void testLoad_NotARepository() throws IOException
+	{
+		try( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( "hello world".getBytes( "UTF-8" ) );
+		}
+		try
+		{
+			WordRepository.load( file );
+			fail( "Failed to throw IOException." );
+		}
+		catch( IOException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordRepository#save} that a save that
+	 * fails leaves no temporary file behind.
+	 *
+	 * @throws IOException if the test files cannot be written
+	 */
+	@Test
+	public void testSave_FailedLeavesNoTemp() throws IOException
+	{
+		// a directory with a file in it cannot be replaced
+		file.delete();
+		file.mkdir();
+		File inside = new File( file, "inside" );
+		inside.createNewFile();
+		BSTree<Word> tree = new BSTree<Word>();
+		tree.add( new Word( "apple" ) );
+		try
+		{
+			WordRepository.save( tree, file );
+			fail( "Failed to throw IOException." );
+		}
+		catch( IOException e )
+		{
+			assertFalse( "Left the temporary file.", new File( file.getPath() + ".tmp" ).exists() );
+		}
+		finally
+		{
+			inside.delete();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.FileRegistry;
+import implementations.LineList;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for the files and lines a word keeps track of.
+ */
+
+public class WordTest
+{
+	// Attributes
+	private String first;
+	private String second;
+	private Word word;
+
+	/**
+	 * Registers two file names, so the first has the smaller id, and creates a
+	 * word before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		first = "first" + System.nanoTime() + ".txt";
+		second = "second" + System.nanoTime() + ".txt";
+		FileRegistry.idOf( first );
+		FileRegistry.idOf( second );
+		word = new Word( "Hello" );
+	}
+
+	/**
+	 * Test method for {@link implementations.Word#addOccurrence(String, int)}
+	 * to keep the files in id order whatever order they are added in.
+	 */
+	@Test
+	public void testAddOccurrence_FilesInIdOrder()
+	{
+		word.addOccurrence( second, 4 );
+		word.addOccurrence( first, 2 );
+		word.addOccurrence( second, 4 );
+		word.addOccurrence( second, 9 );
+
+		assertEquals( "Failed to count the files.", 2, word.getFileCount() );
+		assertEquals( "Files are out of order.", first, FileRegistry.nameOf( word.getFileId( 0 ) ) );
+		assertArrayEquals( "Failed to add the lines.", new int[] { 4, 9 }, word.getLines( second ).toArray() );
+		assertEquals( "Failed to count every line once.", 3, word.getTotalFrequency() );
+		assertNull( "Should not have lines for another file.", word.getLines( "none.txt" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.Word#addOccurrences(Word)} to add
+	 * the lines of another entry, merging files both of them have.
+	 */
+	@Test
+	public void testAddOccurrences()
+	{
+		word.addOccurrence( first, 1 );
+		word.addOccurrence( first, 5 );
+		Word other = new Word( "hello" );
+		other.addOccurrence( first, 3 );
+		other.addOccurrence( second, 7 );
+
+		word.addOccurrences( other );
+
+		assertArrayEquals( new int[] { 1, 3, 5 }, word.getLines( first ).toArray() );
+		assertArrayEquals( new int[] { 7 }, word.getLines( second ).toArray() );
+	}
+
+	/**
+	 * Test that a serialized word keeps its files by name, so it can be read
+	 * back in a program where the files have other ids.
+	 *
+	 * @throws Exception if the word cannot be serialized
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		word.addOccurrence( second, 8 );
+		word.addOccurrence( first, 6 );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( word );
+		}
+		Word copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (Word) in.readObject();
+		}
+
+		assertEquals( "hello", copy.getText() );
+		assertEquals( "Failed to keep the occurrences.", word.getFileOccurrences(), copy.getFileOccurrences() );
+		LineList lines = copy.getLines( second );
+		assertEquals( 8, lines.get( 0 ) );
+	}
+}
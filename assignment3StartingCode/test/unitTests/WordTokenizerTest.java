@@ -0,0 +1,108 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.WordTokenizer;
+import implementations.Word;
+
+/**
+ * Class Description: Tests for splitting text into words and line numbers.
+ */
+
+public class WordTokenizerTest
+{
+	// Attributes
+	private List<String> tokens;
+	private WordTokenizer tokenizer;
+
+	/**
+	 * Creates a tokenizer that writes every word as word@line before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tokens = new ArrayList<String>();
+		tokenizer = new WordTokenizer( new WordTokenizer.TokenHandler()
+		{
+			@Override
+			public void word( WordTokenizer.Token token, int lineNumber )
+			{
+				tokens.add( token.toString() + "@" + lineNumber );
+			}
+		} );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordTokenizer#feed(char[], int, int)} to
+	 * give the same words and lines as the regular expressions and readLine it
+	 * replaced, even when a word or a \r\n is split between two chunks.
+	 *
+	 * @throws IOException never, the text is read from a string
+	 */
+	@Test
+	public void testFeed_MatchesRegex() throws IOException
+	{
+		String text = "Hello, World!\r\nit's\tA  café-Test\rx9y__Z\n\n\u000BLast\u0085word";
+		char[] chars = text.toCharArray();
+		for( int i = 0; i < chars.length; i += 2 )
+		{
+			tokenizer.feed( chars, i, Math.min( 2, chars.length - i ) );
+		}
+		tokenizer.finish();
+
+		List<String> expected = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader( new StringReader( text ) );
+		String line;
+		int lineNumber = 1;
+		while( ( line = reader.readLine() ) != null )
+		{
+			for( String word : line.replaceAll( "[^a-zA-Z\\s]", " " ).trim().split( "\\s+" ) )
+			{
+				if( !word.isEmpty() )
+				{
+					expected.add( word.toLowerCase() + "@" + lineNumber );
+				}
+			}
+			lineNumber++;
+		}
+
+		assertEquals( "Failed to split the text the same way.", expected, tokens );
+		assertEquals( "caf@2", tokens.get( 5 ) );
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordTokenizer.Token#compareTo(Word)} to
+	 * order the same way as comparing the word text.
+	 */
+	@Test
+	public void testTokenCompareTo()
+	{
+		final List<WordTokenizer.Token> found = new ArrayList<WordTokenizer.Token>();
+		WordTokenizer single = new WordTokenizer( new WordTokenizer.TokenHandler()
+		{
+			@Override
+			public void word( WordTokenizer.Token token, int lineNumber )
+			{
+				found.add( token );
+				assertEquals( 0, token.compareTo( new Word( "apple" ) ) );
+				assertTrue( token.compareTo( new Word( "apples" ) ) < 0 );
+				assertTrue( token.compareTo( new Word( "app" ) ) > 0 );
+				assertTrue( token.compareTo( new Word( "banana" ) ) < 0 );
+			}
+		} );
+		single.feedLine( "APPLE" );
+
+		assertEquals( "Failed to find the word.", 1, found.size() );
+	}
+}
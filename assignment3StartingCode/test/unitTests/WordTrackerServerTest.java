@@ -0,0 +1,149 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.WordTracker;
+
+/**
+ * Class Description: Tests for running WordTracker commands through a server,
+ * started in a JVM of its own in a directory of its own.
+ */
+
+public class WordTrackerServerTest
+{
+	// Attributes
+	private File dir;
+	private int port;
+	private Process server;
+	private String home;
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+
+	/**
+	 * Starts a server in a new temporary directory, which is also the home
+	 * directory its token goes to, and waits for the token.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = File.createTempFile( "server", "" );
+		dir.delete();
+		dir.mkdir();
+		try( ServerSocket free = new ServerSocket( 0 ) )
+		{
+			port = free.getLocalPort();
+		}
+
+		String java = System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java";
+		server = new ProcessBuilder( java, "-Duser.home=" + dir.getPath(), "-cp",
+				System.getProperty( "java.class.path" ), "appDomain.WordTracker", "-serve" + port )
+						.directory( dir ).redirectErrorStream( true ).redirectOutput( new File( dir, "server.log" ) )
+						.start();
+		home = System.getProperty( "user.home" );
+		System.setProperty( "user.home", dir.getPath() );
+
+		File token = new File( dir, ".wordtracker-" + port + ".token" );
+		long deadline = System.currentTimeMillis() + 20000;
+		while( token.length() < 64 )
+		{
+			assertTrue( "Server did not start.", server.isAlive() && System.currentTimeMillis() < deadline );
+			Thread.sleep( 50 );
+		}
+	}
+
+	/**
+	 * Stops the server and deletes its directory after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		try
+		{
+			connect( "-stop" );
+			if( !server.waitFor( 10, TimeUnit.SECONDS ) )
+			{
+				server.destroyForcibly();
+			}
+		}
+		finally
+		{
+			System.setProperty( "user.home", home );
+			for( File file : dir.listFiles() )
+			{
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Runs the client with its System.out and System.err caught in out and
+	 * err.
+	 */
+	private void connect( String... args )
+	{
+		String[] command = new String[args.length + 1];
+		command[0] = "-connect" + port;
+		System.arraycopy( args, 0, command, 1, args.length );
+
+		out = new ByteArrayOutputStream();
+		err = new ByteArrayOutputStream();
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		System.setOut( new PrintStream( out, true ) );
+		System.setErr( new PrintStream( err, true ) );
+		try
+		{
+			WordTracker.main( command );
+		}
+		finally
+		{
+			System.setOut( stdout );
+			System.setErr( stderr );
+		}
+	}
+
+	/**
+	 * Test method for {@link appDomain.WordTrackerClient#main(String[])} that
+	 * a JSON Lines report sent back by the server is all that reaches standard
+	 * output, and that what the run says it is doing goes to standard error.
+	 *
+	 * @throws IOException if the input file cannot be written
+	 */
+	@Test
+	public void testConnect_JsonLinesOnStandardOutput() throws IOException
+	{
+		File input = new File( dir, "input.txt" );
+		try( FileWriter writer = new FileWriter( input ) )
+		{
+			writer.write( "alpha beta\ngamma alpha\n" );
+		}
+
+		connect( input.getPath(), "-pl", "-ojsonl" );
+
+		String[] lines = out.toString( "UTF-8" ).split( "\n" );
+		assertEquals( 3, lines.length );
+		for( String line : lines )
+		{
+			assertTrue( "Not a record: " + line, line.startsWith( "{" ) && line.endsWith( "}" ) );
+		}
+		assertTrue( lines[0].contains( "\"alpha\"" ) );
+		assertTrue( err.toString( "UTF-8" ).contains( "WordTracker completed successfully!" ) );
+	}
+}